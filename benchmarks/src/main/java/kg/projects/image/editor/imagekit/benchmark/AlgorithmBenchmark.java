@@ -0,0 +1,101 @@
+package kg.projects.image.editor.imagekit.benchmark;
+
+import kg.projects.image.editor.imagekit.algorithm.ImageAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.convolution.BorderMode;
+import kg.projects.image.editor.imagekit.algorithm.convolution.GradientOperator;
+import kg.projects.image.editor.imagekit.algorithm.detection.GradientEdgeDetection;
+import kg.projects.image.editor.imagekit.algorithm.detection.SobelEdgeDetection;
+import kg.projects.image.editor.imagekit.algorithm.grayscale.FixedPointGrayscale;
+import kg.projects.image.editor.imagekit.algorithm.grayscale.LumaCoefficients;
+import kg.projects.image.editor.imagekit.algorithm.grayscale.LuminosityGrayscale;
+import kg.projects.image.editor.imagekit.algorithm.kernel.GradientMagnitude;
+import kg.projects.image.editor.imagekit.algorithm.kernel.RowKernels;
+import kg.projects.image.editor.imagekit.algorithm.parallel.RowBandExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the image algorithms across image sizes, source image types, thread counts and row kernels.
+ * {@link #processInto} reuses one destination, so with {@code -prof gc} it shows the steady-state allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class AlgorithmBenchmark {
+
+    @Param({"vga", "12mp", "50mp", "kitten.png", "car.jpg"})
+    public String image;
+
+    @Param({"INT_RGB", "3BYTE_BGR"})
+    public String imageType;
+
+    @Param({"luminosity", "fixed-point", "sobel", "sobel-l1", "scharr-reflect"})
+    public String algorithm;
+
+    @Param({"1", "4", "16"})
+    public int threads;
+
+    @Param({"scalar", "vector"})
+    public String kernels;
+
+    private BufferedImage source;
+    private BufferedImage destination;
+    private ImageAlgorithm imageAlgorithm;
+    private RowBandExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        source = BenchmarkImages.create(image, BenchmarkImages.imageType(imageType));
+        destination = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        executor = RowBandExecutor.parallel(threads);
+        RowKernels rowKernels = kernels.equals("vector") ? RowKernels.vector() : RowKernels.scalar();
+        if (rowKernels == null) {
+            throw new IllegalStateException("The Vector API is not available in this JVM");
+        }
+        imageAlgorithm = switch (algorithm) {
+            case "luminosity" -> new LuminosityGrayscale(executor, rowKernels);
+            case "fixed-point" -> new FixedPointGrayscale(LumaCoefficients.LUMINOSITY, executor);
+            case "sobel" -> new SobelEdgeDetection(new LuminosityGrayscale(executor, rowKernels), executor, rowKernels);
+            case "sobel-l1" -> new SobelEdgeDetection(new FixedPointGrayscale(LumaCoefficients.LUMINOSITY, executor),
+                    executor, rowKernels, GradientMagnitude.L1);
+            case "scharr-reflect" -> new GradientEdgeDetection(new LuminosityGrayscale(executor, rowKernels),
+                    GradientOperator.SCHARR, BorderMode.REFLECT, GradientMagnitude.EXACT, executor, rowKernels);
+            default -> throw new IllegalArgumentException("Unknown algorithm " + algorithm);
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    public BufferedImage process(PixelCounter counter) {
+        counter.add(source.getWidth(), source.getHeight());
+        return imageAlgorithm.process(source);
+    }
+
+    @Benchmark
+    public BufferedImage processInto(PixelCounter counter) {
+        counter.add(source.getWidth(), source.getHeight());
+        return imageAlgorithm.process(source, destination);
+    }
+}
@@ -0,0 +1,82 @@
+package kg.projects.image.editor.imagekit.benchmark;
+
+import kg.projects.image.editor.imagekit.filesystem.LocalFileSystemImageManager;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Builds the input images shared by the benchmarks.
+ * Sample images are read from the directory in the {@code imagekit.resources} system property,
+ * which defaults to {@code resources} relative to the working directory.
+ */
+final class BenchmarkImages {
+    private static final long SEED = 42;
+
+    private BenchmarkImages() {
+    }
+
+    /**
+     * Returns the sample image file with the given name.
+     */
+    static File sample(String name) {
+        return new File(System.getProperty("imagekit.resources", "resources"), name);
+    }
+
+    /**
+     * Creates or loads the image for a benchmark parameter:
+     * {@code vga}, {@code 12mp}, {@code 50mp} for synthetic images, or the name of a sample file.
+     */
+    static BufferedImage create(String source, int imageType) throws IOException {
+        return switch (source) {
+            case "vga" -> synthetic(640, 480, imageType);
+            case "12mp" -> synthetic(4000, 3000, imageType);
+            case "50mp" -> synthetic(8660, 5774, imageType);
+            default -> convert(new LocalFileSystemImageManager().loadImage(sample(source)), imageType);
+        };
+    }
+
+    /**
+     * Maps the name of a BufferedImage type constant, without its {@code TYPE_} prefix, to its value.
+     */
+    static int imageType(String name) {
+        return switch (name) {
+            case "INT_RGB" -> BufferedImage.TYPE_INT_RGB;
+            case "INT_ARGB" -> BufferedImage.TYPE_INT_ARGB;
+            case "3BYTE_BGR" -> BufferedImage.TYPE_3BYTE_BGR;
+            case "BYTE_GRAY" -> BufferedImage.TYPE_BYTE_GRAY;
+            default -> throw new IllegalArgumentException("Unknown image type " + name);
+        };
+    }
+
+    /**
+     * Creates an image of smooth gradients with noise and a few hard edges, close to a photo for the filters.
+     */
+    private static BufferedImage synthetic(int width, int height, int imageType) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] row = new int[width];
+        Random random = new Random(SEED);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int edge = ((x / 97) + (y / 89)) % 2 == 0 ? 0 : 96;
+                int r = (x * 255 / width + edge + random.nextInt(16)) & 0xff;
+                int g = (y * 255 / height + random.nextInt(16)) & 0xff;
+                int b = ((x + y) * 127 / (width + height) + edge + random.nextInt(16)) & 0xff;
+                row[x] = (r << 16) | (g << 8) | b;
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return convert(image, imageType);
+    }
+
+    private static BufferedImage convert(BufferedImage image, int imageType) {
+        if (image.getType() == imageType) {
+            return image;
+        }
+        BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), imageType);
+        converted.createGraphics().drawImage(image, 0, 0, null);
+        return converted;
+    }
+}
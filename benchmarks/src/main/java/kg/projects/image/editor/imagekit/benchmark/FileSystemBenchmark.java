@@ -0,0 +1,101 @@
+package kg.projects.image.editor.imagekit.benchmark;
+
+import kg.projects.image.editor.imagekit.filesystem.LoadOptions;
+import kg.projects.image.editor.imagekit.filesystem.LocalFileSystemImageManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link LocalFileSystemImageManager#loadImage} and {@link LocalFileSystemImageManager#saveImage}
+ * across image sizes, file formats and decoding options.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Thread)
+public class FileSystemBenchmark {
+
+    @Param({"vga", "12mp", "kitten.png", "car.jpg"})
+    public String image;
+
+    @Param({"png", "jpg", "bmp"})
+    public String format;
+
+    private final LocalFileSystemImageManager manager = new LocalFileSystemImageManager();
+    private Path directory;
+    private File inputFile;
+    private File outputFile;
+    private BufferedImage rgbImage;
+
+    /**
+     * Decoding options, kept apart so that only the load benchmark is multiplied by them.
+     */
+    @State(Scope.Thread)
+    public static class Decoding {
+        @Param({"false", "true"})
+        public boolean directDecoding;
+
+        private LoadOptions options;
+
+        @Setup(Level.Trial)
+        public void createOptions() {
+            options = LoadOptions.defaults().withDirectDecoding(directDecoding);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("imagekit-benchmark");
+        rgbImage = BenchmarkImages.create(image, BenchmarkImages.imageType("INT_RGB"));
+        inputFile = directory.resolve("input." + format).toFile();
+        outputFile = directory.resolve("output." + format).toFile();
+        if (!ImageIO.write(rgbImage, format, inputFile)) {
+            throw new IOException("Could not write benchmark input");
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void deleteOutput() throws IOException {
+        Files.deleteIfExists(outputFile.toPath());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(inputFile.toPath());
+        Files.deleteIfExists(outputFile.toPath());
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public BufferedImage loadImage(Decoding decoding, PixelCounter counter) throws IOException {
+        counter.add(rgbImage.getWidth(), rgbImage.getHeight());
+        return manager.loadImage(inputFile, decoding.options);
+    }
+
+    @Benchmark
+    public void saveImage(PixelCounter counter) throws IOException {
+        counter.add(rgbImage.getWidth(), rgbImage.getHeight());
+        manager.saveImage(rgbImage, outputFile);
+    }
+}
@@ -0,0 +1,49 @@
+package kg.projects.image.editor.imagekit.algorithm;
+
+import kg.projects.image.editor.imagekit.raster.GrayPlane;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * An algorithm whose results are gray, which can write them as a compact {@link GrayPlane} of levels
+ * and read such a plane back. Chains of these algorithms pass one byte per pixel between them instead of
+ * a TYPE_INT_RGB image with the level repeated in every component.
+ */
+public interface GrayPlaneAlgorithm extends ImageAlgorithm {
+
+    /**
+     * Processes an image into a plane of levels, each equal to every component of the pixel
+     * {@link #process(BufferedImage)} would produce.
+     *
+     * @param image       the image to be processed
+     * @param destination a plane of the same size as the image
+     * @throws IllegalArgumentException if the image or the destination is null, or their sizes differ
+     */
+    void processToGray(BufferedImage image, GrayPlane destination);
+
+    /**
+     * Processes the gray image a plane stands for, with the same result as processing its
+     * {@link GrayPlane#toRgbImage() RGB image} into a plane.
+     *
+     * @param source      the levels to be processed
+     * @param destination a plane of the same size as the source, which must not be the source
+     * @throws IllegalArgumentException if the source or the destination is null, or their sizes differ
+     */
+    void processGray(GrayPlane source, GrayPlane destination);
+
+    /**
+     * Processes an image into a new plane of levels.
+     *
+     * @param image the image to be processed
+     * @return a plane whose {@link GrayPlane#image()} is a TYPE_BYTE_GRAY image
+     * @throws IllegalArgumentException if the image is null
+     */
+    default GrayPlane processToGray(BufferedImage image) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
+        GrayPlane destination = GrayPlane.create(image.getWidth(), image.getHeight());
+        processToGray(image, destination);
+        return destination;
+    }
+}
@@ -1,5 +1,7 @@
 package kg.projects.image.editor.imagekit.algorithm;
 
+import kg.projects.image.editor.imagekit.raster.PixelPlane;
+
 import java.awt.image.BufferedImage;
 
 /**
@@ -15,4 +17,66 @@ public interface ImageAlgorithm {
      * @throws IllegalArgumentException if the image is null
      */
     BufferedImage process(BufferedImage image);
+
+    /**
+     * Applies the image processing algorithm to the given image, writing the result into the destination.
+     * The default implementation processes into a new image and copies it; implementations override it
+     * to write into the destination directly. The destination must not be the source image
+     * unless the algorithm is a {@link PixelAlgorithm}.
+     *
+     * @param image       the image to be processed
+     * @param destination a TYPE_INT_RGB image of the same size as the image
+     * @return the destination
+     * @throws IllegalArgumentException if the image or the destination is null,
+     *                                  or the destination is not a TYPE_INT_RGB image of the same size
+     */
+    default BufferedImage process(BufferedImage image, BufferedImage destination) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
+        int[] target = PixelPlane.wrapRgb(destination, image.getWidth(), image.getHeight()).pixels();
+
+        int[] result = PixelPlane.of(process(image)).pixels();
+        if (result.length != target.length) {
+            throw new IllegalArgumentException("Algorithm result does not have the size of the destination");
+        }
+        for (int i = 0; i < target.length; i++) {
+            target[i] = result[i] & 0xffffff;
+        }
+        return destination;
+    }
+
+    /**
+     * Returns a stable description of the algorithm and its configuration.
+     * Algorithms with equal descriptors must produce equal results for equal images,
+     * which makes the descriptor usable as part of a cache key. The default is the class name,
+     * so implementations with configuration must override it to include their parameters.
+     *
+     * @return the descriptor of the algorithm
+     */
+    default String descriptor() {
+        return getClass().getName();
+    }
+
+    /**
+     * Returns how many rows above and below a pixel can affect its result, or -1 if the result can depend
+     * on any row of the image. Algorithms with a bounded halo can process an image in horizontal strips,
+     * each extended by the halo. The default implementation returns -1.
+     *
+     * @return the number of halo rows, or -1 if unbounded
+     */
+    default int haloRows() {
+        return -1;
+    }
+
+    /**
+     * Returns how many columns left and right of a pixel can affect its result, or -1 if the result can depend
+     * on any column of the image. Together with {@link #haloRows()} it lets an image be processed in tiles,
+     * each extended by the halo on every side. The default implementation returns -1.
+     *
+     * @return the number of halo columns, or -1 if unbounded
+     */
+    default int haloColumns() {
+        return -1;
+    }
 }
\ No newline at end of file
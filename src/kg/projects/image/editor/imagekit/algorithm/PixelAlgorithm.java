@@ -0,0 +1,67 @@
+package kg.projects.image.editor.imagekit.algorithm;
+
+import kg.projects.image.editor.imagekit.raster.PixelPlane;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Represents an algorithm whose result for each pixel depends only on the source pixel at the same position.
+ * Such algorithms can run in place and several of them can be fused into a single pass over an image.
+ */
+@FunctionalInterface
+public interface PixelAlgorithm extends ImageAlgorithm {
+
+    /**
+     * Applies the algorithm to a single pixel.
+     *
+     * @param pixel the source pixel, with red, green and blue in its low 24 bits
+     * @return the resulting pixel in the TYPE_INT_RGB layout
+     */
+    int processPixel(int pixel);
+
+    /**
+     * Applies the algorithm to a run of consecutive pixels.
+     * Implementations may override this to process several pixels at once.
+     *
+     * @param source       the source pixels
+     * @param sourceOffset the index of the first source pixel
+     * @param target       the array to write the resulting pixels to; may be the source array
+     * @param targetOffset the index of the first target pixel
+     * @param length       the number of pixels
+     */
+    default void processRow(int[] source, int sourceOffset, int[] target, int targetOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            target[targetOffset + i] = processPixel(source[sourceOffset + i]);
+        }
+    }
+
+    @Override
+    default int haloRows() {
+        return 0;
+    }
+
+    @Override
+    default int haloColumns() {
+        return 0;
+    }
+
+    @Override
+    default BufferedImage process(BufferedImage image) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
+        return process(image, PixelPlane.createRgb(image.getWidth(), image.getHeight()).image());
+    }
+
+    @Override
+    default BufferedImage process(BufferedImage image, BufferedImage destination) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
+        int[] target = PixelPlane.wrapRgb(destination, image.getWidth(), image.getHeight()).pixels();
+        int[] source = PixelPlane.of(image).pixels();
+
+        processRow(source, 0, target, 0, target.length);
+        return destination;
+    }
+}
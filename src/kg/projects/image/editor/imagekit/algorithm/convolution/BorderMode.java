@@ -0,0 +1,46 @@
+package kg.projects.image.editor.imagekit.algorithm.convolution;
+
+/**
+ * How a convolution reads pixels outside the image.
+ */
+public enum BorderMode {
+    /**
+     * Pixels outside the image are zero.
+     */
+    ZERO,
+    /**
+     * Pixels outside the image repeat the nearest edge pixel.
+     */
+    CLAMP,
+    /**
+     * The image is mirrored across its edge pixels, so the pixel at -1 reads the one at 1.
+     */
+    REFLECT;
+
+    /**
+     * Maps a coordinate to the coordinate of the pixel that is read instead.
+     *
+     * @param index  the coordinate, possibly outside the image
+     * @param length the size of the image along the coordinate's axis
+     * @return a coordinate in the range [0, length), or -1 when the pixel reads as zero
+     */
+    public int map(int index, int length) {
+        if (index >= 0 && index < length) {
+            return index;
+        }
+        return switch (this) {
+            case ZERO -> -1;
+            case CLAMP -> index < 0 ? 0 : length - 1;
+            case REFLECT -> reflect(index, length);
+        };
+    }
+
+    private static int reflect(int index, int length) {
+        if (length == 1) {
+            return 0;
+        }
+        int period = 2 * (length - 1);
+        int folded = Math.floorMod(index, period);
+        return folded < length ? folded : period - folded;
+    }
+}
@@ -0,0 +1,202 @@
+package kg.projects.image.editor.imagekit.algorithm.convolution;
+
+import kg.projects.image.editor.imagekit.raster.ImagePool;
+
+import java.util.Arrays;
+
+/**
+ * Applies a {@link ConvolutionKernel} to a single-channel plane of int values.
+ * Each source row is first copied into a buffer padded according to the {@link BorderMode},
+ * so the inner loops run over the interior without bounds checks; rows above and below the image
+ * are resolved once per row. Separable kernels run as a horizontal pass into intermediate rows
+ * followed by a vertical pass, which takes {@code width + height} instead of {@code width * height}
+ * multiplications per pixel.
+ * The results are the raw weighted sums; normalizing them is up to the caller.
+ * Each band keeps only a ring of as many rows as the kernel is high, drawn from {@link ImagePool#shared()}.
+ * <p>
+ * Border modes only fold coordinates back across the nearest edge, so a plane holding just the rows from
+ * {@code fromRow - halo} to {@code toRow + halo}, cut at the image edges, convolves those rows exactly like
+ * the whole image does. Callers convolve their bands {@value #CHUNK_ROWS} rows at a time over such windows,
+ * which keeps their scratch independent of the image height.
+ * <p>
+ * Instances are immutable and may be shared between threads.
+ */
+public final class Convolution {
+    public static final int CHUNK_ROWS = 32;
+
+    private final ConvolutionKernel kernel;
+    private final BorderMode borderMode;
+
+    public Convolution(ConvolutionKernel kernel, BorderMode borderMode) {
+        if (kernel == null) {
+            throw new IllegalArgumentException("kernel cannot be null");
+        }
+        if (borderMode == null) {
+            throw new IllegalArgumentException("border mode cannot be null");
+        }
+        this.kernel = kernel;
+        this.borderMode = borderMode;
+    }
+
+    public ConvolutionKernel getKernel() {
+        return kernel;
+    }
+
+    public BorderMode getBorderMode() {
+        return borderMode;
+    }
+
+    /**
+     * Convolves a band of rows.
+     *
+     * @param source       the plane, {@code width * height} values in row-major order
+     * @param width        the width of the plane
+     * @param height       the height of the plane
+     * @param fromRow      the first row to compute
+     * @param toRow        the row after the last one to compute
+     * @param target       the array to write the sums of the band to, row after row
+     * @param targetOffset the index in the target of the first value of {@code fromRow}
+     */
+    public void convolveRows(int[] source, int width, int height, int fromRow, int toRow,
+                             int[] target, int targetOffset) {
+        if (source == null || target == null) {
+            throw new IllegalArgumentException("Planes cannot be null");
+        }
+        if (fromRow < 0 || toRow > height || fromRow > toRow || source.length < width * height) {
+            throw new IllegalArgumentException("Rows are outside the plane");
+        }
+        if (kernel.isSeparable()) {
+            convolveSeparable(source, width, height, fromRow, toRow, target, targetOffset);
+        } else {
+            convolveDirect(source, width, height, fromRow, toRow, target, targetOffset);
+        }
+    }
+
+    private void convolveSeparable(int[] source, int width, int height, int fromRow, int toRow,
+                                   int[] target, int targetOffset) {
+        int[] row = kernel.row();
+        int[] column = kernel.column();
+        int firstRow = fromRow - column.length / 2;
+        ImagePool pool = ImagePool.shared();
+        int[] padded = pool.acquireArray(width + row.length - 1);
+
+        // Horizontal sums of the last column.length source rows; null marks rows that read as zero
+        int[][] ring = acquireRows(pool, column.length, width);
+        int[][] window = new int[column.length][];
+        try {
+            for (int i = 0; i < toRow - fromRow + column.length - 1; i++) {
+                int sourceRow = borderMode.map(firstRow + i, height);
+                int[] sums = null;
+                if (sourceRow >= 0) {
+                    padRow(source, sourceRow * width, width, row.length / 2, padded);
+                    sums = ring[i % column.length];
+                    Arrays.fill(sums, 0);
+                    for (int k = 0; k < row.length; k++) {
+                        int weight = row[k];
+                        if (weight != 0) {
+                            for (int x = 0; x < width; x++) {
+                                sums[x] += weight * padded[x + k];
+                            }
+                        }
+                    }
+                }
+                window[i % column.length] = sums;
+
+                // Vertical pass for the output row whose last source row this was
+                int outputRow = i - column.length + 1;
+                if (outputRow < 0) {
+                    continue;
+                }
+                int offset = targetOffset + outputRow * width;
+                Arrays.fill(target, offset, offset + width, 0);
+                for (int k = 0; k < column.length; k++) {
+                    int[] line = window[(outputRow + k) % column.length];
+                    int weight = column[k];
+                    if (line != null && weight != 0) {
+                        for (int x = 0; x < width; x++) {
+                            target[offset + x] += weight * line[x];
+                        }
+                    }
+                }
+            }
+        } finally {
+            releaseRows(pool, ring);
+            pool.releaseArray(padded);
+        }
+    }
+
+    private void convolveDirect(int[] source, int width, int height, int fromRow, int toRow,
+                                int[] target, int targetOffset) {
+        int kernelWidth = kernel.getWidth();
+        int kernelHeight = kernel.getHeight();
+        int[] weights = kernel.weights();
+        int anchorX = kernelWidth / 2;
+        int firstRow = fromRow - kernelHeight / 2;
+        ImagePool pool = ImagePool.shared();
+
+        // Padded copies of the last kernelHeight source rows; null marks rows that read as zero
+        int[][] ring = acquireRows(pool, kernelHeight, width + kernelWidth - 1);
+        int[][] window = new int[kernelHeight][];
+        try {
+            for (int i = 0; i < toRow - fromRow + kernelHeight - 1; i++) {
+                int sourceRow = borderMode.map(firstRow + i, height);
+                int[] line = null;
+                if (sourceRow >= 0) {
+                    line = ring[i % kernelHeight];
+                    padRow(source, sourceRow * width, width, anchorX, line);
+                }
+                window[i % kernelHeight] = line;
+
+                int outputRow = i - kernelHeight + 1;
+                if (outputRow < 0) {
+                    continue;
+                }
+                int offset = targetOffset + outputRow * width;
+                Arrays.fill(target, offset, offset + width, 0);
+                for (int ky = 0; ky < kernelHeight; ky++) {
+                    int[] padded = window[(outputRow + ky) % kernelHeight];
+                    if (padded == null) {
+                        continue;
+                    }
+                    for (int kx = 0; kx < kernelWidth; kx++) {
+                        int weight = weights[ky * kernelWidth + kx];
+                        if (weight != 0) {
+                            for (int x = 0; x < width; x++) {
+                                target[offset + x] += weight * padded[x + kx];
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            releaseRows(pool, ring);
+        }
+    }
+
+    private static int[][] acquireRows(ImagePool pool, int count, int length) {
+        int[][] rows = new int[count][];
+        for (int i = 0; i < count; i++) {
+            rows[i] = pool.acquireArray(length);
+        }
+        return rows;
+    }
+
+    private static void releaseRows(ImagePool pool, int[][] rows) {
+        for (int[] row : rows) {
+            pool.releaseArray(row);
+        }
+    }
+
+    /**
+     * Copies a row into the middle of the padded buffer and fills {@code margin} values on each side.
+     */
+    private void padRow(int[] source, int offset, int width, int margin, int[] padded) {
+        System.arraycopy(source, offset, padded, margin, width);
+        for (int i = 1; i <= margin; i++) {
+            int left = borderMode.map(-i, width);
+            int right = borderMode.map(width - 1 + i, width);
+            padded[margin - i] = left < 0 ? 0 : source[offset + left];
+            padded[margin + width - 1 + i] = right < 0 ? 0 : source[offset + right];
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package kg.projects.image.editor.imagekit.algorithm.convolution;
+
+import kg.projects.image.editor.imagekit.algorithm.ImageAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.parallel.RowBandExecutor;
+import kg.projects.image.editor.imagekit.metrics.Instrumentation;
+import kg.projects.image.editor.imagekit.metrics.StageTimer;
+import kg.projects.image.editor.imagekit.raster.ImagePool;
+import kg.projects.image.editor.imagekit.raster.PixelPlane;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Convolves each color channel with a kernel whose weights sum to a positive value, such as
+ * {@link ConvolutionKernel#binomial(int)}, and divides by that sum with rounding, so the image keeps its brightness.
+ * Useful as a blur before edge detection.
+ */
+public class ConvolutionFilter implements ImageAlgorithm {
+    private final int[] channelBits = {16, 8, 0};
+    private final int bitMask = 0xff;
+    private final int maxValue = 255;
+
+    private final Convolution convolution;
+    private final RowBandExecutor executor;
+    private final int divisor;
+
+    public ConvolutionFilter(ConvolutionKernel kernel) {
+        this(kernel, BorderMode.CLAMP, RowBandExecutor.serial());
+    }
+
+    public ConvolutionFilter(ConvolutionKernel kernel, BorderMode borderMode, RowBandExecutor executor) {
+        if (kernel == null) {
+            throw new IllegalArgumentException("kernel cannot be null");
+        }
+        if (kernel.sum() <= 0) {
+            throw new IllegalArgumentException("kernel weights must have a positive sum");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+        this.convolution = new Convolution(kernel, borderMode);
+        this.executor = executor;
+        this.divisor = kernel.sum();
+    }
+
+    @Override
+    public BufferedImage process(BufferedImage image) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
+        return process(image, PixelPlane.createRgb(image.getWidth(), image.getHeight()).image());
+    }
+
+    @Override
+    public BufferedImage process(BufferedImage image, BufferedImage destination) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
+        StageTimer timer = Instrumentation.start(getClass());
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] target = PixelPlane.wrapRgb(destination, width, height).pixels();
+        int[] source = PixelPlane.of(image).pixels();
+
+        // Each chunk of a band convolves one channel at a time from a window of the rows it reads
+        ImagePool pool = ImagePool.shared();
+        int halo = convolution.getKernel().getHeight() / 2;
+        int windowLength = Math.min(Convolution.CHUNK_ROWS + 2 * halo, height) * width;
+        int chunkLength = Math.min(Convolution.CHUNK_ROWS, height) * width;
+        executor.execute(width, height, (fromRow, toRow) -> {
+            int[] window = pool.acquireArray(windowLength);
+            int[] sums = pool.acquireArray(chunkLength);
+            try {
+                for (int chunkRow = fromRow; chunkRow < toRow; chunkRow += Convolution.CHUNK_ROWS) {
+                    int chunkEnd = Math.min(chunkRow + Convolution.CHUNK_ROWS, toRow);
+                    int windowRow = Math.max(0, chunkRow - halo);
+                    int windowEnd = Math.min(height, chunkEnd + halo);
+                    int offset = chunkRow * width;
+                    int length = (chunkEnd - chunkRow) * width;
+                    Arrays.fill(target, offset, offset + length, 0);
+                    for (int shift : channelBits) {
+                        for (int i = windowRow * width, j = 0; i < windowEnd * width; i++, j++) {
+                            window[j] = (source[i] >> shift) & bitMask;
+                        }
+                        convolution.convolveRows(window, width, windowEnd - windowRow,
+                                chunkRow - windowRow, chunkEnd - windowRow, sums, 0);
+                        for (int i = 0; i < length; i++) {
+                            target[offset + i] |= normalize(sums[i]) << shift;
+                        }
+                    }
+                }
+            } finally {
+                pool.releaseArray(sums);
+                pool.releaseArray(window);
+            }
+        });
+        timer.stop((long) width * height);
+        return destination;
+    }
+
+    @Override
+    public String descriptor() {
+        return getClass().getName() + "(" + convolution.getKernel() + ", " + convolution.getBorderMode() + ")";
+    }
+
+    @Override
+    public int haloRows() {
+        return convolution.getKernel().getHeight() / 2;
+    }
+
+    @Override
+    public int haloColumns() {
+        return convolution.getKernel().getWidth() / 2;
+    }
+
+    private int normalize(int sum) {
+        int value = Math.floorDiv(2 * sum + divisor, 2 * divisor);
+        return Math.max(0, Math.min(value, maxValue));
+    }
+}
@@ -0,0 +1,265 @@
+package kg.projects.image.editor.imagekit.algorithm.convolution;
+
+import java.util.Arrays;
+
+/**
+ * An immutable rectangular kernel of integer weights with odd dimensions, anchored at its centre.
+ * Weights are applied as laid out, so the top-left weight multiplies the top-left neighbour (correlation).
+ * A kernel whose weights are the outer product of a column and a row vector is separable,
+ * which lets a convolution run it as a horizontal and a vertical pass.
+ * Separability is detected when the kernel is created.
+ * Convolutions accumulate in int, so the absolute weights of a kernel may sum to at most
+ * {@value #MAX_ABSOLUTE_WEIGHT_SUM}, which keeps every weighted sum of 8-bit samples, doubled for rounding,
+ * within an int.
+ */
+public final class ConvolutionKernel {
+    public static final int MAX_ABSOLUTE_WEIGHT_SUM = Integer.MAX_VALUE / (2 * 255 + 1);
+    private static final int MAX_BINOMIAL_SIZE = 11;
+
+    private final int width;
+    private final int height;
+    private final int[] weights;
+    private final int[] column;
+    private final int[] row;
+
+    private ConvolutionKernel(int width, int height, int[] weights, int[] column, int[] row) {
+        this.width = width;
+        this.height = height;
+        this.weights = weights;
+        this.column = column;
+        this.row = row;
+    }
+
+    /**
+     * Creates a kernel from its weights in row-major order.
+     *
+     * @param width   the width of the kernel, odd and positive
+     * @param height  the height of the kernel, odd and positive
+     * @param weights the width * height weights
+     * @throws IllegalArgumentException if the dimensions are not odd and positive, the number of weights
+     *                                  does not match them or the absolute weights sum to more than
+     *                                  {@value #MAX_ABSOLUTE_WEIGHT_SUM}
+     */
+    public static ConvolutionKernel of(int width, int height, int... weights) {
+        if (width <= 0 || height <= 0 || width % 2 == 0 || height % 2 == 0) {
+            throw new IllegalArgumentException("ConvolutionKernel dimensions must be odd and positive");
+        }
+        if (weights == null || weights.length != width * height) {
+            throw new IllegalArgumentException("ConvolutionKernel must have width * height weights");
+        }
+        long absoluteSum = 0;
+        for (int weight : weights) {
+            absoluteSum += Math.abs((long) weight);
+        }
+        checkAbsoluteSum(absoluteSum);
+        int[] copy = weights.clone();
+        int[][] factors = factorize(width, height, copy);
+        if (factors == null) {
+            return new ConvolutionKernel(width, height, copy, null, null);
+        }
+        return new ConvolutionKernel(width, height, copy, factors[0], factors[1]);
+    }
+
+    /**
+     * Creates the separable kernel {@code column * row}.
+     *
+     * @param column the vertical factor, of odd length
+     * @param row    the horizontal factor, of odd length
+     * @throws IllegalArgumentException if a factor is null or the absolute weights of the product sum to more
+     *                                  than {@value #MAX_ABSOLUTE_WEIGHT_SUM}
+     */
+    public static ConvolutionKernel separable(int[] column, int[] row) {
+        if (column == null || row == null) {
+            throw new IllegalArgumentException("ConvolutionKernel factors cannot be null");
+        }
+        // The absolute weights of an outer product sum to the product of the absolute sums of its factors
+        long columnSum = 0;
+        for (int weight : column) {
+            columnSum += Math.abs((long) weight);
+        }
+        long rowSum = 0;
+        for (int weight : row) {
+            rowSum += Math.abs((long) weight);
+        }
+        checkAbsoluteSum(columnSum > MAX_ABSOLUTE_WEIGHT_SUM || rowSum > MAX_ABSOLUTE_WEIGHT_SUM
+                ? Math.max(columnSum, rowSum) : columnSum * rowSum);
+        int[] weights = new int[column.length * row.length];
+        for (int y = 0; y < column.length; y++) {
+            for (int x = 0; x < row.length; x++) {
+                weights[y * row.length + x] = column[y] * row[x];
+            }
+        }
+        return of(row.length, column.length, weights);
+    }
+
+    /**
+     * Creates a square binomial kernel, the integer approximation of a Gaussian blur.
+     * For a size of 5 the factors are 1 4 6 4 1. The weights of a kernel of size n sum to 4^(n - 1),
+     * so 11 is the largest size within {@value #MAX_ABSOLUTE_WEIGHT_SUM}; larger blurs can be had by
+     * applying a kernel repeatedly, or to a level of an image pyramid.
+     *
+     * @param size the width and height of the kernel, odd and positive
+     * @throws IllegalArgumentException if the size is not odd and positive, or is larger than 11
+     */
+    public static ConvolutionKernel binomial(int size) {
+        if (size <= 0 || size % 2 == 0) {
+            throw new IllegalArgumentException("ConvolutionKernel size must be odd and positive");
+        }
+        if (size > MAX_BINOMIAL_SIZE) {
+            throw new IllegalArgumentException("Binomial kernels larger than " + MAX_BINOMIAL_SIZE
+                    + " overflow the convolution sums");
+        }
+        int[] factors = new int[size];
+        factors[0] = 1;
+        for (int i = 1; i < size; i++) {
+            for (int j = i; j > 0; j--) {
+                factors[j] += factors[j - 1];
+            }
+        }
+        return separable(factors, factors);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int weight(int x, int y) {
+        return weights[y * width + x];
+    }
+
+    /**
+     * Returns the sum of all weights.
+     */
+    public int sum() {
+        return Arrays.stream(weights).sum();
+    }
+
+    public boolean isSeparable() {
+        return row != null;
+    }
+
+    /**
+     * Returns the vertical factor of a separable kernel, or null if the kernel is not separable.
+     */
+    public int[] getColumn() {
+        return column == null ? null : column.clone();
+    }
+
+    /**
+     * Returns the horizontal factor of a separable kernel, or null if the kernel is not separable.
+     */
+    public int[] getRow() {
+        return row == null ? null : row.clone();
+    }
+
+    /**
+     * Returns the kernel mirrored across its main diagonal.
+     */
+    public ConvolutionKernel transpose() {
+        int[] transposed = new int[weights.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                transposed[x * height + y] = weights[y * width + x];
+            }
+        }
+        return new ConvolutionKernel(height, width, transposed, row, column);
+    }
+
+    int[] weights() {
+        return weights;
+    }
+
+    int[] column() {
+        return column;
+    }
+
+    int[] row() {
+        return row;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ConvolutionKernel)) {
+            return false;
+        }
+        ConvolutionKernel other = (ConvolutionKernel) o;
+        return width == other.width && height == other.height && Arrays.equals(weights, other.weights);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * width + height) + Arrays.hashCode(weights);
+    }
+
+    @Override
+    public String toString() {
+        return "ConvolutionKernel[" + width + "x" + height + " " + Arrays.toString(weights) + "]";
+    }
+
+    /**
+     * Splits the weights into an integer column and row whose outer product they are,
+     * with the row reduced by the greatest common divisor of its entries.
+     * Returns null if the kernel is not of rank one.
+     */
+    private static int[][] factorize(int width, int height, int[] weights) {
+        int pivot = -1;
+        for (int i = 0; i < weights.length && pivot < 0; i++) {
+            if (weights[i] != 0) {
+                pivot = i;
+            }
+        }
+        if (pivot < 0) {
+            return null;
+        }
+        int pivotY = pivot / width;
+        int pivotX = pivot % width;
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                long product = (long) weights[y * width + x] * weights[pivot];
+                if (product != (long) weights[y * width + pivotX] * weights[pivotY * width + x]) {
+                    return null;
+                }
+            }
+        }
+
+        int divisor = 0;
+        for (int x = 0; x < width; x++) {
+            divisor = gcd(divisor, weights[pivotY * width + x]);
+        }
+        int[] row = new int[width];
+        for (int x = 0; x < width; x++) {
+            row[x] = weights[pivotY * width + x] / divisor;
+        }
+        int[] column = new int[height];
+        for (int y = 0; y < height; y++) {
+            column[y] = weights[y * width + pivotX] / row[pivotX];
+        }
+        return new int[][]{column, row};
+    }
+
+    private static void checkAbsoluteSum(long absoluteSum) {
+        if (absoluteSum > MAX_ABSOLUTE_WEIGHT_SUM) {
+            throw new IllegalArgumentException("ConvolutionKernel absolute weights sum to " + absoluteSum
+                    + ", more than the " + MAX_ABSOLUTE_WEIGHT_SUM + " a convolution can accumulate");
+        }
+    }
+
+    private static int gcd(int a, int b) {
+        a = Math.abs(a);
+        b = Math.abs(b);
+        while (b != 0) {
+            int remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+        return a;
+    }
+}
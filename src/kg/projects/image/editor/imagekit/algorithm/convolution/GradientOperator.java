@@ -0,0 +1,33 @@
+package kg.projects.image.editor.imagekit.algorithm.convolution;
+
+/**
+ * 3x3 gradient operators: a central difference in one direction, smoothed in the other.
+ * All of them are separable.
+ */
+public enum GradientOperator {
+    SOBEL(1, 2, 1),
+    SCHARR(3, 10, 3),
+    PREWITT(1, 1, 1);
+
+    private final ConvolutionKernel horizontal;
+    private final ConvolutionKernel vertical;
+
+    GradientOperator(int... smoothing) {
+        this.horizontal = ConvolutionKernel.separable(smoothing, new int[]{-1, 0, 1});
+        this.vertical = horizontal.transpose();
+    }
+
+    /**
+     * Returns the kernel of the horizontal gradient, which responds to vertical edges.
+     */
+    public ConvolutionKernel getHorizontal() {
+        return horizontal;
+    }
+
+    /**
+     * Returns the kernel of the vertical gradient, which responds to horizontal edges.
+     */
+    public ConvolutionKernel getVertical() {
+        return vertical;
+    }
+}
@@ -0,0 +1,305 @@
+package kg.projects.image.editor.imagekit.algorithm.detection;
+
+import kg.projects.image.editor.imagekit.algorithm.GrayPlaneAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.ImageAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.PixelAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.convolution.BorderMode;
+import kg.projects.image.editor.imagekit.algorithm.convolution.Convolution;
+import kg.projects.image.editor.imagekit.algorithm.convolution.GradientOperator;
+import kg.projects.image.editor.imagekit.algorithm.grayscale.GrayscaleAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.kernel.GradientMagnitude;
+import kg.projects.image.editor.imagekit.algorithm.kernel.RowKernels;
+import kg.projects.image.editor.imagekit.algorithm.parallel.RowBandExecutor;
+import kg.projects.image.editor.imagekit.metrics.Instrumentation;
+import kg.projects.image.editor.imagekit.metrics.StageTimer;
+import kg.projects.image.editor.imagekit.raster.GrayPlane;
+import kg.projects.image.editor.imagekit.raster.ImagePool;
+import kg.projects.image.editor.imagekit.raster.PixelPlane;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Detects edges as the magnitude of the gradient of the gray image, computed with a {@link GradientOperator}.
+ * Sobel with zero borders, the most common case, runs on the {@link RowKernels} over gray rows computed
+ * on the fly; every other combination convolves a gray plane with the operator's kernels
+ * on the separable {@link Convolution} engine, {@value Convolution#CHUNK_ROWS} rows at a time.
+ * Scratch rows and chunks are drawn from {@link ImagePool#shared()}.
+ * Edge maps can also be written to, and computed from, compact {@link GrayPlane}s of levels.
+ */
+public class GradientEdgeDetection implements EdgeDetectionAlgorithm, GrayPlaneAlgorithm {
+    private final int bitMask = 0xff;
+
+    ImageAlgorithm grayscaleAlgorithm;
+    private final GradientOperator operator;
+    private final BorderMode borderMode;
+    private final GradientMagnitude magnitude;
+    private final RowBandExecutor executor;
+    private final RowKernels kernels;
+    private final Convolution horizontal;
+    private final Convolution vertical;
+
+    public GradientEdgeDetection(ImageAlgorithm grayscaleAlgorithm, GradientOperator operator) {
+        this(grayscaleAlgorithm, operator, BorderMode.ZERO, GradientMagnitude.EXACT);
+    }
+
+    public GradientEdgeDetection(ImageAlgorithm grayscaleAlgorithm, GradientOperator operator,
+                                 BorderMode borderMode, GradientMagnitude magnitude) {
+        this(grayscaleAlgorithm, operator, borderMode, magnitude, RowBandExecutor.serial(), RowKernels.preferred());
+    }
+
+    public GradientEdgeDetection(ImageAlgorithm grayscaleAlgorithm, GradientOperator operator,
+                                 BorderMode borderMode, GradientMagnitude magnitude,
+                                 RowBandExecutor executor, RowKernels kernels) {
+        if (grayscaleAlgorithm == null) {
+            throw new IllegalArgumentException("grayscale algorithm cannot be null");
+        }
+        if (!(grayscaleAlgorithm instanceof GrayscaleAlgorithm)) {
+            throw new IllegalArgumentException("grayscale algorithm must be an instance of GrayscaleAlgorithm");
+        }
+        if (operator == null) {
+            throw new IllegalArgumentException("operator cannot be null");
+        }
+        if (borderMode == null) {
+            throw new IllegalArgumentException("border mode cannot be null");
+        }
+        if (magnitude == null) {
+            throw new IllegalArgumentException("magnitude cannot be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+        if (kernels == null) {
+            throw new IllegalArgumentException("kernels cannot be null");
+        }
+        this.grayscaleAlgorithm = grayscaleAlgorithm;
+        this.operator = operator;
+        this.borderMode = borderMode;
+        this.magnitude = magnitude;
+        this.executor = executor;
+        this.kernels = kernels;
+        this.horizontal = new Convolution(operator.getHorizontal(), borderMode);
+        this.vertical = new Convolution(operator.getVertical(), borderMode);
+    }
+
+    public GradientOperator getOperator() {
+        return operator;
+    }
+
+    public BorderMode getBorderMode() {
+        return borderMode;
+    }
+
+    public GradientMagnitude getMagnitude() {
+        return magnitude;
+    }
+
+    @Override
+    public BufferedImage process(BufferedImage image) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image must not be null");
+        }
+        return process(image, PixelPlane.createRgb(image.getWidth(), image.getHeight()).image());
+    }
+
+    @Override
+    public BufferedImage process(BufferedImage image, BufferedImage destination) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image must not be null");
+        }
+        StageTimer timer = Instrumentation.start(getClass());
+        PixelPlane result = PixelPlane.wrapRgb(destination, image.getWidth(), image.getHeight());
+        detectEdges(image, result.pixels(), null);
+        timer.stop((long) result.width() * result.height());
+        return destination;
+    }
+
+    @Override
+    public void processToGray(BufferedImage image, GrayPlane destination) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image must not be null");
+        }
+        StageTimer timer = Instrumentation.start(getClass());
+        GrayPlane result = GrayPlane.checkDestination(destination, image.getWidth(), image.getHeight());
+        detectEdges(image, null, result.levels());
+        timer.stop((long) result.width() * result.height());
+    }
+
+    @Override
+    public void processGray(GrayPlane source, GrayPlane destination) {
+        if (source == null) {
+            throw new IllegalArgumentException("Source must not be null");
+        }
+        StageTimer timer = Instrumentation.start(getClass());
+        int width = source.width();
+        int height = source.height();
+        byte[] target = GrayPlane.checkDestination(destination, width, height).levels();
+
+        if (grayscaleAlgorithm instanceof PixelAlgorithm pixelGrayscale) {
+            // A per-pixel grayscale maps a gray pixel by its level alone, so one table covers the plane
+            int[] grays = new int[bitMask + 1];
+            for (int level = 0; level <= bitMask; level++) {
+                grays[level] = pixelGrayscale.processPixel(PixelPlane.grayPixel(level)) & bitMask;
+            }
+            byte[] levels = source.levels();
+            detectEdges((offset, row, rowOffset, length) -> {
+                for (int x = 0; x < length; x++) {
+                    row[rowOffset + x] = grays[levels[offset + x] & bitMask];
+                }
+            }, width, height, null, target);
+        } else {
+            detectEdges(source.toRgbImage(), null, target);
+        }
+        timer.stop((long) width * height);
+    }
+
+    @Override
+    public String descriptor() {
+        return getClass().getName() + "(" + grayscaleAlgorithm.descriptor() + ", " + operator + ", "
+                + borderMode + ", " + magnitude + ")";
+    }
+
+    @Override
+    public int haloRows() {
+        int grayscaleHalo = grayscaleAlgorithm.haloRows();
+        return grayscaleHalo < 0 ? -1 : grayscaleHalo + 1;
+    }
+
+    @Override
+    public int haloColumns() {
+        int grayscaleHalo = grayscaleAlgorithm.haloColumns();
+        return grayscaleHalo < 0 ? -1 : grayscaleHalo + 1;
+    }
+
+    /**
+     * Writes the gray levels of a run of pixels, given by its offset in the image, into an int row.
+     */
+    @FunctionalInterface
+    private interface GrayRows {
+        void fill(int offset, int[] row, int rowOffset, int length);
+    }
+
+    /**
+     * Detects the edges of an image into exactly one of a packed RGB target or a plane of levels.
+     */
+    private void detectEdges(BufferedImage image, int[] rgbTarget, byte[] grayTarget) {
+        GrayRows rows;
+        if (grayscaleAlgorithm instanceof PixelAlgorithm pixelGrayscale) {
+            int[] pixels = PixelPlane.of(image).pixels();
+            rows = (offset, row, rowOffset, length) -> {
+                pixelGrayscale.processRow(pixels, offset, row, rowOffset, length);
+                for (int x = rowOffset; x < rowOffset + length; x++) {
+                    row[x] &= bitMask;
+                }
+            };
+        } else {
+            int[] pixels = PixelPlane.of(grayscaleAlgorithm.process(image)).pixels();
+            rows = (offset, row, rowOffset, length) -> {
+                for (int x = 0; x < length; x++) {
+                    row[rowOffset + x] = pixels[offset + x] & bitMask;
+                }
+            };
+        }
+        detectEdges(rows, image.getWidth(), image.getHeight(), rgbTarget, grayTarget);
+    }
+
+    private void detectEdges(GrayRows rows, int width, int height, int[] rgbTarget, byte[] grayTarget) {
+        if (operator != GradientOperator.SOBEL || borderMode != BorderMode.ZERO) {
+            detectEdgesByConvolution(rows, width, height, rgbTarget, grayTarget);
+        } else {
+            executor.execute(width, height,
+                    (fromRow, toRow) -> detectEdges(rows, width, height, fromRow, toRow, rgbTarget, grayTarget));
+        }
+    }
+
+    private void detectEdgesByConvolution(GrayRows rows, int width, int height, int[] rgbTarget, byte[] grayTarget) {
+        // Each chunk of a band computes the gray rows it reads, including the halo rows shared with its neighbors
+        ImagePool pool = ImagePool.shared();
+        int halo = Math.max(horizontal.getKernel().getHeight(), vertical.getKernel().getHeight()) / 2;
+        int windowLength = Math.min(Convolution.CHUNK_ROWS + 2 * halo, height) * width;
+        int chunkLength = Math.min(Convolution.CHUNK_ROWS, height) * width;
+        executor.execute(width, height, (fromRow, toRow) -> {
+            int[] gray = pool.acquireArray(windowLength);
+            int[] gx = pool.acquireArray(chunkLength);
+            int[] gy = pool.acquireArray(chunkLength);
+            try {
+                for (int chunkRow = fromRow; chunkRow < toRow; chunkRow += Convolution.CHUNK_ROWS) {
+                    int chunkEnd = Math.min(chunkRow + Convolution.CHUNK_ROWS, toRow);
+                    int windowRow = Math.max(0, chunkRow - halo);
+                    int windowRows = Math.min(height, chunkEnd + halo) - windowRow;
+                    int firstRow = chunkRow - windowRow;
+                    rows.fill(windowRow * width, gray, 0, windowRows * width);
+                    horizontal.convolveRows(gray, width, windowRows, firstRow, chunkEnd - windowRow, gx, 0);
+                    vertical.convolveRows(gray, width, windowRows, firstRow, chunkEnd - windowRow, gy, 0);
+
+                    int offset = chunkRow * width;
+                    int length = (chunkEnd - chunkRow) * width;
+                    if (rgbTarget != null) {
+                        for (int i = 0; i < length; i++) {
+                            rgbTarget[offset + i] = PixelPlane.grayPixel(magnitude.magnitude(gx[i], gy[i]));
+                        }
+                    } else {
+                        for (int i = 0; i < length; i++) {
+                            grayTarget[offset + i] = (byte) magnitude.magnitude(gx[i], gy[i]);
+                        }
+                    }
+                }
+            } finally {
+                pool.releaseArray(gy);
+                pool.releaseArray(gx);
+                pool.releaseArray(gray);
+            }
+        });
+    }
+
+    /**
+     * Runs the Sobel operator over a sliding window of three zero-padded gray rows computed on the fly,
+     * so no full-size gray image is allocated.
+     * Each band of rows reads one halo row above and below it, so bands can run in parallel.
+     * Gray targets receive each output row through a pooled packed row.
+     */
+    private void detectEdges(GrayRows source, int width, int height, int fromRow, int toRow,
+                             int[] rgbTarget, byte[] grayTarget) {
+        ImagePool pool = ImagePool.shared();
+        int[] zeroRow = pool.acquireArray(width + 2);
+        int[][] rows = {pool.acquireArray(width + 2), pool.acquireArray(width + 2), pool.acquireArray(width + 2)};
+        int[] output = grayTarget != null ? pool.acquireArray(width) : null;
+        try {
+            // Pooled rows carry stale data; only the padding columns are never overwritten
+            Arrays.fill(zeroRow, 0);
+            for (int[] row : rows) {
+                row[0] = 0;
+                row[width + 1] = 0;
+            }
+            if (fromRow > 0) {
+                source.fill((fromRow - 1) * width, rows[(fromRow - 1) % 3], 1, width);
+            }
+            source.fill(fromRow * width, rows[fromRow % 3], 1, width);
+
+            for (int y = fromRow; y < toRow; y++) {
+                if (y + 1 < height) {
+                    source.fill((y + 1) * width, rows[(y + 1) % 3], 1, width);
+                }
+                int[] above = y > 0 ? rows[(y - 1) % 3] : zeroRow;
+                int[] below = y + 1 < height ? rows[(y + 1) % 3] : zeroRow;
+                if (rgbTarget != null) {
+                    kernels.sobelRow(above, rows[y % 3], below, rgbTarget, y * width, width, magnitude);
+                } else {
+                    kernels.sobelRow(above, rows[y % 3], below, output, 0, width, magnitude);
+                    int offset = y * width;
+                    for (int x = 0; x < width; x++) {
+                        grayTarget[offset + x] = (byte) output[x];
+                    }
+                }
+            }
+        } finally {
+            if (output != null) {
+                pool.releaseArray(output);
+            }
+            for (int[] row : rows) {
+                pool.releaseArray(row);
+            }
+            pool.releaseArray(zeroRow);
+        }
+    }
+}
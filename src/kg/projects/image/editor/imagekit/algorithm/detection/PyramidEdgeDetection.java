@@ -0,0 +1,226 @@
+package kg.projects.image.editor.imagekit.algorithm.detection;
+
+import kg.projects.image.editor.imagekit.algorithm.ImageAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.pyramid.ImagePyramid;
+import kg.projects.image.editor.imagekit.algorithm.pyramid.PyramidFilter;
+import kg.projects.image.editor.imagekit.metrics.Instrumentation;
+import kg.projects.image.editor.imagekit.metrics.StageTimer;
+import kg.projects.image.editor.imagekit.raster.ImagePool;
+import kg.projects.image.editor.imagekit.raster.PixelPlane;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Detects edges with the Sobel operator on a coarse level of an {@link ImagePyramid} and scales them up to
+ * the size of the image, which costs a fraction of detecting them at full resolution.
+ * With a refinement threshold, the image is split into square tiles and every tile whose coarse edges reach
+ * the threshold somewhere near it is detected again at full resolution, so edges keep their detail while flat
+ * regions cost only the coarse pass. A threshold of 0 refines every tile and gives the same result as
+ * {@link SobelEdgeDetection}.
+ * <p>
+ * Pyramids are built per call from the image; pass an {@link ImagePyramid} to {@link #process(ImagePyramid)}
+ * to share its levels between calls, such as a quick preview followed by a refined pass.
+ */
+public class PyramidEdgeDetection implements EdgeDetectionAlgorithm {
+    public static final int NO_REFINEMENT = -1;
+    public static final int DEFAULT_TILE_SIZE = 32;
+
+    private final int bitMask = 0xff;
+
+    private final ImageAlgorithm grayscaleAlgorithm;
+    private final SobelEdgeDetection detector;
+    private final int level;
+    private final int refineThreshold;
+    private final int tileSize;
+    private final PyramidFilter filter;
+
+    public PyramidEdgeDetection(ImageAlgorithm grayscaleAlgorithm, int level) {
+        this(grayscaleAlgorithm, level, NO_REFINEMENT, DEFAULT_TILE_SIZE, PyramidFilter.GAUSSIAN);
+    }
+
+    /**
+     * @param grayscaleAlgorithm the grayscale algorithm applied before the Sobel operator
+     * @param level              the pyramid level edges are first detected on, 0 for full resolution;
+     *                           images with fewer levels use their last one
+     * @param refineThreshold    the coarse edge value from which a tile is refined, or {@link #NO_REFINEMENT}
+     * @param tileSize           the width and height of the tiles refined at full resolution
+     * @param filter             the filter the pyramid is built with
+     * @throws IllegalArgumentException if the grayscale algorithm or the filter is null, the level is negative,
+     *                                  the threshold is below {@link #NO_REFINEMENT} or the tile size is not positive
+     */
+    public PyramidEdgeDetection(ImageAlgorithm grayscaleAlgorithm, int level, int refineThreshold, int tileSize,
+                                PyramidFilter filter) {
+        if (level < 0) {
+            throw new IllegalArgumentException("level cannot be negative");
+        }
+        if (refineThreshold < NO_REFINEMENT) {
+            throw new IllegalArgumentException("refine threshold cannot be below " + NO_REFINEMENT);
+        }
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("tile size must be positive");
+        }
+        if (filter == null) {
+            throw new IllegalArgumentException("filter cannot be null");
+        }
+        this.detector = new SobelEdgeDetection(grayscaleAlgorithm);
+        this.grayscaleAlgorithm = grayscaleAlgorithm;
+        this.level = level;
+        this.refineThreshold = refineThreshold;
+        this.tileSize = tileSize;
+        this.filter = filter;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getRefineThreshold() {
+        return refineThreshold;
+    }
+
+    @Override
+    public BufferedImage process(BufferedImage image) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image must not be null");
+        }
+        return process(image, PixelPlane.createRgb(image.getWidth(), image.getHeight()).image());
+    }
+
+    @Override
+    public BufferedImage process(BufferedImage image, BufferedImage destination) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image must not be null");
+        }
+        return process(ImagePyramid.of(image, filter), destination);
+    }
+
+    /**
+     * Detects the edges of the base image of a pyramid, reusing the levels it already holds.
+     *
+     * @throws IllegalArgumentException if the pyramid is null
+     */
+    public BufferedImage process(ImagePyramid pyramid) {
+        if (pyramid == null) {
+            throw new IllegalArgumentException("Pyramid must not be null");
+        }
+        BufferedImage base = pyramid.level(0);
+        return process(pyramid, PixelPlane.createRgb(base.getWidth(), base.getHeight()).image());
+    }
+
+    /**
+     * Detects the edges of the base image of a pyramid into the destination.
+     *
+     * @throws IllegalArgumentException if the pyramid or the destination is null,
+     *                                  or the destination is not a TYPE_INT_RGB image of the size of the base image
+     */
+    public BufferedImage process(ImagePyramid pyramid, BufferedImage destination) {
+        if (pyramid == null) {
+            throw new IllegalArgumentException("Pyramid must not be null");
+        }
+        StageTimer timer = Instrumentation.start(getClass());
+        BufferedImage base = pyramid.level(0);
+        int width = base.getWidth();
+        int height = base.getHeight();
+        int[] target = PixelPlane.wrapRgb(destination, width, height).pixels();
+
+        int coarseLevel = Math.min(level, pyramid.levelCount() - 1);
+        if (coarseLevel == 0) {
+            detector.process(base, destination);
+            timer.stop((long) width * height);
+            return destination;
+        }
+
+        PixelPlane coarse = PixelPlane.of(detector.process(pyramid.level(coarseLevel)));
+        int[] edges = coarse.pixels();
+        for (int y = 0; y < height; y++) {
+            int coarseRow = (y >> coarseLevel) * coarse.width();
+            for (int x = 0; x < width; x++) {
+                target[y * width + x] = edges[coarseRow + (x >> coarseLevel)];
+            }
+        }
+
+        if (refineThreshold != NO_REFINEMENT) {
+            refine(base, target, coarse, coarseLevel, destination);
+        }
+        timer.stop((long) width * height);
+        return destination;
+    }
+
+    @Override
+    public String descriptor() {
+        return getClass().getName() + "(" + grayscaleAlgorithm.descriptor() + ", " + level + ", " + refineThreshold
+                + ", " + tileSize + ", " + filter + ")";
+    }
+
+    private void refine(BufferedImage base, int[] target, PixelPlane coarse, int coarseLevel,
+                        BufferedImage destination) {
+        int width = base.getWidth();
+        int height = base.getHeight();
+        if (detector.haloRows() < 0 || detector.haloColumns() < 0) {
+            // Without a bounded halo tiles cannot be detected on their own
+            detector.process(base, destination);
+            return;
+        }
+
+        int[] pixels = PixelPlane.of(base).pixels();
+        for (int tileY = 0; tileY < height; tileY += tileSize) {
+            for (int tileX = 0; tileX < width; tileX += tileSize) {
+                int tileWidth = Math.min(tileSize, width - tileX);
+                int tileHeight = Math.min(tileSize, height - tileY);
+                if (energy(coarse, coarseLevel, tileX, tileY, tileWidth, tileHeight) >= refineThreshold) {
+                    refineTile(pixels, width, height, target, tileX, tileY, tileWidth, tileHeight);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the strongest coarse edge among the coarse pixels covering a tile and their neighbours,
+     * since a coarse pixel just outside a tile can stand for an edge just inside it.
+     */
+    private int energy(PixelPlane coarse, int coarseLevel, int tileX, int tileY, int tileWidth, int tileHeight) {
+        int fromX = Math.max(0, (tileX >> coarseLevel) - 1);
+        int toX = Math.min(coarse.width() - 1, ((tileX + tileWidth - 1) >> coarseLevel) + 1);
+        int fromY = Math.max(0, (tileY >> coarseLevel) - 1);
+        int toY = Math.min(coarse.height() - 1, ((tileY + tileHeight - 1) >> coarseLevel) + 1);
+        int[] edges = coarse.pixels();
+
+        int energy = 0;
+        for (int y = fromY; y <= toY; y++) {
+            for (int x = fromX; x <= toX; x++) {
+                energy = Math.max(energy, edges[y * coarse.width() + x] & bitMask);
+            }
+        }
+        return energy;
+    }
+
+    /**
+     * Detects a tile at full resolution from the tile extended by the halo of the detector, clipped to the image.
+     */
+    private void refineTile(int[] pixels, int width, int height, int[] target,
+                            int tileX, int tileY, int tileWidth, int tileHeight) {
+        int fromX = Math.max(0, tileX - detector.haloColumns());
+        int toX = Math.min(width, tileX + tileWidth + detector.haloColumns());
+        int fromY = Math.max(0, tileY - detector.haloRows());
+        int toY = Math.min(height, tileY + tileHeight + detector.haloRows());
+        int regionWidth = toX - fromX;
+
+        ImagePool pool = ImagePool.shared();
+        BufferedImage region = pool.acquire(regionWidth, toY - fromY);
+        BufferedImage edges = pool.acquire(regionWidth, toY - fromY);
+        try {
+            int[] regionPixels = PixelPlane.of(region).pixels();
+            for (int y = fromY; y < toY; y++) {
+                System.arraycopy(pixels, y * width + fromX, regionPixels, (y - fromY) * regionWidth, regionWidth);
+            }
+            int[] edgePixels = PixelPlane.of(detector.process(region, edges)).pixels();
+            for (int y = tileY; y < tileY + tileHeight; y++) {
+                System.arraycopy(edgePixels, (y - fromY) * regionWidth + tileX - fromX,
+                        target, y * width + tileX, tileWidth);
+            }
+        } finally {
+            pool.release(edges);
+            pool.release(region);
+        }
+    }
+}
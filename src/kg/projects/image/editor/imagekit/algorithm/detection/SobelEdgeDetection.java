@@ -1,91 +1,44 @@
 package kg.projects.image.editor.imagekit.algorithm.detection;
 
 import kg.projects.image.editor.imagekit.algorithm.ImageAlgorithm;
-import kg.projects.image.editor.imagekit.algorithm.grayscale.GrayscaleAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.convolution.BorderMode;
+import kg.projects.image.editor.imagekit.algorithm.convolution.GradientOperator;
+import kg.projects.image.editor.imagekit.algorithm.kernel.GradientMagnitude;
+import kg.projects.image.editor.imagekit.algorithm.kernel.RowKernels;
+import kg.projects.image.editor.imagekit.algorithm.parallel.RowBandExecutor;
 
-import java.awt.image.BufferedImage;
-
-public class SobelEdgeDetection implements EdgeDetectionAlgorithm {
-    private final int maxValue = 255;
-    private final int redBit = 16;
-    private final int greenBit = 8;
-    private final int bitMask = 0xff;
-
-    ImageAlgorithm grayscaleAlgorithm;
+public class SobelEdgeDetection extends GradientEdgeDetection {
 
     public SobelEdgeDetection(ImageAlgorithm grayscaleAlgorithm) {
-        if (grayscaleAlgorithm == null) {
-            throw new IllegalArgumentException("grayscale algorithm cannot be null");
-        }
-        if (!(grayscaleAlgorithm instanceof GrayscaleAlgorithm)) {
-            throw new IllegalArgumentException("grayscale algorithm must be an instance of GrayscaleAlgorithm");
-        }
-        this.grayscaleAlgorithm = grayscaleAlgorithm;
+        this(grayscaleAlgorithm, RowBandExecutor.serial());
     }
 
-    @Override
-    public BufferedImage process(BufferedImage image) {
-        if (image == null) {
-            throw new IllegalArgumentException("Image must not be null");
-        }
-
-        BufferedImage grayImage = grayscaleAlgorithm.process(image);
-        int width = grayImage.getWidth();
-        int height = grayImage.getHeight();
-        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                int newPixel = computeNewPixel(grayImage, x, y);
-                result.setRGB(x, y, newPixel);
-            }
-        }
-        return result;
+    public SobelEdgeDetection(ImageAlgorithm grayscaleAlgorithm, GradientMagnitude magnitude) {
+        this(grayscaleAlgorithm, RowBandExecutor.serial(), RowKernels.preferred(), magnitude);
     }
 
-    private int computeNewPixel(BufferedImage image, int x, int y) {
-        int gx = calculateGx(image, x, y);
-        int gy = calculateGy(image, x, y);
-
-        double gTotal = Math.sqrt(Math.pow(gx, 2) + Math.pow(gy, 2));
-        int pixelValue = Math.min(maxValue, (int) Math.round(gTotal));
-
-        return (pixelValue << redBit) | (pixelValue << greenBit) | pixelValue;
+    public SobelEdgeDetection(ImageAlgorithm grayscaleAlgorithm, BorderMode borderMode) {
+        super(grayscaleAlgorithm, GradientOperator.SOBEL, borderMode, GradientMagnitude.EXACT);
     }
 
-    private int calculateGx(BufferedImage image, int x, int y) {
-        int sumGx = 0;
-
-        sumGx -= 2 * getSafePixel(image, x - 1, y);
-        sumGx += -1 * getSafePixel(image, x - 1, y + 1);
-        sumGx += -1 * getSafePixel(image, x - 1, y - 1);
-
-        sumGx += 2 * getSafePixel(image, x + 1, y);
-        sumGx += getSafePixel(image, x + 1, y + 1);  // <--- Check this line
-        sumGx += getSafePixel(image, x + 1, y - 1);  // <--- Check this line
-
-        return sumGx;
+    public SobelEdgeDetection(ImageAlgorithm grayscaleAlgorithm, RowBandExecutor executor) {
+        this(grayscaleAlgorithm, executor, RowKernels.preferred());
     }
 
-    private int calculateGy(BufferedImage image, int x, int y) {
-        int sumGy = 0;
-
-        sumGy += 2 * getSafePixel(image, x, y + 1);
-        sumGy += getSafePixel(image, x + 1, y + 1);
-        sumGy += getSafePixel(image, x - 1, y + 1);
-
-        sumGy -= 2 * getSafePixel(image, x, y - 1);
-        sumGy += -1 * getSafePixel(image, x + 1, y - 1);
-        sumGy += -1 * getSafePixel(image, x - 1, y - 1);
+    public SobelEdgeDetection(ImageAlgorithm grayscaleAlgorithm, RowBandExecutor executor, RowKernels kernels) {
+        this(grayscaleAlgorithm, executor, kernels, GradientMagnitude.EXACT);
+    }
 
-        return sumGy;
+    public SobelEdgeDetection(ImageAlgorithm grayscaleAlgorithm, RowBandExecutor executor, RowKernels kernels,
+                              GradientMagnitude magnitude) {
+        super(grayscaleAlgorithm, GradientOperator.SOBEL, BorderMode.ZERO, magnitude, executor, kernels);
     }
 
-    private int getSafePixel(BufferedImage image, int x, int y) {
-        if (x >= 0 && x < image.getWidth() && y >= 0 && y < image.getHeight()) {
-            return image.getRGB(x, y) & bitMask;
-        }
-        return 0;
+    @Override
+    public String descriptor() {
+        String magnitudeSuffix = getMagnitude() == GradientMagnitude.EXACT ? "" : ", " + getMagnitude();
+        String borderSuffix = getBorderMode() == BorderMode.ZERO ? "" : ", " + getBorderMode();
+        return getClass().getName() + "(" + grayscaleAlgorithm.descriptor() + magnitudeSuffix + borderSuffix + ")";
     }
 
     /*@Override
@@ -0,0 +1,69 @@
+package kg.projects.image.editor.imagekit.algorithm.grayscale;
+
+import kg.projects.image.editor.imagekit.algorithm.PixelAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.parallel.RowBandExecutor;
+import kg.projects.image.editor.imagekit.raster.GrayPlane;
+import kg.projects.image.editor.imagekit.raster.ImagePool;
+import kg.projects.image.editor.imagekit.raster.PixelPlane;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Runs a per-pixel grayscale algorithm into and out of {@link GrayPlane}s.
+ */
+final class GrayLevels {
+    private static final int bitMask = 0xff;
+
+    private GrayLevels() {
+    }
+
+    /**
+     * Converts the image row by row through one pooled row of packed pixels, keeping the level of each.
+     */
+    static void toGray(PixelAlgorithm algorithm, RowBandExecutor executor, BufferedImage image,
+                       GrayPlane destination) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] target = GrayPlane.checkDestination(destination, width, height).levels();
+        int[] source = PixelPlane.of(image).pixels();
+
+        ImagePool pool = ImagePool.shared();
+        executor.execute(width, height, (fromRow, toRow) -> {
+            int[] row = pool.acquireArray(width);
+            try {
+                for (int y = fromRow; y < toRow; y++) {
+                    algorithm.processRow(source, y * width, row, 0, width);
+                    for (int x = 0; x < width; x++) {
+                        target[y * width + x] = (byte) row[x];
+                    }
+                }
+            } finally {
+                pool.releaseArray(row);
+            }
+        });
+    }
+
+    /**
+     * Maps every level through a table of the algorithm's results for the 256 gray pixels.
+     */
+    static void grayToGray(PixelAlgorithm algorithm, RowBandExecutor executor, GrayPlane source,
+                           GrayPlane destination) {
+        if (source == null) {
+            throw new IllegalArgumentException("Source cannot be null");
+        }
+        int width = source.width();
+        int height = source.height();
+        byte[] target = GrayPlane.checkDestination(destination, width, height).levels();
+        byte[] levels = source.levels();
+
+        byte[] table = new byte[bitMask + 1];
+        for (int level = 0; level <= bitMask; level++) {
+            table[level] = (byte) algorithm.processPixel(PixelPlane.grayPixel(level));
+        }
+        executor.execute(width, height, (fromRow, toRow) -> {
+            for (int i = fromRow * width; i < toRow * width; i++) {
+                target[i] = table[levels[i] & bitMask];
+            }
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package kg.projects.image.editor.imagekit.algorithm.grayscale;
+
+/**
+ * Weights of the red, green and blue channels used to compute the gray value of a pixel.
+ */
+public enum LumaCoefficients {
+    /**
+     * ITU-R BT.601, the weights of standard definition video and JPEG.
+     */
+    BT601(0.299, 0.587, 0.114),
+    /**
+     * ITU-R BT.709, the weights of HD video and sRGB.
+     */
+    BT709(0.2126, 0.7152, 0.0722),
+    /**
+     * The weights used by {@link LuminosityGrayscale}.
+     */
+    LUMINOSITY(0.21, 0.72, 0.07);
+
+    private final double red;
+    private final double green;
+    private final double blue;
+
+    LumaCoefficients(double red, double green, double blue) {
+        this.red = red;
+        this.green = green;
+        this.blue = blue;
+    }
+
+    public double getRed() {
+        return red;
+    }
+
+    public double getGreen() {
+        return green;
+    }
+
+    public double getBlue() {
+        return blue;
+    }
+}
@@ -1,10 +1,18 @@
 package kg.projects.image.editor.imagekit.algorithm.grayscale;
 
+import kg.projects.image.editor.imagekit.algorithm.GrayPlaneAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.PixelAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.kernel.RowKernels;
+import kg.projects.image.editor.imagekit.algorithm.parallel.RowBandExecutor;
+import kg.projects.image.editor.imagekit.metrics.Instrumentation;
+import kg.projects.image.editor.imagekit.metrics.StageTimer;
+import kg.projects.image.editor.imagekit.raster.GrayPlane;
+import kg.projects.image.editor.imagekit.raster.PixelPlane;
+
 import java.awt.image.BufferedImage;
 
-public class LuminosityGrayscale implements  GrayscaleAlgorithm {
+public class LuminosityGrayscale implements  GrayscaleAlgorithm, PixelAlgorithm, GrayPlaneAlgorithm {
 
-    private final int emptyBit = 24;
     private final int redBit = 16;
     private final int greenBit = 8;
     private final int bitMask = 0xff;
@@ -13,32 +21,95 @@ public class LuminosityGrayscale implements  GrayscaleAlgorithm {
     private final double blueCoeff = 0.07;
     private final int maxValue = 255;
 
+    private final RowBandExecutor executor;
+    private final RowKernels kernels;
+
+    public LuminosityGrayscale() {
+        this(RowBandExecutor.serial());
+    }
+
+    public LuminosityGrayscale(RowBandExecutor executor) {
+        this(executor, RowKernels.preferred());
+    }
+
+    public LuminosityGrayscale(RowBandExecutor executor, RowKernels kernels) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+        if (kernels == null) {
+            throw new IllegalArgumentException("kernels cannot be null");
+        }
+        this.executor = executor;
+        this.kernels = kernels;
+    }
+
     @Override
     public BufferedImage process(BufferedImage image) {
         if (image == null) {
             throw new IllegalArgumentException("Image cannot be null");
         }
+        return process(image, PixelPlane.createRgb(image.getWidth(), image.getHeight()).image());
+    }
+
+    @Override
+    public BufferedImage process(BufferedImage image, BufferedImage destination) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
 
+        StageTimer timer = Instrumentation.start(getClass());
         int height = image.getHeight();
         int width = image.getWidth();
-        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] target = PixelPlane.wrapRgb(destination, width, height).pixels();
+        int[] source = PixelPlane.of(image).pixels();
 
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                int pixel = image.getRGB(x, y);
+        executor.execute(width, height, (fromRow, toRow) ->
+                processRow(source, fromRow * width, target, fromRow * width, (toRow - fromRow) * width));
+        timer.stop((long) width * height);
+        return destination;
+    }
 
-                int r =  (pixel >> redBit) & bitMask;
-                int g =  (pixel >> greenBit) & bitMask;
-                int b =  (pixel) & bitMask;
+    @Override
+    public void processToGray(BufferedImage image, GrayPlane destination) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
 
-                double luminosityVal = (redCoeff * r) + (greenCoeff * g) + (blueCoeff * b);
-                int grayVal = (int) Math.round(luminosityVal);
-                grayVal = Math.min(grayVal, maxValue);
+        StageTimer timer = Instrumentation.start(getClass());
+        GrayLevels.toGray(this, executor, image, destination);
+        timer.stop((long) image.getWidth() * image.getHeight());
+    }
 
-                int newPixel = (bitMask << emptyBit) | (grayVal << redBit) | (grayVal << greenBit) | grayVal;
-                result.setRGB(x, y, newPixel);
-            }
-        }
-        return result;
+    @Override
+    public void processGray(GrayPlane source, GrayPlane destination) {
+        StageTimer timer = Instrumentation.start(getClass());
+        GrayLevels.grayToGray(this, executor, source, destination);
+        timer.stop((long) source.width() * source.height());
+    }
+
+    @Override
+    public int processPixel(int pixel) {
+        return PixelPlane.grayPixel(toGray(pixel));
+    }
+
+    @Override
+    public void processRow(int[] source, int sourceOffset, int[] target, int targetOffset, int length) {
+        kernels.luminosityRow(source, sourceOffset, target, targetOffset, length);
+    }
+
+    /**
+     * Computes the luminosity gray value of a packed RGB pixel.
+     *
+     * @param pixel the pixel, with red, green and blue in its low 24 bits
+     * @return the gray value in the range [0, 255]
+     */
+    public int toGray(int pixel) {
+        int r = (pixel >> redBit) & bitMask;
+        int g = (pixel >> greenBit) & bitMask;
+        int b = (pixel) & bitMask;
+
+        double luminosityVal = (redCoeff * r) + (greenCoeff * g) + (blueCoeff * b);
+        int grayVal = (int) Math.round(luminosityVal);
+        return Math.min(grayVal, maxValue);
     }
 }
@@ -0,0 +1,58 @@
+package kg.projects.image.editor.imagekit.algorithm.kernel;
+
+/**
+ * How the horizontal and vertical gradients of an edge detector are combined into a gray value.
+ * All variants use integer arithmetic only and cap the result at 255.
+ */
+public enum GradientMagnitude {
+    /**
+     * The Euclidean norm {@code round(sqrt(gx * gx + gy * gy))}, read from a table of rounded square roots.
+     */
+    EXACT {
+        @Override
+        public int magnitude(int gx, int gy) {
+            int sumOfSquares = gx * gx + gy * gy;
+            return sumOfSquares < ROUNDED_ROOTS.length ? ROUNDED_ROOTS[sumOfSquares] & 0xff : MAX_VALUE;
+        }
+    },
+    /**
+     * The L1 norm {@code |gx| + |gy|}, which overestimates the Euclidean norm by at most a factor of sqrt(2).
+     */
+    L1 {
+        @Override
+        public int magnitude(int gx, int gy) {
+            return Math.min(Math.abs(gx) + Math.abs(gy), MAX_VALUE);
+        }
+    },
+    /**
+     * The maximum norm {@code max(|gx|, |gy|)}, which underestimates the Euclidean norm by at most a factor of sqrt(2).
+     */
+    MAX {
+        @Override
+        public int magnitude(int gx, int gy) {
+            return Math.min(Math.max(Math.abs(gx), Math.abs(gy)), MAX_VALUE);
+        }
+    };
+
+    private static final int MAX_VALUE = 255;
+    // Every sum of squares from 254.5^2 up rounds to at least 255, so the table stops there
+    private static final byte[] ROUNDED_ROOTS = createRoundedRoots();
+
+    /**
+     * Combines the gradients.
+     *
+     * @param gx the horizontal gradient
+     * @param gy the vertical gradient
+     * @return the magnitude in the range [0, 255]
+     */
+    public abstract int magnitude(int gx, int gy);
+
+    private static byte[] createRoundedRoots() {
+        int size = (int) Math.ceil((MAX_VALUE - 0.5) * (MAX_VALUE - 0.5));
+        byte[] roots = new byte[size];
+        for (int i = 0; i < size; i++) {
+            roots[i] = (byte) Math.round(Math.sqrt(i));
+        }
+        return roots;
+    }
+}
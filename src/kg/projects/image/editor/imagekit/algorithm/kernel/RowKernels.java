@@ -0,0 +1,66 @@
+package kg.projects.image.editor.imagekit.algorithm.kernel;
+
+/**
+ * The inner loops of the built-in algorithms, applied to one row of pixels at a time.
+ * Two implementations exist: a scalar one that runs everywhere and one built on the incubating
+ * Java Vector API that processes several pixels per instruction. Both produce identical results.
+ * The vector implementation is used when the {@code jdk.incubator.vector} module is resolved
+ * (for example with {@code --add-modules jdk.incubator.vector}) and the {@value #SIMD_PROPERTY}
+ * system property is not {@code false}.
+ */
+public interface RowKernels {
+
+    /**
+     * The system property that disables the vector kernels when set to {@code false}.
+     */
+    String SIMD_PROPERTY = "kg.projects.imagekit.simd";
+
+    /**
+     * Computes the luminosity {@code round(0.21 * r + 0.72 * g + 0.07 * b)} of a run of packed RGB pixels
+     * and writes it as gray TYPE_INT_RGB pixels.
+     *
+     * @param source       the packed RGB pixels
+     * @param sourceOffset the index of the first source pixel
+     * @param target       the array to write the gray pixels to
+     * @param targetOffset the index of the first target pixel
+     * @param length       the number of pixels
+     */
+    void luminosityRow(int[] source, int sourceOffset, int[] target, int targetOffset, int length);
+
+    /**
+     * Applies the Sobel operator to one row and writes the gradient magnitude as gray TYPE_INT_RGB pixels.
+     * The three gray rows hold {@code width + 2} values: the row padded with one value on each side.
+     *
+     * @param above        the gray row above, padded
+     * @param current      the gray row being processed, padded
+     * @param below        the gray row below, padded
+     * @param target       the array to write the result to
+     * @param targetOffset the index of the first pixel of the row in the target
+     * @param width        the width of the row
+     * @param magnitude    how the gradients are combined
+     */
+    void sobelRow(int[] above, int[] current, int[] below, int[] target, int targetOffset, int width,
+                  GradientMagnitude magnitude);
+
+    /**
+     * Returns the scalar kernels.
+     */
+    static RowKernels scalar() {
+        return ScalarRowKernels.INSTANCE;
+    }
+
+    /**
+     * Returns the vector kernels, or null if the Vector API is not available in this JVM.
+     */
+    static RowKernels vector() {
+        return VectorSupport.KERNELS;
+    }
+
+    /**
+     * Returns the vector kernels if they are available and enabled, otherwise the scalar ones.
+     */
+    static RowKernels preferred() {
+        RowKernels vector = vector();
+        return vector != null && !"false".equalsIgnoreCase(System.getProperty(SIMD_PROPERTY)) ? vector : scalar();
+    }
+}
@@ -0,0 +1,49 @@
+package kg.projects.image.editor.imagekit.algorithm.kernel;
+
+final class ScalarRowKernels implements RowKernels {
+    static final ScalarRowKernels INSTANCE = new ScalarRowKernels();
+
+    private final int maxValue = 255;
+    private final int redBit = 16;
+    private final int greenBit = 8;
+    private final int bitMask = 0xff;
+    private final double redCoeff = 0.21;
+    private final double greenCoeff = 0.72;
+    private final double blueCoeff = 0.07;
+
+    private ScalarRowKernels() {
+    }
+
+    @Override
+    public void luminosityRow(int[] source, int sourceOffset, int[] target, int targetOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            int pixel = source[sourceOffset + i];
+            int r = (pixel >> redBit) & bitMask;
+            int g = (pixel >> greenBit) & bitMask;
+            int b = (pixel) & bitMask;
+
+            double luminosityVal = (redCoeff * r) + (greenCoeff * g) + (blueCoeff * b);
+            int grayVal = Math.min((int) Math.round(luminosityVal), maxValue);
+            target[targetOffset + i] = (grayVal << redBit) | (grayVal << greenBit) | grayVal;
+        }
+    }
+
+    @Override
+    public void sobelRow(int[] above, int[] current, int[] below, int[] target, int targetOffset, int width,
+                         GradientMagnitude magnitude) {
+        sobelRange(above, current, below, target, targetOffset, 1, width, magnitude);
+    }
+
+    void sobelRange(int[] above, int[] current, int[] below, int[] target, int targetOffset, int fromX, int width,
+                    GradientMagnitude magnitude) {
+        for (int x = fromX; x <= width; x++) {
+            int gx = (above[x + 1] + 2 * current[x + 1] + below[x + 1])
+                    - (above[x - 1] + 2 * current[x - 1] + below[x - 1]);
+            int gy = (below[x - 1] + 2 * below[x] + below[x + 1])
+                    - (above[x - 1] + 2 * above[x] + above[x + 1]);
+
+            int pixelValue = magnitude.magnitude(gx, gy);
+            target[targetOffset + x - 1] = (pixelValue << redBit) | (pixelValue << greenBit) | pixelValue;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package kg.projects.image.editor.imagekit.algorithm.kernel;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API versions of the scalar kernels. Both stay in int and float lanes of a single shape,
+ * since converting to wider double lanes costs more than the vectorization gains, and both give the
+ * same results as the scalar kernels:
+ * <ul>
+ *     <li>The luminosity {@code round(0.21 * r + 0.72 * g + 0.07 * b)} equals {@code (21 * r + 72 * g + 7 * b + 50) / 100}
+ *     except when the exact sum ends in one half, where the double rounding error decides; those rare lanes
+ *     are recomputed with the scalar kernel.</li>
+ *     <li>For {@link GradientMagnitude#EXACT} the squared gradient is an integer below 2^24, so it is exact
+ *     as a float, and its float square root is far enough from any k + 0.5 to round like the exact one.
+ *     The lane-wise square root is used instead of the table of {@link GradientMagnitude}, which would need
+ *     a gather through an index array for every vector.</li>
+ * </ul>
+ * Only loaded through {@link VectorSupport}.
+ */
+final class VectorRowKernels implements RowKernels {
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+    private static final int maxValue = 255;
+    private static final float ROUNDING_BIAS = 0x1.0p23f;
+    private static final int ROUNDING_BIAS_BITS = Float.floatToRawIntBits(ROUNDING_BIAS);
+    private static final int redBit = 16;
+    private static final int greenBit = 8;
+    private static final int bitMask = 0xff;
+
+    private static final int redWeight = 21;
+    private static final int greenWeight = 72;
+    private static final int blueWeight = 7;
+    private static final int weightTotal = 100;
+    // (x * reciprocal) >>> reciprocalShift equals x / 100 for every x up to 255 * 100 + 50
+    private static final int reciprocal = 5243;
+    private static final int reciprocalShift = 19;
+
+    @Override
+    public void luminosityRow(int[] source, int sourceOffset, int[] target, int targetOffset, int length) {
+        int i = 0;
+        for (int upper = INTS.loopBound(length); i < upper; i += INTS.length()) {
+            IntVector pixel = IntVector.fromArray(INTS, source, sourceOffset + i);
+            IntVector r = pixel.lanewise(VectorOperators.LSHR, redBit).and(bitMask);
+            IntVector g = pixel.lanewise(VectorOperators.LSHR, greenBit).and(bitMask);
+            IntVector b = pixel.and(bitMask);
+
+            IntVector rounded = r.mul(redWeight).add(g.mul(greenWeight)).add(b.mul(blueWeight)).add(weightTotal / 2);
+            IntVector gray = rounded.mul(reciprocal).lanewise(VectorOperators.LSHR, reciprocalShift);
+            toGrayPixels(gray).intoArray(target, targetOffset + i);
+
+            VectorMask<Integer> ties = rounded.sub(gray.mul(weightTotal)).compare(VectorOperators.EQ, 0);
+            if (ties.anyTrue()) {
+                for (int lane = ties.firstTrue(); lane < INTS.length(); lane++) {
+                    if (ties.laneIsSet(lane)) {
+                        ScalarRowKernels.INSTANCE.luminosityRow(source, sourceOffset + i + lane,
+                                target, targetOffset + i + lane, 1);
+                    }
+                }
+            }
+        }
+        ScalarRowKernels.INSTANCE.luminosityRow(source, sourceOffset + i, target, targetOffset + i, length - i);
+    }
+
+    @Override
+    public void sobelRow(int[] above, int[] current, int[] below, int[] target, int targetOffset, int width,
+                         GradientMagnitude magnitude) {
+        // One method per magnitude keeps each loop small enough to be fully inlined, so no vector is boxed
+        int x = switch (magnitude) {
+            case EXACT -> sobelExact(above, current, below, target, targetOffset, width);
+            case L1 -> sobelL1(above, current, below, target, targetOffset, width);
+            case MAX -> sobelMax(above, current, below, target, targetOffset, width);
+        };
+        ScalarRowKernels.INSTANCE.sobelRange(above, current, below, target, targetOffset, x, width, magnitude);
+    }
+
+    private static int sobelExact(int[] above, int[] current, int[] below, int[] target, int targetOffset,
+                                  int width) {
+        int x = 1;
+        for (int upper = INTS.loopBound(width) + 1; x < upper; x += INTS.length()) {
+            IntVector gx = gradientX(above, current, below, x);
+            IntVector gy = gradientY(above, below, x);
+            storeGray(roundedSquareRoot(gx.mul(gx).add(gy.mul(gy))), target, targetOffset + x - 1);
+        }
+        return x;
+    }
+
+    private static int sobelL1(int[] above, int[] current, int[] below, int[] target, int targetOffset, int width) {
+        int x = 1;
+        for (int upper = INTS.loopBound(width) + 1; x < upper; x += INTS.length()) {
+            IntVector gx = gradientX(above, current, below, x);
+            IntVector gy = gradientY(above, below, x);
+            storeGray(gx.abs().add(gy.abs()), target, targetOffset + x - 1);
+        }
+        return x;
+    }
+
+    private static int sobelMax(int[] above, int[] current, int[] below, int[] target, int targetOffset, int width) {
+        int x = 1;
+        for (int upper = INTS.loopBound(width) + 1; x < upper; x += INTS.length()) {
+            IntVector gx = gradientX(above, current, below, x);
+            IntVector gy = gradientY(above, below, x);
+            storeGray(gx.abs().max(gy.abs()), target, targetOffset + x - 1);
+        }
+        return x;
+    }
+
+    private static IntVector gradientX(int[] above, int[] current, int[] below, int x) {
+        IntVector left = IntVector.fromArray(INTS, above, x - 1)
+                .add(IntVector.fromArray(INTS, current, x - 1).mul(2))
+                .add(IntVector.fromArray(INTS, below, x - 1));
+        IntVector right = IntVector.fromArray(INTS, above, x + 1)
+                .add(IntVector.fromArray(INTS, current, x + 1).mul(2))
+                .add(IntVector.fromArray(INTS, below, x + 1));
+        return right.sub(left);
+    }
+
+    private static IntVector gradientY(int[] above, int[] below, int x) {
+        IntVector top = IntVector.fromArray(INTS, above, x - 1)
+                .add(IntVector.fromArray(INTS, above, x).mul(2))
+                .add(IntVector.fromArray(INTS, above, x + 1));
+        IntVector bottom = IntVector.fromArray(INTS, below, x - 1)
+                .add(IntVector.fromArray(INTS, below, x).mul(2))
+                .add(IntVector.fromArray(INTS, below, x + 1));
+        return bottom.sub(top);
+    }
+
+    private static void storeGray(IntVector magnitude, int[] target, int offset) {
+        toGrayPixels(magnitude.min(maxValue)).intoArray(target, offset);
+    }
+
+    /**
+     * Rounds the roots by adding 2^23, which leaves the nearest integer in the low mantissa bits.
+     * The F2I conversion would do the same, but it is not intrinsified on every JDK and boxes the vectors.
+     */
+    private static IntVector roundedSquareRoot(IntVector values) {
+        FloatVector root = ((FloatVector) values.convert(VectorOperators.I2F, 0)).lanewise(VectorOperators.SQRT);
+        return root.add(ROUNDING_BIAS).reinterpretAsInts().sub(ROUNDING_BIAS_BITS);
+    }
+
+    private static IntVector toGrayPixels(IntVector gray) {
+        return gray.lanewise(VectorOperators.LSHL, redBit).or(gray.lanewise(VectorOperators.LSHL, greenBit)).or(gray);
+    }
+}
@@ -0,0 +1,26 @@
+package kg.projects.image.editor.imagekit.algorithm.kernel;
+
+/**
+ * Loads the vector kernels reflectively, so that nothing links against the incubating
+ * Vector API unless its module is present.
+ */
+final class VectorSupport {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNELS = "kg.projects.image.editor.imagekit.algorithm.kernel.VectorRowKernels";
+
+    static final RowKernels KERNELS = load();
+
+    private VectorSupport() {
+    }
+
+    private static RowKernels load() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return null;
+        }
+        try {
+            return (RowKernels) Class.forName(VECTOR_KERNELS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
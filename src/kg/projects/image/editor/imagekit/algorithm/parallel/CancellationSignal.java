@@ -0,0 +1,69 @@
+package kg.projects.image.editor.imagekit.algorithm.parallel;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.Supplier;
+
+/**
+ * A flag that stops image work at the next band of rows once it is set.
+ * While a task runs under {@link #runWith(CancellationSignal, Supplier)}, every {@link RowBandExecutor}
+ * called from its thread checks the signal before each band, and throws a {@link CancellationException}
+ * instead of starting the band once the signal is cancelled. Bands already running finish,
+ * so the rows written so far are complete but the rest of the result is not.
+ */
+public final class CancellationSignal {
+    private static final ThreadLocal<CancellationSignal> CURRENT = new ThreadLocal<>();
+
+    private volatile boolean cancelled;
+
+    /**
+     * Runs a task on the calling thread with this signal checked by the row band executors it uses.
+     *
+     * @return the result of the task
+     * @throws IllegalArgumentException if the signal or the task is null
+     * @throws CancellationException    if the signal is cancelled before or while the task runs
+     */
+    public static <T> T runWith(CancellationSignal signal, Supplier<T> task) {
+        if (signal == null) {
+            throw new IllegalArgumentException("Signal cannot be null");
+        }
+        if (task == null) {
+            throw new IllegalArgumentException("Task cannot be null");
+        }
+
+        CancellationSignal previous = CURRENT.get();
+        CURRENT.set(signal);
+        try {
+            signal.throwIfCancelled();
+            return task.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Returns the signal the calling thread runs under, or null if there is none.
+     */
+    static CancellationSignal current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Cancels the work running under this signal. Cancelling is permanent.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @throws CancellationException if the signal is cancelled
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Image work was cancelled");
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package kg.projects.image.editor.imagekit.algorithm.parallel;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits the rows of an image into horizontal bands and runs a {@link RowKernel} over them,
+ * either on the calling thread or on a {@link ForkJoinPool}.
+ * Kernels must only write to the rows they are given, which makes the result
+ * independent of how the image was split.
+ * Under a {@link CancellationSignal} the rows are always split into bands, and the signal is checked
+ * before each band is started.
+ * <p>
+ * An executor created by {@link #parallel(int)} owns its pool and shuts it down when closed;
+ * closing any other executor has no effect.
+ */
+public final class RowBandExecutor implements AutoCloseable {
+    private static final int MIN_BAND_PIXELS = 1 << 16;
+    private static final int BANDS_PER_THREAD = 4;
+    private static final RowBandExecutor SERIAL = new RowBandExecutor(null, false);
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+
+    private RowBandExecutor(ForkJoinPool pool, boolean ownsPool) {
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+    }
+
+    /**
+     * Returns an executor that processes all rows on the calling thread.
+     */
+    public static RowBandExecutor serial() {
+        return SERIAL;
+    }
+
+    /**
+     * Returns an executor backed by the common fork/join pool.
+     */
+    public static RowBandExecutor common() {
+        return new RowBandExecutor(ForkJoinPool.commonPool(), false);
+    }
+
+    /**
+     * Returns an executor backed by a dedicated fork/join pool with the given parallelism.
+     * The pool is shut down by {@link #close()}.
+     *
+     * @param parallelism the number of worker threads
+     * @throws IllegalArgumentException if the parallelism is not positive
+     */
+    public static RowBandExecutor parallel(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        if (parallelism == 1) {
+            return SERIAL;
+        }
+        return new RowBandExecutor(new ForkJoinPool(parallelism), true);
+    }
+
+    /**
+     * Returns an executor backed by the given fork/join pool, which stays owned by the caller.
+     *
+     * @throws IllegalArgumentException if the pool is null
+     */
+    public static RowBandExecutor of(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool cannot be null");
+        }
+        return new RowBandExecutor(pool, false);
+    }
+
+    /**
+     * Returns the number of threads rows are spread across.
+     */
+    public int parallelism() {
+        return pool == null ? 1 : pool.getParallelism();
+    }
+
+    /**
+     * Runs the kernel over all rows of an image and waits for it to finish.
+     *
+     * @param width  the width of the image, used to size the bands
+     * @param height the number of rows
+     * @param kernel the kernel to run
+     * @throws IllegalArgumentException if the kernel is null
+     * @throws java.util.concurrent.CancellationException if the {@link CancellationSignal} of the calling
+     *                                                    thread is cancelled before the last band starts
+     */
+    public void execute(int width, int height, RowKernel kernel) {
+        if (kernel == null) {
+            throw new IllegalArgumentException("Kernel cannot be null");
+        }
+
+        CancellationSignal signal = CancellationSignal.current();
+        int bandRows = bandRows(width, height);
+        if (signal != null && (pool == null || bandRows >= height)) {
+            for (int fromRow = 0; fromRow < height; fromRow += bandRows) {
+                signal.throwIfCancelled();
+                kernel.processRows(fromRow, Math.min(height, fromRow + bandRows));
+            }
+        } else if (pool == null || bandRows >= height) {
+            kernel.processRows(0, height);
+        } else {
+            pool.invoke(new BandTask(kernel, 0, height, bandRows, signal));
+        }
+    }
+
+    /**
+     * Shuts down the pool created by {@link #parallel(int)}; bands already running finish.
+     */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    private int bandRows(int width, int height) {
+        int minRows = Math.max(1, MIN_BAND_PIXELS / Math.max(1, width));
+        int bands = parallelism() * BANDS_PER_THREAD;
+        return Math.max(minRows, (height + bands - 1) / bands);
+    }
+
+    private static final class BandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RowKernel kernel;
+        private final int fromRow;
+        private final int toRow;
+        private final int bandRows;
+        private final CancellationSignal signal;
+
+        private BandTask(RowKernel kernel, int fromRow, int toRow, int bandRows, CancellationSignal signal) {
+            this.kernel = kernel;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.bandRows = bandRows;
+            this.signal = signal;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= bandRows) {
+                if (signal != null) {
+                    signal.throwIfCancelled();
+                }
+                kernel.processRows(fromRow, toRow);
+                return;
+            }
+            int middle = (fromRow + toRow) >>> 1;
+            invokeAll(new BandTask(kernel, fromRow, middle, bandRows, signal),
+                    new BandTask(kernel, middle, toRow, bandRows, signal));
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package kg.projects.image.editor.imagekit.algorithm.parallel;
+
+/**
+ * A unit of image work that can be applied independently to any band of rows.
+ */
+@FunctionalInterface
+public interface RowKernel {
+
+    /**
+     * Processes the rows in the given range.
+     *
+     * @param fromRow the first row to process, inclusive
+     * @param toRow   the last row to process, exclusive
+     */
+    void processRows(int fromRow, int toRow);
+}
@@ -0,0 +1,144 @@
+package kg.projects.image.editor.imagekit.algorithm.pyramid;
+
+import kg.projects.image.editor.imagekit.raster.PixelPlane;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sequence of TYPE_INT_RGB images, each half the width and height of the previous one, rounded up.
+ * Level 0 is the base image and the last level is one pixel wide or high.
+ * Levels are computed on first use and kept, so algorithms given the same pyramid share them;
+ * the base image must not be modified while the pyramid is in use.
+ * The pyramid is thread-safe.
+ */
+public final class ImagePyramid {
+    private static final int RED_BLUE = 0xff00ff;
+    private static final int GREEN = 0xff00;
+
+    private final PyramidFilter filter;
+    private final int levelCount;
+    private final List<BufferedImage> levels = new ArrayList<>();
+
+    private ImagePyramid(BufferedImage base, PyramidFilter filter) {
+        this.filter = filter;
+        this.levels.add(base);
+
+        int count = 1;
+        for (int width = base.getWidth(), height = base.getHeight(); width > 1 && height > 1; count++) {
+            width = (width + 1) / 2;
+            height = (height + 1) / 2;
+        }
+        this.levelCount = count;
+    }
+
+    /**
+     * Creates a pyramid over an image. A base image that is not TYPE_INT_RGB is converted once.
+     *
+     * @throws IllegalArgumentException if the image or the filter is null
+     */
+    public static ImagePyramid of(BufferedImage image, PyramidFilter filter) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
+        if (filter == null) {
+            throw new IllegalArgumentException("Filter cannot be null");
+        }
+        return new ImagePyramid(PixelPlane.toRgbImage(image), filter);
+    }
+
+    public PyramidFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Returns the number of levels, including the base image.
+     */
+    public int levelCount() {
+        return levelCount;
+    }
+
+    /**
+     * Returns a level of the pyramid, computing it and the levels above it if needed.
+     *
+     * @param level the level, 0 for the base image
+     * @throws IllegalArgumentException if the level is negative or not less than {@link #levelCount()}
+     */
+    public synchronized BufferedImage level(int level) {
+        if (level < 0 || level >= levelCount) {
+            throw new IllegalArgumentException("Level must be between 0 and " + (levelCount - 1));
+        }
+        while (levels.size() <= level) {
+            levels.add(halve(levels.get(levels.size() - 1)));
+        }
+        return levels.get(level);
+    }
+
+    /**
+     * Halves an image with the filter. Red and blue are summed together in the two halves of one int
+     * and green on its own, which is exact since no weighted sum exceeds 16 bits.
+     */
+    private BufferedImage halve(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] source = PixelPlane.of(image).pixels();
+        PixelPlane result = PixelPlane.createRgb((width + 1) / 2, (height + 1) / 2);
+        int[] target = result.pixels();
+
+        for (int y = 0; y < result.height(); y++) {
+            int offset = y * result.width();
+            int row = 2 * y * width;
+            int below = Math.min(2 * y + 1, height - 1) * width;
+            if (filter == PyramidFilter.BOX) {
+                for (int x = 0; x < result.width(); x++) {
+                    int left = 2 * x;
+                    int right = Math.min(left + 1, width - 1);
+                    int a = source[row + left];
+                    int b = source[row + right];
+                    int c = source[below + left];
+                    int d = source[below + right];
+                    target[offset + x] = round(redBlue(a) + redBlue(b) + redBlue(c) + redBlue(d),
+                            green(a) + green(b) + green(c) + green(d), 2);
+                }
+            } else {
+                int above = Math.max(2 * y - 1, 0) * width;
+                for (int x = 0; x < result.width(); x++) {
+                    int center = 2 * x;
+                    int left = Math.max(center - 1, 0);
+                    int right = Math.min(center + 1, width - 1);
+                    int redBlue = redBlue(source[above + left]) + 2 * redBlue(source[above + center])
+                            + redBlue(source[above + right])
+                            + 2 * redBlue(source[row + left]) + 4 * redBlue(source[row + center])
+                            + 2 * redBlue(source[row + right])
+                            + redBlue(source[below + left]) + 2 * redBlue(source[below + center])
+                            + redBlue(source[below + right]);
+                    int green = green(source[above + left]) + 2 * green(source[above + center])
+                            + green(source[above + right])
+                            + 2 * green(source[row + left]) + 4 * green(source[row + center])
+                            + 2 * green(source[row + right])
+                            + green(source[below + left]) + 2 * green(source[below + center])
+                            + green(source[below + right]);
+                    target[offset + x] = round(redBlue, green, 4);
+                }
+            }
+        }
+        return result.image();
+    }
+
+    private static int redBlue(int pixel) {
+        return pixel & RED_BLUE;
+    }
+
+    private static int green(int pixel) {
+        return pixel & GREEN;
+    }
+
+    /**
+     * Divides the channel sums by {@code 2^shift}, rounding to nearest, and packs them into a pixel.
+     */
+    private static int round(int redBlue, int green, int shift) {
+        int half = 1 << (shift - 1);
+        return ((redBlue + (half << 16 | half)) >> shift) & RED_BLUE | ((green + (half << 8)) >> shift) & GREEN;
+    }
+}
@@ -0,0 +1,18 @@
+package kg.projects.image.editor.imagekit.algorithm.pyramid;
+
+/**
+ * The low-pass filter applied to each channel when an {@link ImagePyramid} level is halved.
+ * Samples beyond the edge of the image repeat the edge pixel, and every weighted sum is rounded to nearest.
+ */
+public enum PyramidFilter {
+    /**
+     * Averages each 2x2 block of pixels. The cheapest filter, but it aliases fine detail.
+     */
+    BOX,
+
+    /**
+     * Weights the 3x3 neighbourhood centred on each even pixel by the binomial {@code [1 2 1]} in both
+     * directions, which approximates a Gaussian and suppresses aliasing.
+     */
+    GAUSSIAN
+}
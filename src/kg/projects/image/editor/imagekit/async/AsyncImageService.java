@@ -0,0 +1,262 @@
+package kg.projects.image.editor.imagekit.async;
+
+import kg.projects.image.editor.imagekit.algorithm.ImageAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.parallel.CancellationSignal;
+import kg.projects.image.editor.imagekit.algorithm.parallel.RowBandExecutor;
+import kg.projects.image.editor.imagekit.filesystem.FileSystemImageManager;
+import kg.projects.image.editor.imagekit.filesystem.LoadOptions;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads, processes and saves images without blocking the caller, on top of a {@link FileSystemImageManager}.
+ * Loading and saving run on an I/O executor and processing on a CPU executor, so a request handler can
+ * compose load, filter and save as futures without tying up its own threads. By default I/O runs on a shared
+ * cached pool of daemon threads, which grows with the number of files waiting on the disk, and processing on
+ * the common fork/join pool, which is bounded by the number of processors.
+ * <p>
+ * Cancelling a returned future stops its work at a band of rows: processing runs under a
+ * {@link CancellationSignal}, so algorithms built on {@link RowBandExecutor} do not start another band.
+ * Loading and saving are not interrupted once the file is opened, but do not start after cancellation.
+ */
+public final class AsyncImageService {
+    private final FileSystemImageManager imageManager;
+    private final Executor ioExecutor;
+    private final Executor cpuExecutor;
+
+    private AsyncImageService(Builder builder) {
+        this.imageManager = builder.imageManager;
+        this.ioExecutor = builder.ioExecutor;
+        this.cpuExecutor = builder.cpuExecutor;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the manager is null
+     */
+    public static Builder builder(FileSystemImageManager imageManager) {
+        if (imageManager == null) {
+            throw new IllegalArgumentException("Image manager cannot be null");
+        }
+        return new Builder(imageManager);
+    }
+
+    /**
+     * Loads an image on the I/O executor.
+     *
+     * @return a future of the loaded image, failing with the {@link IOException} of the manager
+     * @throws IllegalArgumentException if the file is null
+     */
+    public CompletableFuture<BufferedImage> loadImageAsync(File imageFile) {
+        return loadImageAsync(imageFile, LoadOptions.defaults());
+    }
+
+    /**
+     * Loads an image with the given options on the I/O executor.
+     *
+     * @return a future of the loaded image, failing with the {@link IOException} of the manager
+     * @throws IllegalArgumentException if the file or the options are null
+     */
+    public CompletableFuture<BufferedImage> loadImageAsync(File imageFile, LoadOptions options) {
+        if (imageFile == null) {
+            throw new IllegalArgumentException("Image file cannot be null");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Options cannot be null");
+        }
+        return submit(ioExecutor, new CancellationSignal(), () -> imageManager.loadImage(imageFile, options));
+    }
+
+    /**
+     * Applies an algorithm to an image on the CPU executor.
+     *
+     * @return a future of the processed image; cancelling it stops the algorithm at the next band of rows
+     * @throws IllegalArgumentException if the algorithm or the image is null
+     */
+    public CompletableFuture<BufferedImage> processAsync(ImageAlgorithm algorithm, BufferedImage image) {
+        if (algorithm == null) {
+            throw new IllegalArgumentException("Algorithm cannot be null");
+        }
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
+        return submit(cpuExecutor, new CancellationSignal(), () -> algorithm.process(image));
+    }
+
+    /**
+     * Saves an image on the I/O executor.
+     *
+     * @return a future completed once the file is written, failing with the {@link IOException} of the manager
+     * @throws IllegalArgumentException if the image or the file is null
+     */
+    public CompletableFuture<Void> saveImageAsync(BufferedImage image, File imageFile) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
+        if (imageFile == null) {
+            throw new IllegalArgumentException("Image file cannot be null");
+        }
+        return submit(ioExecutor, new CancellationSignal(), () -> {
+            imageManager.saveImage(image, imageFile);
+            return null;
+        });
+    }
+
+    /**
+     * Loads an image, applies an algorithm to it and saves the result, each step on its executor.
+     * Cancelling the returned future stops whichever step is running and skips the rest.
+     *
+     * @return a future completed once the result is written
+     * @throws IllegalArgumentException if a file or the algorithm is null
+     */
+    public CompletableFuture<Void> transformAsync(File input, ImageAlgorithm algorithm, File output) {
+        if (input == null || output == null) {
+            throw new IllegalArgumentException("Files cannot be null");
+        }
+        if (algorithm == null) {
+            throw new IllegalArgumentException("Algorithm cannot be null");
+        }
+
+        CancellationSignal signal = new CancellationSignal();
+        CompletableFuture<Void> result = cancelling(new CompletableFuture<>(), signal);
+        submit(ioExecutor, signal, () -> imageManager.loadImage(input))
+                .thenCompose(image -> submit(cpuExecutor, signal, () -> algorithm.process(image)))
+                .thenCompose(processed -> submit(ioExecutor, signal, () -> {
+                    imageManager.saveImage(processed, output);
+                    return (Void) null;
+                }))
+                .whenComplete((ignored, error) -> {
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    if (cause == null) {
+                        result.complete(null);
+                    } else if (cause instanceof CancellationException) {
+                        result.cancel(false);
+                    } else {
+                        result.completeExceptionally(cause);
+                    }
+                });
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface Task<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * Runs a task under the signal on the executor. The future is cancelled when the signal stops the task,
+     * and cancelling the future cancels the signal.
+     */
+    private static <T> CompletableFuture<T> submit(Executor executor, CancellationSignal signal, Task<T> task) {
+        CompletableFuture<T> future = cancelling(new CompletableFuture<>(), signal);
+        try {
+            executor.execute(() -> run(future, signal, task));
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static <T> void run(CompletableFuture<T> future, CancellationSignal signal, Task<T> task) {
+        if (future.isDone()) {
+            return;
+        }
+        try {
+            future.complete(CancellationSignal.runWith(signal, () -> {
+                try {
+                    return task.call();
+                } catch (IOException e) {
+                    throw new TaskFailure(e);
+                }
+            }));
+        } catch (CancellationException e) {
+            future.cancel(false);
+        } catch (TaskFailure e) {
+            future.completeExceptionally(e.getCause());
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private static <T> CompletableFuture<T> cancelling(CompletableFuture<T> future, CancellationSignal signal) {
+        future.whenComplete((ignored, error) -> {
+            if (future.isCancelled()) {
+                signal.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Carries a checked exception of a task through {@link CancellationSignal#runWith}.
+     */
+    private static final class TaskFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private TaskFailure(IOException cause) {
+            super(cause);
+        }
+    }
+
+    private static final class DefaultIoExecutor {
+        private static final AtomicInteger THREADS = new AtomicInteger();
+        private static final ExecutorService INSTANCE = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "imagekit-io-" + THREADS.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static final class Builder {
+        private final FileSystemImageManager imageManager;
+        private Executor ioExecutor;
+        private Executor cpuExecutor = ForkJoinPool.commonPool();
+
+        private Builder(FileSystemImageManager imageManager) {
+            this.imageManager = imageManager;
+        }
+
+        /**
+         * Sets the executor loading and saving run on. Defaults to a shared cached pool of daemon threads.
+         *
+         * @throws IllegalArgumentException if the executor is null
+         */
+        public Builder ioExecutor(Executor ioExecutor) {
+            if (ioExecutor == null) {
+                throw new IllegalArgumentException("I/O executor cannot be null");
+            }
+            this.ioExecutor = ioExecutor;
+            return this;
+        }
+
+        /**
+         * Sets the executor algorithms run on. Defaults to the common fork/join pool.
+         *
+         * @throws IllegalArgumentException if the executor is null
+         */
+        public Builder cpuExecutor(Executor cpuExecutor) {
+            if (cpuExecutor == null) {
+                throw new IllegalArgumentException("CPU executor cannot be null");
+            }
+            this.cpuExecutor = cpuExecutor;
+            return this;
+        }
+
+        public AsyncImageService build() {
+            if (ioExecutor == null) {
+                ioExecutor = DefaultIoExecutor.INSTANCE;
+            }
+            return new AsyncImageService(this);
+        }
+    }
+}
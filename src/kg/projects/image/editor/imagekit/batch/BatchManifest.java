@@ -0,0 +1,157 @@
+package kg.projects.image.editor.imagekit.batch;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An append-only record of the input files a batch has finished, kept in a text file so a later run can skip
+ * them. Each line holds the size, modification time and SHA-256 hash of an input followed by its name,
+ * separated by tabs, and is flushed as soon as the output is saved. A line cut short by a crash is ignored,
+ * and later lines for the same name replace earlier ones.
+ * <p>
+ * A manifest file must be written by one run at a time; sharded runs use one manifest per shard.
+ */
+final class BatchManifest implements AutoCloseable {
+    private static final String HEADER = "# imagekit batch manifest v1";
+    private static final int HASH_LENGTH = 64;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Map<String, Entry> entries;
+    private final BufferedWriter writer;
+
+    private BatchManifest(Map<String, Entry> entries, BufferedWriter writer) {
+        this.entries = entries;
+        this.writer = writer;
+    }
+
+    private record Entry(long size, long modified, String hash) {
+    }
+
+    /**
+     * Reads the manifest file, creating it if it does not exist, and opens it for appending.
+     *
+     * @throws IOException if the file cannot be read or written
+     */
+    static BatchManifest open(File file) throws IOException {
+        Map<String, Entry> entries = new HashMap<>();
+        boolean exists = file.isFile();
+        if (exists) {
+            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            for (String line : lines) {
+                parse(line, entries);
+            }
+            endWithNewline(file);
+        }
+
+        BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (!exists) {
+            writer.write(HEADER);
+            writer.newLine();
+            writer.flush();
+        }
+        return new BatchManifest(entries, writer);
+    }
+
+    /**
+     * Returns whether the input was finished by an earlier run and its output still exists.
+     * An input whose size and modification time are recorded is finished; one whose modification time
+     * changed is finished if its hash is unchanged, which is then recorded to avoid hashing it again.
+     *
+     * @throws IOException if the input cannot be hashed
+     */
+    synchronized boolean isComplete(File input, File output) throws IOException {
+        Entry entry = entries.get(input.getName());
+        if (entry == null || !output.isFile() || entry.size() != input.length()) {
+            return false;
+        }
+        if (entry.modified() == input.lastModified()) {
+            return true;
+        }
+        String hash = hash(input);
+        if (!hash.equals(entry.hash())) {
+            return false;
+        }
+        append(input, hash);
+        return true;
+    }
+
+    /**
+     * Records an input as finished.
+     *
+     * @throws IOException if the input cannot be hashed or the manifest cannot be written
+     */
+    synchronized void record(File input) throws IOException {
+        append(input, hash(input));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private void append(File input, String hash) throws IOException {
+        Entry entry = new Entry(input.length(), input.lastModified(), hash);
+        writer.write(entry.size() + "\t" + entry.modified() + "\t" + entry.hash() + "\t" + input.getName());
+        writer.newLine();
+        writer.flush();
+        entries.put(input.getName(), entry);
+    }
+
+    private static void parse(String line, Map<String, Entry> entries) {
+        if (line.startsWith("#")) {
+            return;
+        }
+        String[] fields = line.split("\t", 4);
+        if (fields.length != 4 || fields[2].length() != HASH_LENGTH || fields[3].isEmpty()) {
+            return;
+        }
+        try {
+            entries.put(fields[3], new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]), fields[2]));
+        } catch (NumberFormatException e) {
+            // A damaged line only means the input is processed again
+        }
+    }
+
+    /**
+     * Terminates a last line cut short by a crash, so the next entry starts on a line of its own.
+     */
+    private static void endWithNewline(File file) throws IOException {
+        try (RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+            if (access.length() > 0) {
+                access.seek(access.length() - 1);
+                if (access.read() != '\n') {
+                    access.write(System.lineSeparator().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+    }
+
+    static String hash(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
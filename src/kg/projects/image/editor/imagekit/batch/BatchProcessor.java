@@ -0,0 +1,407 @@
+package kg.projects.image.editor.imagekit.batch;
+
+import kg.projects.image.editor.imagekit.algorithm.GrayPlaneAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.ImageAlgorithm;
+import kg.projects.image.editor.imagekit.filesystem.FileSystemImageManager;
+import kg.projects.image.editor.imagekit.filesystem.SaveOptions;
+import kg.projects.image.editor.imagekit.metrics.Instrumentation;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Applies an image algorithm to every file of a directory and saves the results into another directory.
+ * Decoding, processing and encoding run as separate stages, each on its own threads, connected by bounded
+ * queues: a slow stage blocks the one feeding it, so at most {@code queueCapacity} decoded and
+ * {@code queueCapacity} processed images wait between stages. The I/O-bound stages overlap with the
+ * CPU-bound one, so the wall time of a run approaches that of its slowest stage.
+ * A file that fails in any stage, even with an {@link Error}, is reported in the {@link BatchReport}
+ * and does not stop the others.
+ * The depths of both queues are reported to {@link Instrumentation} as {@value #DECODED_QUEUE}
+ * and {@value #PROCESSED_QUEUE} after every insertion.
+ * <p>
+ * A run can be resumed: with a {@linkplain Builder#manifest manifest} every saved file is recorded, and a later
+ * run skips the inputs the manifest lists as finished. A run can also take only one
+ * {@linkplain Builder#shard shard} of the directory, so that several processes split it between them.
+ */
+public final class BatchProcessor {
+    public static final String DECODED_QUEUE = "batch.decoded";
+    public static final String PROCESSED_QUEUE = "batch.processed";
+
+    private static final Item END = new Item(-1, null);
+
+    private final FileSystemImageManager imageManager;
+    private final ImageAlgorithm algorithm;
+    private final int decodeThreads;
+    private final int processThreads;
+    private final int encodeThreads;
+    private final int queueCapacity;
+    private final SaveOptions saveOptions;
+    private final boolean grayOutput;
+    private final File manifestFile;
+    private final int shardIndex;
+    private final int shardCount;
+
+    private BatchProcessor(Builder builder) {
+        this.imageManager = builder.imageManager;
+        this.algorithm = builder.algorithm;
+        this.decodeThreads = builder.decodeThreads;
+        this.processThreads = builder.processThreads;
+        this.encodeThreads = builder.encodeThreads;
+        this.queueCapacity = builder.queueCapacity;
+        this.saveOptions = builder.saveOptions;
+        this.grayOutput = builder.grayOutput;
+        this.manifestFile = builder.manifestFile;
+        this.shardIndex = builder.shardIndex;
+        this.shardCount = builder.shardCount;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the manager or the algorithm is null
+     */
+    public static Builder builder(FileSystemImageManager imageManager, ImageAlgorithm algorithm) {
+        if (imageManager == null) {
+            throw new IllegalArgumentException("Image manager cannot be null");
+        }
+        if (algorithm == null) {
+            throw new IllegalArgumentException("Algorithm cannot be null");
+        }
+        return new Builder(imageManager, algorithm);
+    }
+
+    /**
+     * Processes every regular file of the input directory, in name order, into a file
+     * with the same name in the output directory. With a shard only the files of the shard are processed,
+     * and with a manifest the files it lists as finished are skipped.
+     *
+     * @param inputDirectory  the directory containing the images
+     * @param outputDirectory the existing directory to save the results to
+     * @return the outcome of every processed file and the skipped files
+     * @throws IllegalArgumentException if a directory is null
+     * @throws IOException              if a directory does not exist or cannot be listed,
+     *                                  the manifest cannot be read or the run is interrupted
+     */
+    public BatchReport run(File inputDirectory, File outputDirectory) throws IOException {
+        if (inputDirectory == null || outputDirectory == null) {
+            throw new IllegalArgumentException("Directories cannot be null");
+        }
+        if (!outputDirectory.isDirectory()) {
+            throw new IOException("Output directory does not exist or is not a directory");
+        }
+
+        File[] files = inputDirectory.listFiles(File::isFile);
+        if (files == null) {
+            throw new IOException("Input directory does not exist or cannot be listed");
+        }
+        Arrays.sort(files, Comparator.comparing(File::getName));
+
+        List<File> inputs = new ArrayList<>(files.length);
+        for (File file : files) {
+            if (isInShard(file)) {
+                inputs.add(file);
+            }
+        }
+        if (manifestFile == null) {
+            return new Run(inputs, outputDirectory, null).execute(List.of());
+        }
+
+        try (BatchManifest manifest = BatchManifest.open(manifestFile)) {
+            List<File> pending = new ArrayList<>(inputs.size());
+            List<File> skipped = new ArrayList<>();
+            for (File input : inputs) {
+                if (manifest.isComplete(input, new File(outputDirectory, input.getName()))) {
+                    skipped.add(input);
+                } else {
+                    pending.add(input);
+                }
+            }
+            return new Run(pending, outputDirectory, manifest).execute(skipped);
+        }
+    }
+
+    /**
+     * Assigns files to shards by the hash of their name, which does not depend on the JVM
+     * or on the other files of the directory.
+     */
+    private boolean isInShard(File file) {
+        return Math.floorMod(file.getName().hashCode(), shardCount) == shardIndex;
+    }
+
+    private record Item(int index, BufferedImage image) {
+    }
+
+    /**
+     * The state of one run: the stage queues, the next file to decode and the result of every file.
+     */
+    private final class Run {
+        private final List<File> inputs;
+        private final File[] outputs;
+        private final BatchManifest manifest;
+        private final FileResult[] results;
+        private final AtomicInteger nextInput = new AtomicInteger();
+        private final BlockingQueue<Item> decoded = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<Item> processed = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicInteger activeDecoders = new AtomicInteger(decodeThreads);
+        private final AtomicInteger activeProcessors = new AtomicInteger(processThreads);
+        private final List<Thread> threads = new ArrayList<>();
+
+        private Run(List<File> inputs, File outputDirectory, BatchManifest manifest) {
+            this.inputs = inputs;
+            this.manifest = manifest;
+            this.outputs = new File[inputs.size()];
+            this.results = new FileResult[inputs.size()];
+            for (int i = 0; i < outputs.length; i++) {
+                outputs[i] = new File(outputDirectory, inputs.get(i).getName());
+            }
+        }
+
+        private BatchReport execute(List<File> skipped) throws IOException {
+            start("decode", decodeThreads, this::decode);
+            start("process", processThreads, this::process);
+            start("encode", encodeThreads, this::encode);
+
+            try {
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+            } catch (InterruptedException e) {
+                threads.forEach(Thread::interrupt);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while processing batch");
+            }
+
+            List<FileResult> report = new ArrayList<>(results.length);
+            for (int i = 0; i < results.length; i++) {
+                report.add(results[i] != null ? results[i]
+                        : new FileResult(inputs.get(i), outputs[i], new IOException("File was not processed")));
+            }
+            return new BatchReport(report, skipped);
+        }
+
+        private void start(String stage, int count, StageWorker worker) {
+            for (int i = 0; i < count; i++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        worker.run();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }, "batch-" + stage + "-" + i);
+                thread.setDaemon(true);
+                threads.add(thread);
+                thread.start();
+            }
+        }
+
+        private void decode() throws InterruptedException {
+            try {
+                for (int i = nextInput.getAndIncrement(); i < inputs.size(); i = nextInput.getAndIncrement()) {
+                    try {
+                        decoded.put(new Item(i, imageManager.loadImage(inputs.get(i))));
+                        Instrumentation.queueDepth(DECODED_QUEUE, decoded.size());
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (Throwable e) {
+                        fail(i, e);
+                    }
+                }
+            } finally {
+                if (activeDecoders.decrementAndGet() == 0) {
+                    endStage(decoded, processThreads);
+                }
+            }
+        }
+
+        private void process() throws InterruptedException {
+            try {
+                for (Item item = decoded.take(); item != END; item = decoded.take()) {
+                    try {
+                        BufferedImage result = grayOutput
+                                ? ((GrayPlaneAlgorithm) algorithm).processToGray(item.image()).image()
+                                : algorithm.process(item.image());
+                        processed.put(new Item(item.index(), result));
+                        Instrumentation.queueDepth(PROCESSED_QUEUE, processed.size());
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (Throwable e) {
+                        fail(item.index(), e);
+                    }
+                }
+            } finally {
+                if (activeProcessors.decrementAndGet() == 0) {
+                    endStage(processed, encodeThreads);
+                }
+            }
+        }
+
+        private void encode() throws InterruptedException {
+            for (Item item = processed.take(); item != END; item = processed.take()) {
+                encode(item);
+            }
+        }
+
+        private void encode(Item item) {
+            try {
+                File input = inputs.get(item.index());
+                if (manifest != null) {
+                    // An output the manifest does not list was left behind by an interrupted run
+                    Files.deleteIfExists(outputs[item.index()].toPath());
+                }
+                imageManager.saveImage(item.image(), outputs[item.index()], saveOptions);
+                if (manifest != null) {
+                    manifest.record(input);
+                }
+                results[item.index()] = new FileResult(input, outputs[item.index()], null);
+            } catch (Throwable e) {
+                fail(item.index(), e);
+            }
+        }
+
+        private void fail(int index, Throwable error) {
+            Exception cause = error instanceof Exception exception ? exception : new IOException(error.toString(), error);
+            results[index] = new FileResult(inputs.get(index), outputs[index], cause);
+        }
+
+        private void endStage(BlockingQueue<Item> queue, int consumers) throws InterruptedException {
+            for (int i = 0; i < consumers; i++) {
+                queue.put(END);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface StageWorker {
+        void run() throws InterruptedException;
+    }
+
+    public static final class Builder {
+        private final FileSystemImageManager imageManager;
+        private final ImageAlgorithm algorithm;
+        private int decodeThreads = 1;
+        private int processThreads = Runtime.getRuntime().availableProcessors();
+        private int encodeThreads = 1;
+        private int queueCapacity = 4;
+        private SaveOptions saveOptions = SaveOptions.defaults();
+        private boolean grayOutput;
+        private File manifestFile;
+        private int shardIndex = 0;
+        private int shardCount = 1;
+
+        private Builder(FileSystemImageManager imageManager, ImageAlgorithm algorithm) {
+            this.imageManager = imageManager;
+            this.algorithm = algorithm;
+        }
+
+        /**
+         * Sets the number of threads loading images. Defaults to 1.
+         */
+        public Builder decodeThreads(int decodeThreads) {
+            this.decodeThreads = requirePositive(decodeThreads, "Decode threads");
+            return this;
+        }
+
+        /**
+         * Sets the number of threads applying the algorithm. Defaults to the number of processors.
+         */
+        public Builder processThreads(int processThreads) {
+            this.processThreads = requirePositive(processThreads, "Process threads");
+            return this;
+        }
+
+        /**
+         * Sets the number of threads saving images. Defaults to 1.
+         */
+        public Builder encodeThreads(int encodeThreads) {
+            this.encodeThreads = requirePositive(encodeThreads, "Encode threads");
+            return this;
+        }
+
+        /**
+         * Sets the capacity of each queue between two stages. Defaults to 4.
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = requirePositive(queueCapacity, "Queue capacity");
+            return this;
+        }
+
+        /**
+         * Sets the options the results are encoded with. Defaults to {@link SaveOptions#defaults()}.
+         *
+         * @throws IllegalArgumentException if the options are null
+         */
+        public Builder saveOptions(SaveOptions saveOptions) {
+            if (saveOptions == null) {
+                throw new IllegalArgumentException("Save options cannot be null");
+            }
+            this.saveOptions = saveOptions;
+            return this;
+        }
+
+        /**
+         * Sets whether the results are computed by {@link GrayPlaneAlgorithm#processToGray} and saved as 8-bit
+         * gray images, which are a quarter of the size in memory and are compressed in parallel when saved as PNG.
+         * Defaults to false.
+         *
+         * @throws IllegalArgumentException if enabled for an algorithm that cannot produce gray planes
+         */
+        public Builder grayOutput(boolean grayOutput) {
+            if (grayOutput && !(algorithm instanceof GrayPlaneAlgorithm)) {
+                throw new IllegalArgumentException("Gray output requires a GrayPlaneAlgorithm");
+            }
+            this.grayOutput = grayOutput;
+            return this;
+        }
+
+        /**
+         * Sets the file recording the finished inputs. It is created if it does not exist; inputs it lists
+         * whose output still exists are skipped, and outputs of other inputs are overwritten.
+         * Concurrent runs must use different manifests. By default no manifest is kept.
+         *
+         * @throws IllegalArgumentException if the file is null
+         */
+        public Builder manifest(File manifestFile) {
+            if (manifestFile == null) {
+                throw new IllegalArgumentException("Manifest file cannot be null");
+            }
+            this.manifestFile = manifestFile;
+            return this;
+        }
+
+        /**
+         * Restricts the run to shard {@code index} of {@code count}. The shards of a directory are disjoint
+         * and together cover it, whatever machine or JVM runs them. Defaults to the only shard of one.
+         *
+         * @throws IllegalArgumentException if the count is not positive or the index is not in [0, count)
+         */
+        public Builder shard(int index, int count) {
+            requirePositive(count, "Shard count");
+            if (index < 0 || index >= count) {
+                throw new IllegalArgumentException("Shard index must be in [0, count)");
+            }
+            this.shardIndex = index;
+            this.shardCount = count;
+            return this;
+        }
+
+        public BatchProcessor build() {
+            return new BatchProcessor(this);
+        }
+
+        private static int requirePositive(int value, String name) {
+            if (value <= 0) {
+                throw new IllegalArgumentException(name + " must be positive");
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package kg.projects.image.editor.imagekit.batch;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * The per-file outcomes of a batch run, in the order of the input files,
+ * and the input files skipped because an earlier run had finished them.
+ */
+public final class BatchReport {
+    private final List<FileResult> results;
+    private final List<File> skipped;
+
+    BatchReport(List<FileResult> results, List<File> skipped) {
+        this.results = List.copyOf(results);
+        this.skipped = List.copyOf(skipped);
+    }
+
+    public List<FileResult> getResults() {
+        return results;
+    }
+
+    public List<FileResult> getFailures() {
+        return results.stream().filter(result -> !result.isSuccessful()).toList();
+    }
+
+    public int getSucceededCount() {
+        return results.size() - getFailedCount();
+    }
+
+    public List<File> getSkipped() {
+        return skipped;
+    }
+
+    public int getFailedCount() {
+        return (int) results.stream().filter(result -> !result.isSuccessful()).count();
+    }
+}
@@ -0,0 +1,45 @@
+package kg.projects.image.editor.imagekit.batch;
+
+import java.io.File;
+
+/**
+ * The outcome of processing a single file in a batch.
+ */
+public final class FileResult {
+    private final File input;
+    private final File output;
+    private final Exception error;
+
+    FileResult(File input, File output, Exception error) {
+        this.input = input;
+        this.output = output;
+        this.error = error;
+    }
+
+    public File getInput() {
+        return input;
+    }
+
+    /**
+     * Returns the file the result was written to, or would have been written to if processing failed.
+     */
+    public File getOutput() {
+        return output;
+    }
+
+    /**
+     * Returns the exception that stopped the file from being processed, or null if it succeeded.
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return input.getName() + (error == null ? " -> " + output.getName() : " failed: " + error.getMessage());
+    }
+}
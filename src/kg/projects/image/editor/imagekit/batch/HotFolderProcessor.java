@@ -0,0 +1,313 @@
+package kg.projects.image.editor.imagekit.batch;
+
+import kg.projects.image.editor.imagekit.algorithm.ImageAlgorithm;
+import kg.projects.image.editor.imagekit.filesystem.FileSystemImageManager;
+import kg.projects.image.editor.imagekit.filesystem.LocalFileSystemImageManager;
+import kg.projects.image.editor.imagekit.metrics.Instrumentation;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Watches a directory and applies an image algorithm to every image file created or modified in it,
+ * saving the result under the same name in an output directory. Changes are reported by a {@link WatchService},
+ * so the directory is never listed again. A file is picked up once it has seen no change for the settle time,
+ * which lets writers finish before it is decoded; a file changed again later is processed again and its result
+ * replaced. Files already in the directory when watching starts are not processed.
+ * <p>
+ * At most {@code maxInFlight} files are being processed or waiting for a processing thread; further settled
+ * files wait in the watcher until one finishes. Results are written to a hidden temporary file and moved
+ * into place, so the output directory only ever holds complete images. The outcome of every file is passed to
+ * the listener from a processing thread, and the number of files in flight is reported to
+ * {@link Instrumentation} as {@value #IN_FLIGHT_QUEUE}. Files that fail do not stop the processor.
+ */
+public final class HotFolderProcessor implements AutoCloseable {
+    public static final String IN_FLIGHT_QUEUE = "hotfolder.inflight";
+
+    private static final long BLOCKED_POLL_MILLIS = 10;
+
+    private final FileSystemImageManager imageManager;
+    private final ImageAlgorithm algorithm;
+    private final long settleNanos;
+    private final int processThreads;
+    private final int maxInFlight;
+    private final Consumer<FileResult> listener;
+
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger temporaryFiles = new AtomicInteger();
+    private Semaphore permits;
+    private WatchService watchService;
+    private ExecutorService workers;
+    private Thread watcher;
+    private File outputDirectory;
+    private volatile boolean running;
+    private boolean closed;
+
+    private HotFolderProcessor(Builder builder) {
+        this.imageManager = builder.imageManager;
+        this.algorithm = builder.algorithm;
+        this.settleNanos = TimeUnit.MILLISECONDS.toNanos(builder.settleMillis);
+        this.processThreads = builder.processThreads;
+        this.maxInFlight = builder.maxInFlight;
+        this.listener = builder.listener;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the manager or the algorithm is null
+     */
+    public static Builder builder(FileSystemImageManager imageManager, ImageAlgorithm algorithm) {
+        if (imageManager == null) {
+            throw new IllegalArgumentException("Image manager cannot be null");
+        }
+        if (algorithm == null) {
+            throw new IllegalArgumentException("Algorithm cannot be null");
+        }
+        return new Builder(imageManager, algorithm);
+    }
+
+    /**
+     * Starts watching the input directory on a background thread.
+     *
+     * @param inputDirectory  the directory to watch
+     * @param outputDirectory the existing directory to save the results to
+     * @throws IllegalArgumentException if a directory is null or both are the same directory
+     * @throws IllegalStateException    if the processor was already started
+     * @throws IOException              if a directory does not exist or cannot be watched
+     */
+    public synchronized void start(File inputDirectory, File outputDirectory) throws IOException {
+        if (inputDirectory == null || outputDirectory == null) {
+            throw new IllegalArgumentException("Directories cannot be null");
+        }
+        if (watchService != null) {
+            throw new IllegalStateException("Hot folder processor was already started");
+        }
+        if (!inputDirectory.isDirectory() || !outputDirectory.isDirectory()) {
+            throw new IOException("Directory does not exist or is not a directory");
+        }
+        Path input = inputDirectory.toPath().toRealPath();
+        if (input.equals(outputDirectory.toPath().toRealPath())) {
+            throw new IllegalArgumentException("Output directory must differ from the input directory");
+        }
+
+        this.outputDirectory = outputDirectory;
+        this.permits = new Semaphore(maxInFlight);
+        this.watchService = FileSystems.getDefault().newWatchService();
+        input.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(processThreads, runnable -> {
+            Thread thread = new Thread(runnable, "hotfolder-process-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.running = true;
+        this.watcher = new Thread(() -> watch(input), "hotfolder-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops watching, waits for the files in flight to finish and releases the watch service.
+     * Files that had not settled yet are not processed. The threads and the watch service are also released
+     * when the watcher already stopped on its own, for example because the input directory was deleted.
+     *
+     * @throws IOException if the watch service cannot be closed or waiting is interrupted
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService == null || closed) {
+            return;
+        }
+        closed = true;
+        running = false;
+        watchService.close();
+        try {
+            watcher.join();
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while stopping hot folder processor");
+        }
+    }
+
+    private void watch(Path input) {
+        // Files by the time they settle, in the order they were first seen
+        Map<Path, Long> pending = new LinkedHashMap<>();
+        try {
+            while (running) {
+                long wait = submitSettled(pending);
+                WatchKey key = wait < 0 ? watchService.take() : watchService.poll(wait, TimeUnit.NANOSECONDS);
+                if (key == null) {
+                    continue;
+                }
+                long settled = System.nanoTime() + settleNanos;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        continue;
+                    }
+                    Path file = input.resolve((Path) event.context());
+                    if (LocalFileSystemImageManager.isSupportedFormat(file.toFile())) {
+                        pending.put(file, settled);
+                    }
+                }
+                if (!key.reset()) {
+                    running = false;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            running = false;
+        }
+    }
+
+    /**
+     * Hands the settled files to the workers while permits last.
+     *
+     * @return the nanoseconds until the next pending file settles, or -1 if nothing is pending
+     */
+    private long submitSettled(Map<Path, Long> pending) {
+        long now = System.nanoTime();
+        long wait = -1;
+        for (Iterator<Map.Entry<Path, Long>> entries = pending.entrySet().iterator(); entries.hasNext(); ) {
+            Map.Entry<Path, Long> entry = entries.next();
+            long remaining = entry.getValue() - now;
+            if (remaining > 0) {
+                wait = wait < 0 ? remaining : Math.min(wait, remaining);
+            } else if (inFlight.contains(entry.getKey()) || !permits.tryAcquire()) {
+                // Retried shortly, as finishing files cannot wake the watch service
+                long blocked = TimeUnit.MILLISECONDS.toNanos(BLOCKED_POLL_MILLIS);
+                wait = wait < 0 ? blocked : Math.min(wait, blocked);
+            } else {
+                Path file = entry.getKey();
+                entries.remove();
+                inFlight.add(file);
+                Instrumentation.queueDepth(IN_FLIGHT_QUEUE, inFlight.size());
+                workers.execute(() -> process(file));
+            }
+        }
+        return wait;
+    }
+
+    private void process(Path file) {
+        File input = file.toFile();
+        File output = new File(outputDirectory, input.getName());
+        File temporary = new File(outputDirectory, ".tmp-" + temporaryFiles.incrementAndGet() + "-" + input.getName());
+        Exception error = null;
+        try {
+            BufferedImage result = algorithm.process(imageManager.loadImage(input));
+            imageManager.saveImage(result, temporary);
+            try {
+                Files.move(temporary.toPath(), output.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (Throwable e) {
+            // Errors such as running out of memory on an oversized file are reported like any other failure
+            error = e instanceof Exception exception ? exception : new IOException(e.toString(), e);
+            temporary.delete();
+        } finally {
+            inFlight.remove(file);
+            permits.release();
+            Instrumentation.queueDepth(IN_FLIGHT_QUEUE, inFlight.size());
+        }
+        listener.accept(new FileResult(input, output, error));
+    }
+
+    public static final class Builder {
+        private final FileSystemImageManager imageManager;
+        private final ImageAlgorithm algorithm;
+        private long settleMillis = 100;
+        private int processThreads = Runtime.getRuntime().availableProcessors();
+        private int maxInFlight = 2 * Runtime.getRuntime().availableProcessors();
+        private Consumer<FileResult> listener = result -> {
+        };
+
+        private Builder(FileSystemImageManager imageManager, ImageAlgorithm algorithm) {
+            this.imageManager = imageManager;
+            this.algorithm = algorithm;
+        }
+
+        /**
+         * Sets how long a file must go without changes before it is processed. Defaults to 100 milliseconds.
+         *
+         * @throws IllegalArgumentException if the time is negative
+         */
+        public Builder settleMillis(long settleMillis) {
+            if (settleMillis < 0) {
+                throw new IllegalArgumentException("Settle time cannot be negative");
+            }
+            this.settleMillis = settleMillis;
+            return this;
+        }
+
+        /**
+         * Sets the number of threads processing files. Defaults to the number of processors.
+         */
+        public Builder processThreads(int processThreads) {
+            this.processThreads = requirePositive(processThreads, "Process threads");
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of files processed or queued for processing at a time.
+         * Defaults to twice the number of processors.
+         */
+        public Builder maxInFlight(int maxInFlight) {
+            this.maxInFlight = requirePositive(maxInFlight, "Max in flight");
+            return this;
+        }
+
+        /**
+         * Sets the callback receiving the outcome of every processed file. Defaults to ignoring them.
+         *
+         * @throws IllegalArgumentException if the listener is null
+         */
+        public Builder listener(Consumer<FileResult> listener) {
+            if (listener == null) {
+                throw new IllegalArgumentException("Listener cannot be null");
+            }
+            this.listener = listener;
+            return this;
+        }
+
+        public HotFolderProcessor build() {
+            return new HotFolderProcessor(this);
+        }
+
+        private static int requirePositive(int value, String name) {
+            if (value <= 0) {
+                throw new IllegalArgumentException(name + " must be positive");
+            }
+            return value;
+        }
+    }
+}
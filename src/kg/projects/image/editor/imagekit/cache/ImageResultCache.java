@@ -0,0 +1,285 @@
+package kg.projects.image.editor.imagekit.cache;
+
+import kg.projects.image.editor.imagekit.algorithm.ImageAlgorithm;
+import kg.projects.image.editor.imagekit.filesystem.FileSystemImageManager;
+import kg.projects.image.editor.imagekit.raster.PixelPlane;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the results of running an {@link ImageAlgorithm} over image files.
+ * Results are keyed by the SHA-256 of the file content and the {@link ImageAlgorithm#descriptor()},
+ * so renamed or copied files still hit and modified files miss.
+ * Hits skip both decoding and processing. Results are kept in a memory tier with least-recently-used
+ * eviction bounded by the total size of the pixel data, and optionally in a PNG disk tier.
+ * The disk tier is best-effort: an entry that cannot be read is deleted and treated as a miss, and a result
+ * that cannot be written is still returned and kept in memory.
+ * Returned images may be shared between callers and must not be modified. Results come back as TYPE_BYTE_GRAY
+ * if the algorithm produced one and as TYPE_INT_RGB otherwise, from either tier.
+ * <p>
+ * The default descriptor is the class name, so a named algorithm class with configuration must override
+ * {@link ImageAlgorithm#descriptor()} to include it. Lambdas, anonymous and local classes that keep the default
+ * descriptor cannot be told apart by it and are processed on every call without being cached.
+ */
+public class ImageResultCache {
+    private static final String DISK_FORMAT = "png";
+    private static final int HASH_BUFFER_SIZE = 1 << 16;
+
+    private final FileSystemImageManager imageManager;
+    private final long maxMemoryBytes;
+    private final Path diskDirectory;
+    private final LinkedHashMap<String, BufferedImage> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a cache with only a memory tier.
+     *
+     * @param imageManager   the manager used to load images on a miss
+     * @param maxMemoryBytes the maximum total size of the cached pixel data
+     * @throws IllegalArgumentException if the manager is null or the size is negative
+     */
+    public ImageResultCache(FileSystemImageManager imageManager, long maxMemoryBytes) {
+        this(imageManager, maxMemoryBytes, null);
+    }
+
+    /**
+     * Creates a cache with a memory tier and a disk tier in the given directory.
+     *
+     * @param imageManager   the manager used to load images on a miss
+     * @param maxMemoryBytes the maximum total size of the cached pixel data
+     * @param diskDirectory  an existing directory for the disk tier, or null to disable it
+     * @throws IllegalArgumentException if the manager is null, the size is negative
+     *                                  or the directory does not exist
+     */
+    public ImageResultCache(FileSystemImageManager imageManager, long maxMemoryBytes, File diskDirectory) {
+        if (imageManager == null) {
+            throw new IllegalArgumentException("Image manager cannot be null");
+        }
+        if (maxMemoryBytes < 0) {
+            throw new IllegalArgumentException("Max memory bytes cannot be negative");
+        }
+        if (diskDirectory != null && !diskDirectory.isDirectory()) {
+            throw new IllegalArgumentException("Disk directory does not exist or is not a directory");
+        }
+        this.imageManager = imageManager;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.diskDirectory = diskDirectory == null ? null : diskDirectory.toPath();
+    }
+
+    /**
+     * Returns the result of applying the algorithm to the image in the given file,
+     * loading and processing it only if the result is not cached yet.
+     *
+     * @param imageFile the file containing the image
+     * @param algorithm the algorithm to apply
+     * @return the processed image, which must not be modified
+     * @throws IllegalArgumentException if the file or the algorithm is null
+     * @throws IOException              if the file cannot be read or loaded
+     */
+    public BufferedImage process(File imageFile, ImageAlgorithm algorithm) throws IOException {
+        if (imageFile == null) {
+            throw new IllegalArgumentException("Image file cannot be null");
+        }
+        if (algorithm == null) {
+            throw new IllegalArgumentException("Algorithm cannot be null");
+        }
+
+        if (!hasStableDescriptor(algorithm)) {
+            misses.incrementAndGet();
+            return algorithm.process(imageManager.loadImage(imageFile));
+        }
+
+        String key = key(imageFile, algorithm);
+        BufferedImage result = getFromMemory(key);
+        if (result != null) {
+            memoryHits.incrementAndGet();
+            return result;
+        }
+
+        result = getFromDisk(key);
+        if (result != null) {
+            diskHits.incrementAndGet();
+            putInMemory(key, result);
+            return result;
+        }
+
+        misses.incrementAndGet();
+        result = algorithm.process(imageManager.loadImage(imageFile));
+        putInMemory(key, result);
+        putOnDisk(key, result);
+        return result;
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the total size of the pixel data currently held in memory.
+     */
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * Removes all results from the memory tier. The disk tier is left untouched.
+     */
+    public synchronized void clearMemory() {
+        memory.clear();
+        memoryBytes = 0;
+    }
+
+    private synchronized BufferedImage getFromMemory(String key) {
+        return memory.get(key);
+    }
+
+    private synchronized void putInMemory(String key, BufferedImage image) {
+        long size = sizeOf(image);
+        if (size > maxMemoryBytes) {
+            return;
+        }
+
+        BufferedImage previous = memory.put(key, image);
+        if (previous != null) {
+            memoryBytes -= sizeOf(previous);
+        }
+        memoryBytes += size;
+
+        Iterator<Map.Entry<String, BufferedImage>> eldest = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes) {
+            memoryBytes -= sizeOf(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    private BufferedImage getFromDisk(String key) {
+        if (diskDirectory == null) {
+            return null;
+        }
+        Path file = diskFile(key);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            // Read without the normalization of the image manager, so gray results stay gray
+            BufferedImage image = ImageIO.read(file.toFile());
+            if (image != null) {
+                return image.getType() == BufferedImage.TYPE_BYTE_GRAY ? image : PixelPlane.toRgbImage(image);
+            }
+        } catch (IOException | RuntimeException e) {
+            // A truncated or corrupt entry is replaced by the result of the miss
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Overwritten by the result of the miss if it can be written at all
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether the descriptor of the algorithm tells it apart from other instances of its class:
+     * either it is overridden, or the class is a named one whose name is a meaningful default.
+     */
+    private static boolean hasStableDescriptor(ImageAlgorithm algorithm) {
+        Class<?> type = algorithm.getClass();
+        if (!type.isHidden() && !type.isAnonymousClass() && !type.isLocalClass() && !type.isSynthetic()) {
+            return true;
+        }
+        try {
+            return type.getMethod("descriptor").getDeclaringClass() != ImageAlgorithm.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes a result to the disk tier. Failures, such as a full disk, only cost a later miss,
+     * so they do not fail the call that computed the result.
+     */
+    private void putOnDisk(String key, BufferedImage image) {
+        if (diskDirectory == null) {
+            return;
+        }
+
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(diskDirectory, key, ".tmp");
+            if (ImageIO.write(image, DISK_FORMAT, temp.toFile())) {
+                Files.move(temp, diskFile(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException | RuntimeException e) {
+            // The result stays in the memory tier
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // Left behind as a .tmp file, which is never read as an entry
+                }
+            }
+        }
+    }
+
+    private Path diskFile(String key) {
+        return diskDirectory.resolve(key + "." + DISK_FORMAT);
+    }
+
+    private static long sizeOf(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    private static String key(File imageFile, ImageAlgorithm algorithm) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream input = Files.newInputStream(imageFile.toPath())) {
+            byte[] buffer = new byte[HASH_BUFFER_SIZE];
+            for (int read = input.read(buffer); read != -1; read = input.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        digest.update((byte) 0);
+        digest.update(algorithm.descriptor().getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return key.toString();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
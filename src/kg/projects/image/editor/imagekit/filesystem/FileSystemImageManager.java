@@ -4,6 +4,7 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * An interface for loading images from the file system.
@@ -22,6 +23,19 @@ public interface FileSystemImageManager {
      */
     BufferedImage loadImage(File imageFile) throws IOException;
 
+    /**
+     * Loads a single image from the given file path using the given options.
+     *
+     * @param imageFile the file containing the image.
+     * @param options   the options controlling how the image is decoded.
+     * @return the loaded BufferedImage.
+     * @throws IllegalArgumentException if the file or the options are null
+     * @throws IOException              if the file does not exist, is not a regular file,
+     *                                  is not in one of the supported formats,
+     *                                  or the source region of the options lies outside of the image.
+     */
+    BufferedImage loadImage(File imageFile, LoadOptions options) throws IOException;
+
     /**
      * Loads all images from the specified directory.
      *
@@ -33,6 +47,19 @@ public interface FileSystemImageManager {
      */
     List<BufferedImage> loadImagesFromDirectory(File imagesDirectory) throws IOException;
 
+    /**
+     * Lazily loads the images from the specified directory.
+     * Each image is decoded only when the stream reaches it and is not referenced afterwards,
+     * so memory use does not grow with the number of files. The stream should be closed when done.
+     *
+     * @param imagesDirectory the directory containing the images.
+     * @return An ordered stream of the images; decoding failures are thrown as UncheckedIOException.
+     * @throws IllegalArgumentException if the directory is null.
+     * @throws IOException              if the directory does not exist, is not a directory,
+     *                                  or contains files that are not in one of the supported formats.
+     */
+    Stream<BufferedImage> streamImagesFromDirectory(File imagesDirectory) throws IOException;
+
     /**
      * Saves the given image to the specified file path.
      *
@@ -42,4 +69,15 @@ public interface FileSystemImageManager {
      * @throws IOException              if the file already exists or the parent directory does not exist.
      */
     void saveImage(BufferedImage image, File imageFile) throws IOException;
+
+    /**
+     * Saves the given image to the specified file path, encoded with the given options.
+     *
+     * @param image     the image to save.
+     * @param imageFile the file to save the image to.
+     * @param options   the options controlling how the image is encoded.
+     * @throws IllegalArgumentException if the image, file or options are null.
+     * @throws IOException              if the file already exists or the parent directory does not exist.
+     */
+    void saveImage(BufferedImage image, File imageFile, SaveOptions options) throws IOException;
 }
\ No newline at end of file
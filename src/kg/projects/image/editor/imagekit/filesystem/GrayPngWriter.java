@@ -0,0 +1,244 @@
+package kg.projects.image.editor.imagekit.filesystem;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes TYPE_BYTE_GRAY images as 8-bit gray PNGs, compressing bands of rows in parallel.
+ * Each band is filtered and deflated on its own and ends with a sync flush, which leaves its stream on a byte
+ * boundary without ending it, so the bands concatenate into a single deflate stream. The checksum of the whole
+ * stream is combined from those of the bands. A band starts with an empty deflate window, which costs a little
+ * compression at every band boundary; bands hold at least 64K pixels, so the loss is small.
+ */
+final class GrayPngWriter {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int DEFAULT_LEVEL = 4; // the default of the standard ImageIO writer
+    private static final int ZLIB_DEFLATE_32K = 0x78;
+    private static final int ADLER_BASE = 65521;
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    private GrayPngWriter() {
+    }
+
+    private record Band(byte[] data, long checksum, long length) {
+    }
+
+    static boolean canWrite(BufferedImage image) {
+        return image.getType() == BufferedImage.TYPE_BYTE_GRAY;
+    }
+
+    static void write(BufferedImage image, OutputStream output, SaveOptions options) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Raster raster = image.getRaster();
+        int level = options.getPngCompressionLevel() < 0 ? DEFAULT_LEVEL : options.getPngCompressionLevel();
+        PngFilter filter = options.getPngFilter();
+
+        Map<Integer, Band> bands = new ConcurrentSkipListMap<>();
+        options.getPngExecutor().execute(width, height,
+                (fromRow, toRow) -> bands.put(fromRow, compress(raster, fromRow, toRow, toRow == height, level, filter)));
+
+        DataOutputStream data = new DataOutputStream(output);
+        data.write(SIGNATURE);
+        byte[] header = new byte[13];
+        writeInt(header, 0, width);
+        writeInt(header, 4, height);
+        header[8] = 8; // bit depth; color type 0 (gray), deflate, adaptive filtering and no interlace follow as 0
+        writeChunk(data, "IHDR", header);
+
+        long checksum = 1;
+        for (Band band : bands.values()) {
+            checksum = combine(checksum, band.checksum(), band.length());
+        }
+        byte[] zlibHeader = {(byte) ZLIB_DEFLATE_32K, (byte) zlibFlags(level)};
+        writeChunk(data, "IDAT", zlibHeader);
+        for (Band band : bands.values()) {
+            writeChunk(data, "IDAT", band.data());
+        }
+        byte[] trailer = new byte[4];
+        writeInt(trailer, 0, (int) checksum);
+        writeChunk(data, "IDAT", trailer);
+        writeChunk(data, "IEND", new byte[0]);
+        data.flush();
+    }
+
+    private static Band compress(Raster raster, int fromRow, int toRow, boolean last, int level, PngFilter filter) {
+        int width = raster.getWidth();
+        byte[] previous = new byte[width];
+        byte[] current = new byte[width];
+        byte[] line = new byte[width + 1];
+        byte[] candidate = filter == PngFilter.ADAPTIVE ? new byte[width + 1] : null;
+        if (fromRow > 0) {
+            raster.getDataElements(0, fromRow - 1, width, 1, previous);
+        }
+
+        Deflater deflater = new Deflater(level, true);
+        deflater.setStrategy(filter == PngFilter.NONE ? Deflater.DEFAULT_STRATEGY : Deflater.FILTERED);
+        Adler32 checksum = new Adler32();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try {
+            for (int y = fromRow; y < toRow; y++) {
+                raster.getDataElements(0, y, width, 1, current);
+                byte[] filtered = line;
+                if (filter == PngFilter.ADAPTIVE) {
+                    filtered = filterAdaptive(current, previous, line, candidate);
+                    candidate = filtered == line ? candidate : line;
+                    line = filtered;
+                } else {
+                    filterRow(filter.type(), current, previous, line);
+                }
+                checksum.update(filtered);
+                deflater.setInput(filtered);
+                while (!deflater.needsInput()) {
+                    compressed.write(buffer, 0, deflater.deflate(buffer, 0, buffer.length, Deflater.NO_FLUSH));
+                }
+                byte[] swap = previous;
+                previous = current;
+                current = swap;
+            }
+
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    compressed.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                int written;
+                do {
+                    written = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, written);
+                } while (written == buffer.length);
+            }
+        } finally {
+            deflater.end();
+        }
+        return new Band(compressed.toByteArray(), checksum.getValue(), (long) (toRow - fromRow) * (width + 1));
+    }
+
+    /**
+     * Filters the row with every filter type and keeps the result with the smallest sum of absolute differences.
+     *
+     * @return whichever of the two buffers holds the kept result
+     */
+    private static byte[] filterAdaptive(byte[] current, byte[] previous, byte[] line, byte[] candidate) {
+        byte[] best = line;
+        byte[] spare = candidate;
+        long bestCost = filterRow(PngFilter.NONE.type(), current, previous, best);
+        for (int type = PngFilter.SUB.type(); type <= PngFilter.PAETH.type(); type++) {
+            long cost = filterRow(type, current, previous, spare);
+            if (cost < bestCost) {
+                bestCost = cost;
+                byte[] swap = best;
+                best = spare;
+                spare = swap;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Writes the filter type followed by the filtered row into {@code line}.
+     *
+     * @return the sum of the absolute values of the filtered bytes, read as signed
+     */
+    private static long filterRow(int type, byte[] current, byte[] previous, byte[] line) {
+        line[0] = (byte) type;
+        int width = current.length;
+        switch (type) {
+            case 0 -> System.arraycopy(current, 0, line, 1, width);
+            case 1 -> {
+                line[1] = current[0];
+                for (int x = 1; x < width; x++) {
+                    line[x + 1] = (byte) (current[x] - current[x - 1]);
+                }
+            }
+            case 2 -> {
+                for (int x = 0; x < width; x++) {
+                    line[x + 1] = (byte) (current[x] - previous[x]);
+                }
+            }
+            case 3 -> {
+                line[1] = (byte) (current[0] - ((previous[0] & 0xff) >>> 1));
+                for (int x = 1; x < width; x++) {
+                    line[x + 1] = (byte) (current[x] - (((current[x - 1] & 0xff) + (previous[x] & 0xff)) >>> 1));
+                }
+            }
+            default -> {
+                line[1] = (byte) (current[0] - previous[0]);
+                for (int x = 1; x < width; x++) {
+                    line[x + 1] = (byte) (current[x]
+                            - paeth(current[x - 1] & 0xff, previous[x] & 0xff, previous[x - 1] & 0xff));
+                }
+            }
+        }
+
+        long cost = 0;
+        for (int x = 1; x <= width; x++) {
+            cost += Math.abs(line[x]);
+        }
+        return cost;
+    }
+
+    private static int paeth(int left, int up, int upLeft) {
+        int estimate = left + up - upLeft;
+        int toLeft = Math.abs(estimate - left);
+        int toUp = Math.abs(estimate - up);
+        int toUpLeft = Math.abs(estimate - upLeft);
+        if (toLeft <= toUp && toLeft <= toUpLeft) {
+            return left;
+        }
+        return toUp <= toUpLeft ? up : upLeft;
+    }
+
+    /**
+     * Returns the Adler-32 checksum of two sequences joined, from the checksums of each and the length of the second.
+     */
+    static long combine(long first, long second, long secondLength) {
+        long remainder = secondLength % ADLER_BASE;
+        long low = first & 0xffff;
+        long high = remainder * low % ADLER_BASE;
+        low += (second & 0xffff) + ADLER_BASE - 1;
+        high += ((first >>> 16) & 0xffff) + ((second >>> 16) & 0xffff) + ADLER_BASE - remainder;
+        low %= ADLER_BASE;
+        high %= ADLER_BASE;
+        return high << 16 | low;
+    }
+
+    /**
+     * Returns the second byte of the zlib header: the compression level hint and the check bits.
+     */
+    private static int zlibFlags(int level) {
+        int hint = level <= 1 ? 0 : level <= 5 ? 1 : level == 6 ? 2 : 3;
+        int flags = hint << 6;
+        return flags + (31 - (ZLIB_DEFLATE_32K * 256 + flags) % 31) % 31;
+    }
+
+    private static void writeChunk(DataOutputStream output, String type, byte[] data) throws IOException {
+        byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(name);
+        crc.update(data);
+        output.writeInt(data.length);
+        output.write(name);
+        output.write(data);
+        output.writeInt((int) crc.getValue());
+    }
+
+    private static void writeInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,130 @@
+package kg.projects.image.editor.imagekit.filesystem;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Decodes a list of image files on demand, in list order.
+ * With a concurrency above one, up to that many files ahead of the consumer are decoded in parallel,
+ * so at most {@code concurrency + 1} decoded images are referenced at any time.
+ * Decoding failures are thrown from {@link #next()} as {@link UncheckedIOException}.
+ * The loader threads are shut down once the last file has been submitted, so an iterator that is fully consumed
+ * releases them even if it is never closed; a closed iterator has no more elements.
+ */
+final class ImageFileIterator implements Iterator<BufferedImage>, AutoCloseable {
+
+    @FunctionalInterface
+    interface Decoder {
+        BufferedImage decode(File file) throws IOException;
+    }
+
+    private final Iterator<File> files;
+    private final Decoder decoder;
+    private final int concurrency;
+    private final ExecutorService executor;
+    private final Deque<Future<BufferedImage>> pending = new ArrayDeque<>();
+    private boolean closed;
+
+    ImageFileIterator(List<File> files, Decoder decoder, int concurrency) {
+        this.files = files.iterator();
+        this.decoder = decoder;
+        this.concurrency = Math.min(concurrency, files.size());
+        this.executor = this.concurrency > 1
+                ? Executors.newFixedThreadPool(this.concurrency, ImageFileIterator::newLoaderThread)
+                : null;
+    }
+
+    private static Thread newLoaderThread(Runnable task) {
+        Thread thread = new Thread(task, "image-loader");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !closed && (!pending.isEmpty() || files.hasNext());
+    }
+
+    @Override
+    public BufferedImage next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        try {
+            if (executor == null) {
+                return decoder.decode(files.next());
+            }
+            submitAhead();
+            Future<BufferedImage> next = pending.poll();
+            submitAhead();
+            if (!files.hasNext()) {
+                // Every file is submitted: the threads exit once the remaining decodes finish
+                executor.shutdown();
+            }
+            return await(next);
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the next image, rethrowing decoding failures as checked exceptions.
+     */
+    BufferedImage nextImage() throws IOException {
+        try {
+            return next();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        pending.clear();
+    }
+
+    private void submitAhead() {
+        while (pending.size() < concurrency && files.hasNext()) {
+            File file = files.next();
+            pending.add(executor.submit(() -> decoder.decode(file)));
+        }
+    }
+
+    private static BufferedImage await(Future<BufferedImage> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading images");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("Failed to load image", e.getCause());
+        }
+    }
+}
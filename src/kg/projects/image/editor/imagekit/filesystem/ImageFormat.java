@@ -0,0 +1,53 @@
+package kg.projects.image.editor.imagekit.filesystem;
+
+import java.util.Arrays;
+
+/**
+ * The supported image formats, recognized by the signature at the start of their files
+ * rather than by the file name.
+ */
+public enum ImageFormat {
+    JPEG("jpeg", new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF}),
+    PNG("png", new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}),
+    BMP("bmp", new byte[] {'B', 'M'});
+
+    /**
+     * The number of leading bytes that identify every format.
+     */
+    static final int SIGNATURE_LENGTH = 8;
+
+    private final String formatName;
+    private final byte[] signature;
+
+    ImageFormat(String formatName, byte[] signature) {
+        this.formatName = formatName;
+        this.signature = signature;
+    }
+
+    /**
+     * Returns the format whose signature starts the given bytes, or null if there is none.
+     *
+     * @param header the first bytes of a file
+     * @param length the number of valid bytes in the header
+     * @throws IllegalArgumentException if the header is null or the length is outside of it
+     */
+    public static ImageFormat detect(byte[] header, int length) {
+        if (header == null || length < 0 || length > header.length) {
+            throw new IllegalArgumentException("Header cannot be null and length must lie within it");
+        }
+        for (ImageFormat format : values()) {
+            int size = format.signature.length;
+            if (length >= size && Arrays.equals(header, 0, size, format.signature, 0, size)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the informal format name ImageIO registers its readers and writers under.
+     */
+    public String getFormatName() {
+        return formatName;
+    }
+}
@@ -0,0 +1,79 @@
+package kg.projects.image.editor.imagekit.filesystem;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+
+/**
+ * What the header of an image file tells about it before any pixel is decoded,
+ * as returned by {@link LocalFileSystemImageManager#probe}.
+ */
+public final class ImageInfo {
+    private static final int RGB_BYTES_PER_PIXEL = Integer.BYTES;
+
+    private final ImageFormat format;
+    private final int width;
+    private final int height;
+    private final int bands;
+    private final int bitsPerPixel;
+    private final boolean alpha;
+
+    ImageInfo(ImageFormat format, int width, int height, int bands, int bitsPerPixel, boolean alpha) {
+        this.format = format;
+        this.width = width;
+        this.height = height;
+        this.bands = bands;
+        this.bitsPerPixel = bitsPerPixel;
+        this.alpha = alpha;
+    }
+
+    public ImageFormat getFormat() {
+        return format;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the number of bands the decoder produces, including alpha.
+     */
+    public int getBands() {
+        return bands;
+    }
+
+    /**
+     * Returns the number of bits the decoder stores per pixel.
+     */
+    public int getBitsPerPixel() {
+        return bitsPerPixel;
+    }
+
+    public boolean hasAlpha() {
+        return alpha;
+    }
+
+    /**
+     * Returns the number of pixel bytes loading the image with the given options allocates: the decoded image
+     * and, unless the decoder writes straight into it, the TYPE_INT_RGB image it is converted to.
+     *
+     * @throws IllegalArgumentException if the options are null
+     * @throws IOException              if the source region of the options lies outside of the image
+     */
+    public long estimateLoadBytes(LoadOptions options) throws IOException {
+        if (options == null) {
+            throw new IllegalArgumentException("Options cannot be null");
+        }
+        Rectangle region = options.regionOf(width, height);
+        int subsampling = options.subsamplingOf(region);
+        long pixels = (long) ((region.width + subsampling - 1) / subsampling)
+                * ((region.height + subsampling - 1) / subsampling);
+
+        boolean decodesToRgb = options.isDirectDecoding() && bands == 3 && !alpha;
+        long decodedBytesPerPixel = decodesToRgb ? 0 : (bitsPerPixel + Byte.SIZE - 1) / Byte.SIZE;
+        return pixels * (decodedBytesPerPixel + RGB_BYTES_PER_PIXEL);
+    }
+}
@@ -0,0 +1,134 @@
+package kg.projects.image.editor.imagekit.filesystem;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+
+/**
+ * Options controlling how a single image is decoded by a {@link FileSystemImageManager}.
+ * Instances are immutable; every {@code with} method returns a modified copy.
+ */
+public final class LoadOptions {
+    private static final LoadOptions DEFAULTS = new LoadOptions(false, 1, 0, null);
+
+    private final boolean directDecoding;
+    private final int subsampling;
+    private final int maxDimension;
+    private final Rectangle sourceRegion;
+
+    private LoadOptions(boolean directDecoding, int subsampling, int maxDimension, Rectangle sourceRegion) {
+        this.directDecoding = directDecoding;
+        this.subsampling = subsampling;
+        this.maxDimension = maxDimension;
+        this.sourceRegion = sourceRegion;
+    }
+
+    /**
+     * Returns the options used by {@link FileSystemImageManager#loadImage(java.io.File)}.
+     */
+    public static LoadOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Sets whether the decoder should write straight into a TYPE_INT_RGB destination image.
+     * This skips the conversion copy for formats whose decoder supports it (such as JPEG)
+     * and falls back to decoding and converting otherwise.
+     */
+    public LoadOptions withDirectDecoding(boolean directDecoding) {
+        return new LoadOptions(directDecoding, subsampling, maxDimension, sourceRegion);
+    }
+
+    /**
+     * Sets the decoder to read only every {@code subsampling}-th pixel in both directions.
+     *
+     * @throws IllegalArgumentException if the subsampling is less than one
+     */
+    public LoadOptions withSubsampling(int subsampling) {
+        if (subsampling < 1) {
+            throw new IllegalArgumentException("Subsampling must be at least 1");
+        }
+        return new LoadOptions(directDecoding, subsampling, maxDimension, sourceRegion);
+    }
+
+    /**
+     * Limits the width and height of the loaded image. The smallest integer subsampling
+     * that fits the (region of the) source into the limit is chosen from the image header,
+     * so the result may be smaller than the limit but never larger.
+     *
+     * @throws IllegalArgumentException if the dimension is not positive
+     */
+    public LoadOptions withMaxDimension(int maxDimension) {
+        if (maxDimension <= 0) {
+            throw new IllegalArgumentException("Max dimension must be positive");
+        }
+        return new LoadOptions(directDecoding, subsampling, maxDimension, sourceRegion);
+    }
+
+    /**
+     * Restricts decoding to the given region of the source image, in source pixel coordinates.
+     *
+     * @throws IllegalArgumentException if the region is null or empty
+     */
+    public LoadOptions withSourceRegion(Rectangle sourceRegion) {
+        if (sourceRegion == null || sourceRegion.isEmpty()) {
+            throw new IllegalArgumentException("Source region cannot be null or empty");
+        }
+        return new LoadOptions(directDecoding, subsampling, maxDimension, new Rectangle(sourceRegion));
+    }
+
+    public boolean isDirectDecoding() {
+        return directDecoding;
+    }
+
+    public int getSubsampling() {
+        return subsampling;
+    }
+
+    /**
+     * Returns the maximum width and height of the loaded image, or 0 if it is not limited.
+     */
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+
+    /**
+     * Returns the region of the source to decode, or null for the whole image.
+     */
+    public Rectangle getSourceRegion() {
+        return sourceRegion == null ? null : new Rectangle(sourceRegion);
+    }
+
+    /**
+     * Returns the part of a source of the given size that is decoded.
+     *
+     * @throws IOException if the source region lies outside of the source
+     */
+    Rectangle regionOf(int width, int height) throws IOException {
+        Rectangle region = new Rectangle(width, height);
+        if (sourceRegion != null) {
+            region = region.intersection(sourceRegion);
+            if (region.isEmpty()) {
+                throw new IOException("Source region is outside of the image");
+            }
+        }
+        return region;
+    }
+
+    /**
+     * Returns the subsampling applied to the given decoded region, raised as needed to fit the max dimension.
+     */
+    int subsamplingOf(Rectangle region) {
+        if (maxDimension == 0) {
+            return subsampling;
+        }
+        int longestSide = Math.max(region.width, region.height);
+        return Math.max(subsampling, (longestSide + maxDimension - 1) / maxDimension);
+    }
+
+    /**
+     * Returns whether the whole image is decoded at full resolution.
+     */
+    boolean isFullDecode() {
+        return subsampling == 1 && maxDimension == 0 && sourceRegion == null;
+    }
+}
@@ -3,18 +3,49 @@ package kg.projects.image.editor.imagekit.filesystem;
 /*import bg.sofia.uni.fmi.mjt.imagekit.algorithm.detection.SobelEdgeDetection;
 import bg.sofia.uni.fmi.mjt.imagekit.algorithm.grayscale.LuminosityGrayscale;*/
 
+import kg.projects.image.editor.imagekit.metrics.Instrumentation;
+import kg.projects.image.editor.imagekit.metrics.StageTimer;
+import kg.projects.image.editor.imagekit.raster.ImagePool;
+import kg.projects.image.editor.imagekit.raster.PixelPlane;
+
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.SampleModel;
 import java.io.File;
 import java.io.IOException;
+import java.io.BufferedOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class LocalFileSystemImageManager implements FileSystemImageManager {
     private static final Set<String> SUPPORTED_FORMATS = Set.of("jpg", "jpeg", "png", "bmp");
 
-    private static boolean isSupportedFormat(File file) {
+    /**
+     * Returns whether the name of the file ends with the extension of a supported image format.
+     */
+    public static boolean isSupportedFormat(File file) {
         if (file == null) {
             return false;
         }
@@ -30,14 +61,150 @@ public class LocalFileSystemImageManager implements FileSystemImageManager {
         return imageFile.getName().substring(imageFile.getName().lastIndexOf('.') + 1);
     }
 
+    private final int loadConcurrency;
+    private final ImagePool imagePool;
+    private final MemoryBudget memoryBudget;
+
     public LocalFileSystemImageManager() {
+        this(1);
+    }
+
+    /**
+     * Creates a manager that decodes up to {@code loadConcurrency} files of a directory at the same time.
+     *
+     * @param loadConcurrency the maximum number of files decoded in parallel
+     * @throws IllegalArgumentException if the concurrency is not positive
+     */
+    public LocalFileSystemImageManager(int loadConcurrency) {
+        if (loadConcurrency <= 0) {
+            throw new IllegalArgumentException("Load concurrency must be positive");
+        }
+        this.loadConcurrency = loadConcurrency;
+        this.imagePool = null;
+        this.memoryBudget = null;
+    }
+
+    /**
+     * Creates a manager whose {@link #loadImage} draws the TYPE_INT_RGB images it returns from a pool.
+     * Releasing loaded images back to the pool once they are processed lets loading same-sized files
+     * reuse their rasters.
+     *
+     * @param loadConcurrency the maximum number of files decoded in parallel
+     * @param imagePool       the pool loaded images are acquired from
+     * @throws IllegalArgumentException if the concurrency is not positive or the pool is null
+     */
+    public LocalFileSystemImageManager(int loadConcurrency, ImagePool imagePool) {
+        if (loadConcurrency <= 0) {
+            throw new IllegalArgumentException("Load concurrency must be positive");
+        }
+        if (imagePool == null) {
+            throw new IllegalArgumentException("Image pool cannot be null");
+        }
+        this.loadConcurrency = loadConcurrency;
+        this.imagePool = imagePool;
+        this.memoryBudget = null;
+    }
+
+    private LocalFileSystemImageManager(int loadConcurrency, ImagePool imagePool, MemoryBudget memoryBudget) {
+        this.loadConcurrency = loadConcurrency;
+        this.imagePool = imagePool;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Returns a manager like this one that admits a decode only once the pixel bytes it is projected to allocate,
+     * {@linkplain ImageInfo#estimateLoadBytes estimated} from the {@linkplain #probe header} of the file, fit
+     * into the budget. The bytes are returned when the decode finishes, so the budget bounds the memory of the
+     * decodes in flight, while the images already returned are held by the caller. A file that alone exceeds
+     * the budget fails with an {@link IOException} before anything is decoded.
+     * Sharing one budget between managers and threads bounds their decodes together.
+     *
+     * @throws IllegalArgumentException if the budget is null
+     */
+    public LocalFileSystemImageManager withMemoryBudget(MemoryBudget memoryBudget) {
+        if (memoryBudget == null) {
+            throw new IllegalArgumentException("Memory budget cannot be null");
+        }
+        return new LocalFileSystemImageManager(loadConcurrency, imagePool, memoryBudget);
+    }
+
+    /**
+     * Reads the format, dimensions and pixel layout of an image from its header, without decoding any pixel.
+     * The format is recognized by the signature at the start of the file, whatever its name.
+     *
+     * @throws IllegalArgumentException if the file is null
+     * @throws IOException              if the file does not exist, is not a regular file,
+     *                                  does not start with the signature of a supported format
+     *                                  or has a malformed header
+     */
+    public ImageInfo probe(File imageFile) throws IOException {
+        if (imageFile == null) {
+            throw new IllegalArgumentException("imageFile cannot be null");
+        }
+        if (!imageFile.isFile()) {
+            throw new IOException("File does not exist or is not a regular file");
+        }
+
+        byte[] header = new byte[ImageFormat.SIGNATURE_LENGTH];
+        int length;
+        try (InputStream input = Files.newInputStream(imageFile.toPath())) {
+            length = input.readNBytes(header, 0, header.length);
+        }
+        ImageFormat format = ImageFormat.detect(header, length);
+        if (format == null) {
+            throw new IOException("File is not in a supported image format");
+        }
+
+        try (ImageInputStream input = ImageIO.createImageInputStream(imageFile)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName(format.getFormatName());
+            if (input == null || !readers.hasNext()) {
+                throw new IOException("No reader available for " + format);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                ImageTypeSpecifier type = reader.getRawImageType(0);
+                if (type == null) {
+                    type = reader.getImageTypes(0).next();
+                }
+                SampleModel sampleModel = type.getSampleModel();
+                return new ImageInfo(format, reader.getWidth(0), reader.getHeight(0), sampleModel.getNumBands(),
+                        bitsPerPixel(sampleModel), type.getColorModel().hasAlpha());
+            } catch (RuntimeException e) {
+                throw new IOException("Malformed image header", e);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Returns the bits a raster with the given sample model stores per pixel, including padding.
+     */
+    private static int bitsPerPixel(SampleModel sampleModel) {
+        int elementBits = DataBuffer.getDataTypeSize(sampleModel.getDataType());
+        if (sampleModel instanceof ComponentSampleModel component) {
+            return Math.max(component.getPixelStride(), component.getNumBands()) * elementBits;
+        }
+        if (sampleModel instanceof MultiPixelPackedSampleModel packed) {
+            return packed.getPixelBitStride();
+        }
+        return elementBits;
     }
 
     @Override
     public BufferedImage loadImage(File imageFile) throws IOException {
+        return loadImage(imageFile, LoadOptions.defaults());
+    }
+
+    @Override
+    public BufferedImage loadImage(File imageFile, LoadOptions options) throws IOException {
         if (imageFile == null) {
             throw new IllegalArgumentException("imageFile cannot be null");
         }
+        if (options == null) {
+            throw new IllegalArgumentException("options cannot be null");
+        }
 
         if (!imageFile.exists() || !imageFile.isFile()) {
             throw new IOException("File does not exist or is not a regular file");
@@ -47,25 +214,132 @@ public class LocalFileSystemImageManager implements FileSystemImageManager {
             throw new IOException("File has a unsupported image format");
         }
 
-        BufferedImage originalImage = ImageIO.read(imageFile);
+        return withinBudget(imageFile, options, file -> decodeAndNormalize(file, options));
+    }
+
+    /**
+     * Decodes the file, first waiting for the memory budget to admit it if there is one.
+     */
+    private BufferedImage withinBudget(File imageFile, LoadOptions options, ImageFileIterator.Decoder decoder)
+            throws IOException {
+        if (memoryBudget == null) {
+            return decoder.decode(imageFile);
+        }
+        long bytes = probe(imageFile).estimateLoadBytes(options);
+        memoryBudget.acquire(bytes);
+        try {
+            return decoder.decode(imageFile);
+        } finally {
+            memoryBudget.release(bytes);
+        }
+    }
+
+    private BufferedImage decodeAndNormalize(File imageFile, LoadOptions options) throws IOException {
+        StageTimer decodeTimer = Instrumentation.start(Instrumentation.DECODE);
+        BufferedImage originalImage = options.isDirectDecoding() || !options.isFullDecode()
+                ? decode(imageFile, options, options.isDirectDecoding())
+                : ImageIO.read(imageFile);
         if (originalImage == null) {
             throw new IOException("Failed to load image");
         }
+        long pixels = (long) originalImage.getWidth() * originalImage.getHeight();
+        decodeTimer.stop(pixels);
 
-        BufferedImage rgbImage = new BufferedImage(
-                originalImage.getWidth(), originalImage.getHeight(), BufferedImage.TYPE_INT_RGB);
+        StageTimer normalizeTimer = Instrumentation.start(Instrumentation.NORMALIZE);
+        BufferedImage image = imagePool == null
+                ? PixelPlane.toRgbImage(originalImage)
+                : PixelPlane.toRgbImage(originalImage, imagePool);
+        normalizeTimer.stop(pixels);
+        return image;
+    }
 
-        for (int x = 0; x < originalImage.getWidth(); x++) {
-            for (int y = 0; y < originalImage.getHeight(); y++) {
-                rgbImage.setRGB(x, y, originalImage.getRGB(x, y));
+    /**
+     * Decodes the image through an {@link ImageReader}, applying the source region and subsampling of the options.
+     * With {@code toRgb} the decoder writes straight into a TYPE_INT_RGB image when the source has three
+     * color bands and the decoder accepts the destination, otherwise it decodes into its own type.
+     */
+    private BufferedImage decode(File imageFile, LoadOptions options, boolean toRgb) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(imageFile)) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                return null;
             }
-        }
 
-        return rgbImage;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input);
+                Rectangle region = options.regionOf(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = options.subsamplingOf(region);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(region);
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+                ImageTypeSpecifier rawType = reader.getRawImageType(0);
+                if (!toRgb || rawType == null || rawType.getNumBands() != 3 || rawType.getColorModel().hasAlpha()) {
+                    return reader.read(0, param);
+                }
+
+                int width = (region.width + subsampling - 1) / subsampling;
+                int height = (region.height + subsampling - 1) / subsampling;
+                BufferedImage destination = imagePool == null
+                        ? new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)
+                        : imagePool.acquire(width, height);
+                param.setDestination(destination);
+                try {
+                    return reader.read(0, param);
+                } catch (RuntimeException e) {
+                    // Some decoders (such as BMP) reject foreign destination rasters
+                    if (imagePool != null) {
+                        imagePool.release(destination);
+                    }
+                    return decode(imageFile, options, false);
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
     }
 
     @Override
     public List<BufferedImage> loadImagesFromDirectory(File imagesDirectory) throws IOException {
+        List<File> imageFiles = new ArrayList<>();
+        boolean hasUnsupportedFile = listImageFiles(imagesDirectory, imageFiles);
+
+        // Files listed before an unsupported one are still decoded, so their errors are reported first
+        List<BufferedImage> images = new ArrayList<>(imageFiles.size());
+        try (ImageFileIterator iterator = new ImageFileIterator(
+                imageFiles, this::readImageWithinBudget, loadConcurrency)) {
+            while (iterator.hasNext()) {
+                images.add(iterator.nextImage());
+            }
+        }
+        if (hasUnsupportedFile) {
+            throw new IOException("Directory contains unsupported file format");
+        }
+        return images;
+    }
+
+    @Override
+    public Stream<BufferedImage> streamImagesFromDirectory(File imagesDirectory) throws IOException {
+        List<File> imageFiles = new ArrayList<>();
+        if (listImageFiles(imagesDirectory, imageFiles)) {
+            throw new IOException("Directory contains unsupported file format");
+        }
+
+        ImageFileIterator iterator = new ImageFileIterator(
+                imageFiles, this::readImageWithinBudget, loadConcurrency);
+        Spliterator<BufferedImage> spliterator = Spliterators.spliterator(
+                iterator, imageFiles.size(), Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(iterator::close);
+    }
+
+    /**
+     * Collects the supported image files of a directory in listing order, up to the first unsupported file.
+     *
+     * @return whether an unsupported file was found
+     */
+    private static boolean listImageFiles(File imagesDirectory, List<File> imageFiles) throws IOException {
         if (imagesDirectory == null) {
             throw new IllegalArgumentException("Directory cannot be null");
         }
@@ -79,30 +353,46 @@ public class LocalFileSystemImageManager implements FileSystemImageManager {
             throw new IOException("Failed to process files in directory");
         }
 
-        List<BufferedImage> images = new ArrayList<>();
-
         for (File file : files) {
             if (file.isFile() && isSupportedFormat(file)) {
-                BufferedImage img = ImageIO.read(file);
-                if (img == null) {
-                    throw new IOException("Failed to load image");
-                }
-                images.add(img);
-            } else if  (file.isFile()) {
-                throw new IOException("Directory contains unsupported file format");
+                imageFiles.add(file);
+            } else if (file.isFile()) {
+                return true;
             }
         }
-        return images;
+        return false;
+    }
+
+    private BufferedImage readImageWithinBudget(File file) throws IOException {
+        return withinBudget(file, LoadOptions.defaults(), LocalFileSystemImageManager::readImage);
+    }
+
+    private static BufferedImage readImage(File file) throws IOException {
+        StageTimer timer = Instrumentation.start(Instrumentation.DECODE);
+        BufferedImage img = ImageIO.read(file);
+        if (img == null) {
+            throw new IOException("Failed to load image");
+        }
+        timer.stop((long) img.getWidth() * img.getHeight());
+        return img;
     }
 
     @Override
     public void saveImage(BufferedImage image, File imageFile) throws IOException {
+        saveImage(image, imageFile, SaveOptions.defaults());
+    }
+
+    @Override
+    public void saveImage(BufferedImage image, File imageFile, SaveOptions options) throws IOException {
         if (image == null) {
             throw new IllegalArgumentException("Image cannot be null");
         }
         if (imageFile == null) {
             throw new IllegalArgumentException("ImageFile cannot be null");
         }
+        if (options == null) {
+            throw new IllegalArgumentException("Options cannot be null");
+        }
 
         if (imageFile.exists()) {
             throw new IOException("File already exists");
@@ -117,10 +407,74 @@ public class LocalFileSystemImageManager implements FileSystemImageManager {
             throw new IOException("Unsupported image format for saving");
         }
 
-        boolean success = ImageIO.write(image, getExtension(imageFile), imageFile);
+        StageTimer timer = Instrumentation.start(Instrumentation.ENCODE);
+        String extension = getExtension(imageFile);
+        boolean success;
+        if (extension.equals("png") && !options.isProgressive() && GrayPngWriter.canWrite(image)) {
+            writeGrayPng(image, imageFile, options);
+            success = true;
+        } else if (options.getJpegQuality() < 0 && options.getPngCompressionLevel() < 0 && !options.isProgressive()) {
+            success = ImageIO.write(image, extension, imageFile);
+        } else {
+            success = write(image, extension, imageFile, options);
+        }
         if (!success) {
             throw new IOException("Failed to save image" );
         }
+        timer.stop((long) image.getWidth() * image.getHeight());
+    }
+
+    private static void writeGrayPng(BufferedImage image, File imageFile, SaveOptions options) throws IOException {
+        try (OutputStream output = new BufferedOutputStream(
+                Files.newOutputStream(imageFile.toPath(), StandardOpenOption.CREATE_NEW))) {
+            GrayPngWriter.write(image, output, options);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(imageFile.toPath());
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the image through an {@link ImageWriter} configured with the quality, compression level
+     * and progressive mode of the options.
+     *
+     * @return false if no writer can encode the image in the format
+     */
+    private static boolean write(BufferedImage image, String extension, File imageFile, SaveOptions options)
+            throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWriters(
+                ImageTypeSpecifier.createFromRenderedImage(image), extension);
+        if (!writers.hasNext()) {
+            return false;
+        }
+
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(imageFile)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            boolean jpeg = extension.equals("jpg") || extension.equals("jpeg");
+            boolean png = extension.equals("png");
+            if (jpeg && options.getJpegQuality() >= 0) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(options.getJpegQuality());
+            }
+            if (png && options.getPngCompressionLevel() >= 0) {
+                // The PNG writer maps a quality q to the deflate level 9 - round(9 * q)
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality((9 - options.getPngCompressionLevel()) / 9f);
+            }
+            if ((jpeg || png) && param.canWriteProgressive()) {
+                param.setProgressiveMode(options.isProgressive()
+                        ? ImageWriteParam.MODE_DEFAULT : ImageWriteParam.MODE_DISABLED);
+            }
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(imageFile.toPath());
+            throw e;
+        } finally {
+            writer.dispose();
+        }
+        return true;
     }
 
     /*public static void main(String[] args) throws IOException {
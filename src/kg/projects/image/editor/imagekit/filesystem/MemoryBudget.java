@@ -0,0 +1,84 @@
+package kg.projects.image.editor.imagekit.filesystem;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Admits work while the bytes it is projected to allocate, together with those of the work already admitted,
+ * stay within a fixed budget. Requests are admitted in arrival order, so a large one is not starved by
+ * a stream of small ones; a request larger than the whole budget is rejected rather than left waiting forever.
+ * <p>
+ * Shared by several {@link LocalFileSystemImageManager}s or loading threads, it bounds the pixel memory of
+ * all decodes in flight while letting as many of them run as fit.
+ */
+public final class MemoryBudget {
+    private final long budgetBytes;
+    private final Deque<Object> waiting = new ArrayDeque<>();
+    private long usedBytes;
+
+    /**
+     * @param budgetBytes the number of bytes admitted work may use at the same time
+     * @throws IllegalArgumentException if the budget is not positive
+     */
+    public MemoryBudget(long budgetBytes) {
+        if (budgetBytes <= 0) {
+            throw new IllegalArgumentException("Memory budget must be positive");
+        }
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Waits until the bytes fit into the budget, after every earlier request has been admitted, and reserves them.
+     *
+     * @throws IllegalArgumentException if the number of bytes is negative
+     * @throws IOException              if the bytes exceed the whole budget, or the thread is interrupted
+     */
+    public synchronized void acquire(long bytes) throws IOException {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Bytes cannot be negative");
+        }
+        if (bytes > budgetBytes) {
+            throw new IOException("Image needs " + bytes + " bytes, more than the memory budget of "
+                    + budgetBytes);
+        }
+
+        Object turn = new Object();
+        waiting.addLast(turn);
+        try {
+            while (waiting.peekFirst() != turn || usedBytes + bytes > budgetBytes) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            waiting.remove(turn);
+            notifyAll();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for memory");
+        }
+        waiting.removeFirst();
+        usedBytes += bytes;
+        notifyAll();
+    }
+
+    /**
+     * Returns bytes reserved by {@link #acquire} to the budget.
+     *
+     * @throws IllegalArgumentException if more bytes are released than are reserved
+     */
+    public synchronized void release(long bytes) {
+        if (bytes < 0 || bytes > usedBytes) {
+            throw new IllegalArgumentException("Cannot release more bytes than are reserved");
+        }
+        usedBytes -= bytes;
+        notifyAll();
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+}
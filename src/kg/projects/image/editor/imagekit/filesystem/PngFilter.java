@@ -0,0 +1,52 @@
+package kg.projects.image.editor.imagekit.filesystem;
+
+/**
+ * The filter the fast gray PNG writer applies to each row before compression.
+ * A filter replaces every byte by its difference from a prediction made from the bytes to its left and above,
+ * which turns the smooth areas of an image into runs of small values that deflate compresses well.
+ */
+public enum PngFilter {
+    /**
+     * Stores the bytes as they are. The fastest filter, and often the best one for sparse edge maps.
+     */
+    NONE(0),
+
+    /**
+     * Predicts each byte from the byte to its left.
+     */
+    SUB(1),
+
+    /**
+     * Predicts each byte from the byte above it.
+     */
+    UP(2),
+
+    /**
+     * Predicts each byte from the mean of the bytes to its left and above it.
+     */
+    AVERAGE(3),
+
+    /**
+     * Predicts each byte from the left, upper or upper-left byte, whichever is nearest to their gradient.
+     */
+    PAETH(4),
+
+    /**
+     * Applies all of the other filters to each row and keeps the one with the smallest sum of absolute
+     * differences. The slowest choice, and the one the standard PNG writer makes.
+     */
+    ADAPTIVE(-1);
+
+    private final int type;
+
+    PngFilter(int type) {
+        this.type = type;
+    }
+
+    /**
+     * Returns the filter type byte that starts each row filtered this way.
+     */
+    int type() {
+        return type;
+    }
+}
@@ -0,0 +1,120 @@
+package kg.projects.image.editor.imagekit.filesystem;
+
+import kg.projects.image.editor.imagekit.algorithm.parallel.RowBandExecutor;
+
+/**
+ * Options controlling how a single image is encoded by a {@link FileSystemImageManager}.
+ * Each option applies only to the formats named in its description; the others ignore it.
+ * Instances are immutable; every {@code with} method returns a modified copy.
+ */
+public final class SaveOptions {
+    private static final SaveOptions DEFAULTS =
+            new SaveOptions(-1f, -1, PngFilter.ADAPTIVE, false, RowBandExecutor.common());
+
+    private final float jpegQuality;
+    private final int pngCompressionLevel;
+    private final PngFilter pngFilter;
+    private final boolean progressive;
+    private final RowBandExecutor pngExecutor;
+
+    private SaveOptions(float jpegQuality, int pngCompressionLevel, PngFilter pngFilter, boolean progressive,
+                        RowBandExecutor pngExecutor) {
+        this.jpegQuality = jpegQuality;
+        this.pngCompressionLevel = pngCompressionLevel;
+        this.pngFilter = pngFilter;
+        this.progressive = progressive;
+        this.pngExecutor = pngExecutor;
+    }
+
+    /**
+     * Returns the options used by {@link FileSystemImageManager#saveImage(java.awt.image.BufferedImage,
+     * java.io.File)}: the default quality and compression level of the encoders, adaptive filtering,
+     * no progressive encoding, and gray PNGs compressed on the common fork/join pool.
+     */
+    public static SaveOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Sets the JPEG quality, from 0 (smallest file) to 1 (best quality).
+     *
+     * @throws IllegalArgumentException if the quality is outside of [0, 1]
+     */
+    public SaveOptions withJpegQuality(float jpegQuality) {
+        if (!(jpegQuality >= 0f && jpegQuality <= 1f)) {
+            throw new IllegalArgumentException("JPEG quality must be in [0, 1]");
+        }
+        return new SaveOptions(jpegQuality, pngCompressionLevel, pngFilter, progressive, pngExecutor);
+    }
+
+    /**
+     * Sets the PNG deflate level, from 0 (no compression, fastest) to 9 (smallest file, slowest).
+     *
+     * @throws IllegalArgumentException if the level is outside of [0, 9]
+     */
+    public SaveOptions withPngCompressionLevel(int pngCompressionLevel) {
+        if (pngCompressionLevel < 0 || pngCompressionLevel > 9) {
+            throw new IllegalArgumentException("PNG compression level must be in [0, 9]");
+        }
+        return new SaveOptions(jpegQuality, pngCompressionLevel, pngFilter, progressive, pngExecutor);
+    }
+
+    /**
+     * Sets the row filter of 8-bit gray PNGs. Other PNGs are always filtered adaptively by the standard writer.
+     *
+     * @throws IllegalArgumentException if the filter is null
+     */
+    public SaveOptions withPngFilter(PngFilter pngFilter) {
+        if (pngFilter == null) {
+            throw new IllegalArgumentException("PNG filter cannot be null");
+        }
+        return new SaveOptions(jpegQuality, pngCompressionLevel, pngFilter, progressive, pngExecutor);
+    }
+
+    /**
+     * Sets whether JPEGs are encoded progressively and PNGs interlaced, so that a coarse version of the image
+     * can be shown before the whole file is read. Interlaced PNGs are written by the standard, serial writer.
+     */
+    public SaveOptions withProgressive(boolean progressive) {
+        return new SaveOptions(jpegQuality, pngCompressionLevel, pngFilter, progressive, pngExecutor);
+    }
+
+    /**
+     * Sets the executor 8-bit gray PNGs are compressed on, in strips of rows whose deflate streams are joined
+     * into one. {@link RowBandExecutor#serial()} compresses them on the calling thread.
+     *
+     * @throws IllegalArgumentException if the executor is null
+     */
+    public SaveOptions withPngExecutor(RowBandExecutor pngExecutor) {
+        if (pngExecutor == null) {
+            throw new IllegalArgumentException("PNG executor cannot be null");
+        }
+        return new SaveOptions(jpegQuality, pngCompressionLevel, pngFilter, progressive, pngExecutor);
+    }
+
+    /**
+     * Returns the JPEG quality, or -1 for the default of the encoder.
+     */
+    public float getJpegQuality() {
+        return jpegQuality;
+    }
+
+    /**
+     * Returns the PNG deflate level, or -1 for the default of the encoder.
+     */
+    public int getPngCompressionLevel() {
+        return pngCompressionLevel;
+    }
+
+    public PngFilter getPngFilter() {
+        return pngFilter;
+    }
+
+    public boolean isProgressive() {
+        return progressive;
+    }
+
+    public RowBandExecutor getPngExecutor() {
+        return pngExecutor;
+    }
+}
@@ -0,0 +1,120 @@
+package kg.projects.image.editor.imagekit.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A registry that aggregates the measurements in memory: a latency histogram, the pixel throughput and
+ * the allocation per image of every stage, and the depths of every queue. Recording is lock-free.
+ */
+public final class InMemoryMetricsRegistry implements MetricsRegistry {
+    private final Map<String, StageRecorder> stages = new ConcurrentHashMap<>();
+    private final Map<String, QueueRecorder> queues = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordStage(String stage, long durationNanos, long pixels, long allocatedBytes) {
+        if (stage == null) {
+            throw new IllegalArgumentException("Stage cannot be null");
+        }
+        stages.computeIfAbsent(stage, name -> new StageRecorder()).record(durationNanos, pixels, allocatedBytes);
+    }
+
+    @Override
+    public void recordQueueDepth(String queue, int depth) {
+        if (queue == null) {
+            throw new IllegalArgumentException("Queue cannot be null");
+        }
+        queues.computeIfAbsent(queue, name -> new QueueRecorder()).record(depth);
+    }
+
+    /**
+     * Returns the statistics of a stage, or null if it was never recorded.
+     */
+    public StageStatistics getStageStatistics(String stage) {
+        StageRecorder recorder = stages.get(stage);
+        return recorder == null ? null : recorder.snapshot(stage);
+    }
+
+    /**
+     * Returns the statistics of every recorded stage, sorted by name.
+     */
+    public Map<String, StageStatistics> getStageStatistics() {
+        Map<String, StageStatistics> snapshot = new TreeMap<>();
+        stages.forEach((stage, recorder) -> snapshot.put(stage, recorder.snapshot(stage)));
+        return snapshot;
+    }
+
+    /**
+     * Returns the statistics of a queue, or null if it was never recorded.
+     */
+    public QueueStatistics getQueueStatistics(String queue) {
+        QueueRecorder recorder = queues.get(queue);
+        return recorder == null ? null : recorder.snapshot(queue);
+    }
+
+    /**
+     * Returns the statistics of every recorded queue, sorted by name.
+     */
+    public Map<String, QueueStatistics> getQueueStatistics() {
+        Map<String, QueueStatistics> snapshot = new TreeMap<>();
+        queues.forEach((queue, recorder) -> snapshot.put(queue, recorder.snapshot(queue)));
+        return snapshot;
+    }
+
+    /**
+     * Drops everything recorded so far.
+     */
+    public void reset() {
+        stages.clear();
+        queues.clear();
+    }
+
+    private static final class StageRecorder {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder pixels = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final LongAdder allocationSamples = new LongAdder();
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        void record(long durationNanos, long stagePixels, long stageAllocatedBytes) {
+            count.increment();
+            totalNanos.add(durationNanos);
+            maxNanos.accumulateAndGet(durationNanos, Math::max);
+            pixels.add(stagePixels);
+            if (stageAllocatedBytes >= 0) {
+                allocatedBytes.add(stageAllocatedBytes);
+                allocationSamples.increment();
+            }
+            histogram.record(durationNanos);
+        }
+
+        StageStatistics snapshot(String stage) {
+            return new StageStatistics(stage, count.sum(), totalNanos.sum(), maxNanos.get(), pixels.sum(),
+                    allocatedBytes.sum(), allocationSamples.sum(), histogram.snapshot());
+        }
+    }
+
+    private static final class QueueRecorder {
+        private final LongAdder samples = new LongAdder();
+        private final LongAdder depthSum = new LongAdder();
+        private final AtomicInteger lastDepth = new AtomicInteger();
+        private final AtomicInteger maxDepth = new AtomicInteger();
+
+        void record(int depth) {
+            samples.increment();
+            depthSum.add(depth);
+            lastDepth.set(depth);
+            maxDepth.accumulateAndGet(depth, Math::max);
+        }
+
+        QueueStatistics snapshot(String queue) {
+            return new QueueStatistics(queue, samples.sum(), depthSum.sum(), lastDepth.get(), maxDepth.get());
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package kg.projects.image.editor.imagekit.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * The entry point the image kit reports its measurements through. Every stage is timed into the installed
+ * {@link MetricsRegistry} and emitted as a {@code kg.projects.imagekit.Stage} JDK Flight Recorder event;
+ * queue depths go the same way as {@code kg.projects.imagekit.QueueDepth} events.
+ * With no registry installed and no recording of the events, starting a stage costs a volatile read
+ * and a check of the event, and stopping it a reference comparison.
+ */
+public final class Instrumentation {
+    /**
+     * Reading and decoding a file.
+     */
+    public static final String DECODE = "decode";
+    /**
+     * Converting a decoded image to TYPE_INT_RGB.
+     */
+    public static final String NORMALIZE = "normalize";
+    /**
+     * Encoding and writing an image.
+     */
+    public static final String ENCODE = "encode";
+
+    private static final ClassValue<String> STAGE_NAMES = new ClassValue<>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            return type.getSimpleName();
+        }
+    };
+
+    private static volatile MetricsRegistry registry;
+
+    private Instrumentation() {
+    }
+
+    /**
+     * Installs the registry that receives all measurements, replacing the previous one.
+     *
+     * @param metricsRegistry the registry, or null to stop recording into a registry
+     */
+    public static void setRegistry(MetricsRegistry metricsRegistry) {
+        registry = metricsRegistry;
+    }
+
+    /**
+     * Returns the installed registry, or null if there is none.
+     */
+    public static MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Starts timing a stage.
+     *
+     * @param stage the name of the stage
+     * @return the timer to stop once the stage is done
+     */
+    public static StageTimer start(String stage) {
+        MetricsRegistry current = registry;
+        StageEvent event = new StageEvent();
+        if (current == null && !event.isEnabled()) {
+            return StageTimer.DISABLED;
+        }
+        return begin(stage, current, event);
+    }
+
+    /**
+     * Starts timing a stage named after the simple name of a class, such as an algorithm.
+     *
+     * @param type the class whose simple name names the stage
+     * @return the timer to stop once the stage is done
+     */
+    public static StageTimer start(Class<?> type) {
+        MetricsRegistry current = registry;
+        StageEvent event = new StageEvent();
+        if (current == null && !event.isEnabled()) {
+            return StageTimer.DISABLED;
+        }
+        return begin(STAGE_NAMES.get(type), current, event);
+    }
+
+    /**
+     * Records the number of items waiting in a queue.
+     *
+     * @param queue the name of the queue
+     * @param depth the number of waiting items
+     */
+    public static void queueDepth(String queue, int depth) {
+        MetricsRegistry current = registry;
+        if (current != null) {
+            current.recordQueueDepth(queue, depth);
+        }
+        QueueDepthEvent event = new QueueDepthEvent();
+        if (event.isEnabled()) {
+            event.queue = queue;
+            event.depth = depth;
+            event.commit();
+        }
+    }
+
+    private static StageTimer begin(String stage, MetricsRegistry current, StageEvent event) {
+        boolean recordEvent = event.isEnabled();
+        if (recordEvent) {
+            event.begin();
+        }
+        return new StageTimer(stage, current, recordEvent ? event : null, System.nanoTime(),
+                currentThreadAllocatedBytes());
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread so far, or -1 if the JVM does not measure them.
+     */
+    static long currentThreadAllocatedBytes() {
+        com.sun.management.ThreadMXBean threads = AllocationCounter.THREADS;
+        return threads == null ? -1 : threads.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Holds the thread bean, so the management classes are only loaded once something is recorded.
+     */
+    private static final class AllocationCounter {
+        private static final com.sun.management.ThreadMXBean THREADS = load();
+
+        private static com.sun.management.ThreadMXBean load() {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean allocations
+                    && allocations.isThreadAllocatedMemorySupported()
+                    && allocations.isThreadAllocatedMemoryEnabled()) {
+                return allocations;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package kg.projects.image.editor.imagekit.metrics;
+
+/**
+ * Receives the measurements of the image kit. Installed with {@link Instrumentation#setRegistry(MetricsRegistry)},
+ * it is called from every thread that loads, processes or saves images, so implementations must be thread-safe
+ * and should return quickly.
+ */
+public interface MetricsRegistry {
+
+    /**
+     * Records one completed stage, such as decoding a file or running an algorithm over an image.
+     *
+     * @param stage          the name of the stage
+     * @param durationNanos  the wall time of the stage in nanoseconds
+     * @param pixels         the number of pixels the stage handled
+     * @param allocatedBytes the bytes the calling thread allocated during the stage, or -1 if not measured
+     */
+    void recordStage(String stage, long durationNanos, long pixels, long allocatedBytes);
+
+    /**
+     * Records the number of items waiting in a queue between two stages.
+     *
+     * @param queue the name of the queue
+     * @param depth the number of waiting items
+     */
+    void recordQueueDepth(String queue, int depth);
+}
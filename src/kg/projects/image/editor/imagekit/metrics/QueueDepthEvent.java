@@ -0,0 +1,21 @@
+package kg.projects.image.editor.imagekit.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("kg.projects.imagekit.QueueDepth")
+@Label("Image Queue Depth")
+@Category("Image Kit")
+@Description("The number of images waiting between two stages")
+@StackTrace(false)
+final class QueueDepthEvent extends Event {
+    @Label("Queue")
+    String queue;
+
+    @Label("Depth")
+    int depth;
+}
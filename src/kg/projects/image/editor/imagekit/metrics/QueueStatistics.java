@@ -0,0 +1,46 @@
+package kg.projects.image.editor.imagekit.metrics;
+
+/**
+ * A snapshot of the depths recorded for one queue by an {@link InMemoryMetricsRegistry}.
+ */
+public final class QueueStatistics {
+    private final String queue;
+    private final long samples;
+    private final long depthSum;
+    private final int lastDepth;
+    private final int maxDepth;
+
+    QueueStatistics(String queue, long samples, long depthSum, int lastDepth, int maxDepth) {
+        this.queue = queue;
+        this.samples = samples;
+        this.depthSum = depthSum;
+        this.lastDepth = lastDepth;
+        this.maxDepth = maxDepth;
+    }
+
+    public String getQueue() {
+        return queue;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public int getLastDepth() {
+        return lastDepth;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public double getMeanDepth() {
+        return samples == 0 ? 0 : (double) depthSum / samples;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: samples=%d last=%d mean=%.2f max=%d",
+                queue, samples, lastDepth, getMeanDepth(), maxDepth);
+    }
+}
@@ -0,0 +1,25 @@
+package kg.projects.image.editor.imagekit.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("kg.projects.imagekit.Stage")
+@Label("Image Stage")
+@Category("Image Kit")
+@Description("Decoding, normalizing, processing or encoding one image")
+final class StageEvent extends Event {
+    @Label("Stage")
+    String stage;
+
+    @Label("Pixels")
+    long pixels;
+
+    @Label("Allocated")
+    @Description("Bytes allocated by the recording thread during the stage, or -1 if not measured")
+    @DataAmount
+    long allocatedBytes;
+}
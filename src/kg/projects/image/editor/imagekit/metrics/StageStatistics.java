@@ -0,0 +1,100 @@
+package kg.projects.image.editor.imagekit.metrics;
+
+/**
+ * A snapshot of the measurements of one stage recorded by an {@link InMemoryMetricsRegistry}.
+ */
+public final class StageStatistics {
+    private final String stage;
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long pixels;
+    private final long allocatedBytes;
+    private final long allocationSamples;
+    private final long[] histogram;
+
+    StageStatistics(String stage, long count, long totalNanos, long maxNanos, long pixels,
+                    long allocatedBytes, long allocationSamples, long[] histogram) {
+        this.stage = stage;
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.pixels = pixels;
+        this.allocatedBytes = allocatedBytes;
+        this.allocationSamples = allocationSamples;
+        this.histogram = histogram;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public long getMeanNanos() {
+        return count == 0 ? 0 : totalNanos / count;
+    }
+
+    /**
+     * Returns an upper bound, within 12.5%, of the duration that the given fraction of the recorded stages
+     * did not exceed.
+     *
+     * @param quantile the fraction, such as 0.5 for the median or 0.99
+     * @return the duration in nanoseconds, or 0 if nothing was recorded
+     * @throws IllegalArgumentException if the quantile is not between 0 and 1
+     */
+    public long getPercentileNanos(double quantile) {
+        if (!(quantile >= 0 && quantile <= 1)) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        }
+        long total = 0;
+        for (long bucketCount : histogram) {
+            total += bucketCount;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.upperBound(i), maxNanos);
+            }
+        }
+        return 0;
+    }
+
+    public long getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Returns the pixels handled per second of stage time, in millions.
+     */
+    public double getMegapixelsPerSecond() {
+        return totalNanos == 0 ? 0 : pixels * 1000.0 / totalNanos;
+    }
+
+    /**
+     * Returns the mean bytes allocated by the calling thread per stage, or -1 if allocations were not measured.
+     * Work the stage hands to other threads, such as parallel row bands, is not included.
+     */
+    public long getAllocatedBytesPerImage() {
+        return allocationSamples == 0 ? -1 : allocatedBytes / allocationSamples;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: count=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms %.1fMP/s %dB/image",
+                stage, count, getMeanNanos() / 1e6, getPercentileNanos(0.5) / 1e6, getPercentileNanos(0.99) / 1e6,
+                maxNanos / 1e6, getMegapixelsPerSecond(), getAllocatedBytesPerImage());
+    }
+}
@@ -0,0 +1,50 @@
+package kg.projects.image.editor.imagekit.metrics;
+
+/**
+ * Measures one running stage, started with {@link Instrumentation#start(String)}.
+ * When instrumentation is disabled the shared disabled timer is returned, and stopping it does nothing.
+ */
+public final class StageTimer {
+    static final StageTimer DISABLED = new StageTimer(null, null, null, 0, 0);
+
+    private final String stage;
+    private final MetricsRegistry registry;
+    private final StageEvent event;
+    private final long startNanos;
+    private final long startAllocatedBytes;
+
+    StageTimer(String stage, MetricsRegistry registry, StageEvent event, long startNanos, long startAllocatedBytes) {
+        this.stage = stage;
+        this.registry = registry;
+        this.event = event;
+        this.startNanos = startNanos;
+        this.startAllocatedBytes = startAllocatedBytes;
+    }
+
+    /**
+     * Ends the stage and records it.
+     *
+     * @param pixels the number of pixels the stage handled
+     */
+    public void stop(long pixels) {
+        if (this == DISABLED) {
+            return;
+        }
+        long durationNanos = System.nanoTime() - startNanos;
+        long allocatedBytes = startAllocatedBytes < 0 ? -1
+                : Instrumentation.currentThreadAllocatedBytes() - startAllocatedBytes;
+
+        if (registry != null) {
+            registry.recordStage(stage, durationNanos, pixels, allocatedBytes);
+        }
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.stage = stage;
+                event.pixels = pixels;
+                event.allocatedBytes = allocatedBytes;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package kg.projects.image.editor.imagekit.pipeline;
+
+import kg.projects.image.editor.imagekit.algorithm.PixelAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.parallel.RowBandExecutor;
+import kg.projects.image.editor.imagekit.raster.PixelPlane;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * Applies a run of adjacent per-pixel algorithms in a single pass over the image.
+ */
+final class FusedPixelStage implements PixelAlgorithm {
+    private final PixelAlgorithm[] algorithms;
+    private final RowBandExecutor executor;
+
+    FusedPixelStage(List<PixelAlgorithm> algorithms, RowBandExecutor executor) {
+        this.algorithms = algorithms.toArray(new PixelAlgorithm[0]);
+        this.executor = executor;
+    }
+
+    @Override
+    public BufferedImage process(BufferedImage image, BufferedImage destination) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] target = PixelPlane.wrapRgb(destination, width, height).pixels();
+        int[] source = PixelPlane.of(image).pixels();
+
+        executor.execute(width, height, (fromRow, toRow) -> {
+            for (int i = fromRow * width; i < toRow * width; i++) {
+                target[i] = processPixel(source[i]);
+            }
+        });
+        return destination;
+    }
+
+    @Override
+    public int processPixel(int pixel) {
+        for (PixelAlgorithm algorithm : algorithms) {
+            pixel = algorithm.processPixel(pixel);
+        }
+        return pixel;
+    }
+}
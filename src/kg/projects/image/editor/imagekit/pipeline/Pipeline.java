@@ -0,0 +1,300 @@
+package kg.projects.image.editor.imagekit.pipeline;
+
+import kg.projects.image.editor.imagekit.algorithm.GrayPlaneAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.ImageAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.PixelAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.parallel.RowBandExecutor;
+import kg.projects.image.editor.imagekit.metrics.Instrumentation;
+import kg.projects.image.editor.imagekit.metrics.StageTimer;
+import kg.projects.image.editor.imagekit.raster.GrayPlane;
+import kg.projects.image.editor.imagekit.raster.ImagePool;
+import kg.projects.image.editor.imagekit.raster.PixelPlane;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Runs a chain of image algorithms, each one on the result of the previous one.
+ * Adjacent {@link PixelAlgorithm}s are fused into a single pass, and intermediate results are written
+ * into at most two full-size buffers that alternate between stages and are drawn from an {@link ImagePool}.
+ * Between two adjacent {@link GrayPlaneAlgorithm}s the result is passed as a compact {@link GrayPlane}
+ * of one byte per pixel, with its own pair of alternating buffers.
+ * All algorithms must keep the size of the image.
+ */
+public final class Pipeline implements ImageAlgorithm {
+    private static final int BYTES_PER_PIXEL = Integer.BYTES;
+    private static final int BYTES_PER_LEVEL = Byte.BYTES;
+    private static final int PING_PONG_BUFFERS = 2;
+
+    private final List<ImageAlgorithm> algorithms;
+    private final List<ImageAlgorithm> stages;
+    private final boolean[] grayOutputs;
+    private final ImagePool pool;
+    private final int rgbBufferCount;
+    private final int grayBufferCount;
+
+    private Pipeline(List<ImageAlgorithm> algorithms, List<ImageAlgorithm> stages, boolean[] grayOutputs,
+                     ImagePool pool) {
+        this.algorithms = algorithms;
+        this.stages = stages;
+        this.grayOutputs = grayOutputs;
+        this.pool = pool;
+
+        int rgbWrites = 0;
+        int grayWrites = 0;
+        for (int i = 0; i < stages.size(); i++) {
+            boolean grayInput = i > 0 && grayOutputs[i - 1];
+            if (grayOutputs[i] || grayInput) {
+                // A gray input expanded into an RGB output goes through a plane first
+                grayWrites++;
+            }
+            if (!grayOutputs[i] && i < stages.size() - 1) {
+                rgbWrites++;
+            }
+        }
+        this.rgbBufferCount = Math.min(rgbWrites, PING_PONG_BUFFERS);
+        this.grayBufferCount = Math.min(grayWrites, PING_PONG_BUFFERS);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the number of passes over the image after fusing per-pixel algorithms.
+     */
+    public int stageCount() {
+        return stages.size();
+    }
+
+    /**
+     * Returns the number of full-size intermediate buffers a run draws from the pool,
+     * counting both RGB images and gray planes.
+     */
+    public int intermediateBufferCount() {
+        return rgbBufferCount + grayBufferCount;
+    }
+
+    /**
+     * Returns the number of full-size gray planes among the intermediate buffers.
+     */
+    public int grayBufferCount() {
+        return grayBufferCount;
+    }
+
+    /**
+     * Returns the number of bytes of full-size buffers used by {@link #process(BufferedImage)}
+     * for an image of the given size: the intermediate buffers plus the result.
+     * Buffers allocated inside individual algorithms are not included.
+     */
+    public long footprintBytes(int width, int height) {
+        long pixels = (long) width * height;
+        return (rgbBufferCount + 1L) * pixels * BYTES_PER_PIXEL + grayBufferCount * pixels * BYTES_PER_LEVEL;
+    }
+
+    @Override
+    public BufferedImage process(BufferedImage image) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
+        return process(image, PixelPlane.createRgb(image.getWidth(), image.getHeight()).image());
+    }
+
+    @Override
+    public BufferedImage process(BufferedImage image, BufferedImage destination) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
+        StageTimer timer = Instrumentation.start(getClass());
+        int width = image.getWidth();
+        int height = image.getHeight();
+        PixelPlane.wrapRgb(destination, width, height);
+
+        BufferedImage[] buffers = new BufferedImage[rgbBufferCount];
+        GrayPlane[] planes = new GrayPlane[grayBufferCount];
+        try {
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = pool.acquire(width, height);
+            }
+            for (int i = 0; i < planes.length; i++) {
+                planes[i] = GrayPlane.of(pool.acquireByteArray(width * height), width, height);
+            }
+
+            BufferedImage input = image;
+            GrayPlane grayInput = null;
+            int rgbWrites = 0;
+            int grayWrites = 0;
+            for (int i = 0; i < stages.size(); i++) {
+                ImageAlgorithm stage = stages.get(i);
+                if (grayOutputs[i] || grayInput != null) {
+                    GrayPlane output = planes[grayWrites++ % PING_PONG_BUFFERS];
+                    if (grayInput != null) {
+                        ((GrayPlaneAlgorithm) stage).processGray(grayInput, output);
+                    } else {
+                        ((GrayPlaneAlgorithm) stage).processToGray(input, output);
+                    }
+                    grayInput = output;
+                    if (!grayOutputs[i]) {
+                        input = i == stages.size() - 1 ? destination : buffers[rgbWrites++ % PING_PONG_BUFFERS];
+                        output.copyTo(PixelPlane.wrapRgb(input, width, height));
+                        grayInput = null;
+                    }
+                } else {
+                    BufferedImage output = i == stages.size() - 1
+                            ? destination : buffers[rgbWrites++ % PING_PONG_BUFFERS];
+                    input = stage.process(input, output);
+                }
+            }
+            timer.stop((long) width * height);
+            return destination;
+        } finally {
+            for (BufferedImage buffer : buffers) {
+                if (buffer != null) {
+                    pool.release(buffer);
+                }
+            }
+            for (GrayPlane plane : planes) {
+                if (plane != null) {
+                    pool.releaseByteArray(plane.levels());
+                }
+            }
+        }
+    }
+
+    @Override
+    public String descriptor() {
+        return algorithms.stream()
+                .map(ImageAlgorithm::descriptor)
+                .collect(Collectors.joining(" -> ", getClass().getName() + "[", "]"));
+    }
+
+    /**
+     * Returns the sum of the halos of the algorithms, since each stage widens the rows the result depends on.
+     */
+    @Override
+    public int haloRows() {
+        int halo = 0;
+        for (ImageAlgorithm algorithm : algorithms) {
+            if (algorithm.haloRows() < 0) {
+                return -1;
+            }
+            halo += algorithm.haloRows();
+        }
+        return halo;
+    }
+
+    /**
+     * Returns the sum of the column halos of the algorithms, for the same reason as {@link #haloRows()}.
+     */
+    @Override
+    public int haloColumns() {
+        int halo = 0;
+        for (ImageAlgorithm algorithm : algorithms) {
+            if (algorithm.haloColumns() < 0) {
+                return -1;
+            }
+            halo += algorithm.haloColumns();
+        }
+        return halo;
+    }
+
+    public static final class Builder {
+        private final List<ImageAlgorithm> algorithms = new ArrayList<>();
+        private ImagePool pool = new ImagePool(PING_PONG_BUFFERS);
+        private RowBandExecutor executor = RowBandExecutor.serial();
+        private boolean compactGray = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Appends an algorithm to the end of the pipeline.
+         *
+         * @throws IllegalArgumentException if the algorithm is null
+         */
+        public Builder then(ImageAlgorithm algorithm) {
+            if (algorithm == null) {
+                throw new IllegalArgumentException("Algorithm cannot be null");
+            }
+            algorithms.add(algorithm);
+            return this;
+        }
+
+        /**
+         * Sets the pool intermediate buffers are drawn from. Defaults to a pool private to the pipeline.
+         *
+         * @throws IllegalArgumentException if the pool is null
+         */
+        public Builder pool(ImagePool pool) {
+            if (pool == null) {
+                throw new IllegalArgumentException("Pool cannot be null");
+            }
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Sets the executor used for fused per-pixel stages. Defaults to the serial executor.
+         *
+         * @throws IllegalArgumentException if the executor is null
+         */
+        public Builder executor(RowBandExecutor executor) {
+            if (executor == null) {
+                throw new IllegalArgumentException("Executor cannot be null");
+            }
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Sets whether results passed between two adjacent {@link GrayPlaneAlgorithm}s are kept as
+         * gray planes of one byte per pixel instead of RGB images. Defaults to true.
+         */
+        public Builder compactGray(boolean compactGray) {
+            this.compactGray = compactGray;
+            return this;
+        }
+
+        /**
+         * @throws IllegalStateException if no algorithm was added
+         */
+        public Pipeline build() {
+            if (algorithms.isEmpty()) {
+                throw new IllegalStateException("Pipeline must contain at least one algorithm");
+            }
+            List<ImageAlgorithm> stages = fuse();
+            boolean[] grayOutputs = new boolean[stages.size()];
+            for (int i = 0; compactGray && i < stages.size() - 1; i++) {
+                grayOutputs[i] = stages.get(i) instanceof GrayPlaneAlgorithm
+                        && stages.get(i + 1) instanceof GrayPlaneAlgorithm;
+            }
+            return new Pipeline(List.copyOf(algorithms), stages, grayOutputs, pool);
+        }
+
+        private List<ImageAlgorithm> fuse() {
+            List<ImageAlgorithm> stages = new ArrayList<>();
+            List<PixelAlgorithm> run = new ArrayList<>();
+            for (ImageAlgorithm algorithm : algorithms) {
+                if (algorithm instanceof PixelAlgorithm pixelAlgorithm) {
+                    run.add(pixelAlgorithm);
+                } else {
+                    flush(run, stages);
+                    stages.add(algorithm);
+                }
+            }
+            flush(run, stages);
+            return List.copyOf(stages);
+        }
+
+        private void flush(List<PixelAlgorithm> run, List<ImageAlgorithm> stages) {
+            if (run.size() == 1) {
+                stages.add(run.get(0));
+            } else if (run.size() > 1) {
+                stages.add(new FusedPixelStage(run, executor));
+            }
+            run.clear();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package kg.projects.image.editor.imagekit.raster;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+
+/**
+ * A row-major plane of 8-bit gray levels backed by a single {@code byte[]}, one byte per pixel.
+ * The level at (x, y) is stored at index {@code y * width + x}, and level {@code g} stands for the RGB pixel
+ * with red, green and blue all equal to {@code g}, as produced by the grayscale and edge detection algorithms.
+ * This takes a quarter of the memory of the same image as a {@link PixelPlane}.
+ * <p>
+ * The plane is viewed as a TYPE_BYTE_GRAY image through {@link #image()}, which the image writers save
+ * as 8-bit grayscale. Java treats the bytes of such images as linear gray, so {@code getRGB} and
+ * {@link PixelPlane#of(BufferedImage)} return brighter pixels than the levels; convert with
+ * {@link #toRgbImage()} instead.
+ */
+public final class GrayPlane {
+    private static final int bitMask = 0xff;
+    private static final ColorModel GRAY_MODEL =
+            new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY).getColorModel();
+
+    private final int width;
+    private final int height;
+    private final byte[] levels;
+    private BufferedImage image;
+
+    private GrayPlane(int width, int height, byte[] levels, BufferedImage image) {
+        this.width = width;
+        this.height = height;
+        this.levels = levels;
+        this.image = image;
+    }
+
+    /**
+     * Creates a plane backed by a new TYPE_BYTE_GRAY image.
+     *
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public static GrayPlane create(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Image size must be positive");
+        }
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] levels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        return new GrayPlane(width, height, levels, image);
+    }
+
+    /**
+     * Returns a plane backed by the given array of levels, without copying it.
+     *
+     * @throws IllegalArgumentException if the array is null or shorter than {@code width * height},
+     *                                  or the size is not positive
+     */
+    public static GrayPlane of(byte[] levels, int width, int height) {
+        if (levels == null) {
+            throw new IllegalArgumentException("Levels cannot be null");
+        }
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Image size must be positive");
+        }
+        if (levels.length < (long) width * height) {
+            throw new IllegalArgumentException("Levels must hold " + width + "x" + height + " pixels");
+        }
+        return new GrayPlane(width, height, levels, null);
+    }
+
+    /**
+     * Returns a plane reading and writing the bytes of a TYPE_BYTE_GRAY image as levels.
+     *
+     * @throws IllegalArgumentException if the image is null or is not a TYPE_BYTE_GRAY image with a compact raster
+     */
+    public static GrayPlane wrap(BufferedImage image) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
+        byte[] levels = sharedGrayData(image);
+        if (levels == null) {
+            throw new IllegalArgumentException("Image must be a TYPE_BYTE_GRAY image with its own raster");
+        }
+        return new GrayPlane(image.getWidth(), image.getHeight(), levels, image);
+    }
+
+    /**
+     * Checks that a destination plane exists and has the given size.
+     *
+     * @return the destination
+     * @throws IllegalArgumentException if the destination is null or has another size
+     */
+    public static GrayPlane checkDestination(GrayPlane destination, int width, int height) {
+        if (destination == null) {
+            throw new IllegalArgumentException("Destination cannot be null");
+        }
+        if (destination.width != width || destination.height != height) {
+            throw new IllegalArgumentException("Destination must be " + width + "x" + height);
+        }
+        return destination;
+    }
+
+    /**
+     * Returns whether {@link #wrap(BufferedImage)} accepts the image.
+     */
+    public static boolean isGray(BufferedImage image) {
+        return image != null && sharedGrayData(image) != null;
+    }
+
+    /**
+     * Creates a plane with the blue component of every pixel of an image, which is its level
+     * when the image is gray.
+     *
+     * @throws IllegalArgumentException if the image is null
+     */
+    public static GrayPlane fromRgb(BufferedImage image) {
+        int[] pixels = PixelPlane.of(image).pixels();
+        GrayPlane plane = create(image.getWidth(), image.getHeight());
+        for (int i = 0; i < plane.levels.length; i++) {
+            plane.levels[i] = (byte) pixels[i];
+        }
+        return plane;
+    }
+
+    /**
+     * Converts the plane to a new TYPE_INT_RGB image with red, green and blue equal to the level.
+     */
+    public BufferedImage toRgbImage() {
+        PixelPlane result = PixelPlane.createRgb(width, height);
+        copyTo(result);
+        return result.image();
+    }
+
+    /**
+     * Writes the plane into an RGB plane of the same size, with red, green and blue equal to the level.
+     *
+     * @throws IllegalArgumentException if the target is null or does not have the size of the plane
+     */
+    public void copyTo(PixelPlane target) {
+        if (target == null) {
+            throw new IllegalArgumentException("Target cannot be null");
+        }
+        if (target.width() != width || target.height() != height) {
+            throw new IllegalArgumentException("Target must be " + width + "x" + height);
+        }
+        int[] pixels = target.pixels();
+        for (int i = 0; i < width * height; i++) {
+            pixels[i] = PixelPlane.grayPixel(levels[i] & bitMask);
+        }
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public byte[] levels() {
+        return levels;
+    }
+
+    /**
+     * Returns a TYPE_BYTE_GRAY image sharing the levels of the plane.
+     */
+    public BufferedImage image() {
+        if (image == null) {
+            WritableRaster raster = Raster.createInterleavedRaster(
+                    new DataBufferByte(levels, width * height), width, height, width, 1, new int[]{0}, null);
+            image = new BufferedImage(GRAY_MODEL, raster, false, null);
+        }
+        return image;
+    }
+
+    private static byte[] sharedGrayData(BufferedImage image) {
+        Raster raster = image.getRaster();
+        if (image.getType() != BufferedImage.TYPE_BYTE_GRAY
+                || raster.getParent() != null
+                || raster.getSampleModelTranslateX() != 0
+                || raster.getSampleModelTranslateY() != 0
+                || raster.getDataBuffer().getDataType() != DataBuffer.TYPE_BYTE
+                || raster.getDataBuffer().getNumBanks() != 1
+                || raster.getDataBuffer().getOffset() != 0
+                || !(raster.getSampleModel() instanceof ComponentSampleModel sampleModel)
+                || sampleModel.getScanlineStride() != image.getWidth()
+                || sampleModel.getPixelStride() != 1
+                || sampleModel.getBandOffsets()[0] != 0) {
+            return null;
+        }
+        return ((DataBufferByte) raster.getDataBuffer()).getData();
+    }
+}
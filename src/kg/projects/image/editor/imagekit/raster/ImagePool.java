@@ -0,0 +1,267 @@
+package kg.projects.image.editor.imagekit.raster;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * A thread-safe pool of TYPE_INT_RGB images keyed by their size, and of int and byte arrays keyed by their length.
+ * Acquired images and arrays have undefined content and should be released once they are no longer referenced.
+ * Processing same-sized images with buffers drawn from a pool allocates close to nothing once the pool is warm.
+ * A pool may also be bounded by the total bytes it keeps, in which case the least recently released buffers
+ * are dropped first.
+ */
+public final class ImagePool {
+    private static final int DEFAULT_MAX_IMAGES_PER_SIZE = 4;
+    // A free list never grows past the peak number of buffers in use at once, so the bound only needs to cover
+    // the row rings and chunks of a few concurrent bands. The byte bound keeps the scratch of every image size
+    // processed so far from piling up for the lifetime of the process
+    private static final long SHARED_MAX_BYTES = 64L << 20;
+    private static final ImagePool SHARED =
+            new ImagePool(16 * Runtime.getRuntime().availableProcessors(), SHARED_MAX_BYTES);
+
+    private final int maxImagesPerSize;
+    private final long maxBytes;
+    // Every pooled buffer in release order. Neither arrays nor images override equals, so membership is by identity
+    private final LinkedHashSet<Object> pooled = new LinkedHashSet<>();
+    private long pooledBytes;
+    private final Map<Long, ArrayDeque<BufferedImage>> free = new HashMap<>();
+    private final Map<Integer, ArrayDeque<int[]>> freeArrays = new HashMap<>();
+    private final Map<Integer, ArrayDeque<byte[]>> freeByteArrays = new HashMap<>();
+
+    public ImagePool() {
+        this(DEFAULT_MAX_IMAGES_PER_SIZE);
+    }
+
+    /**
+     * @param maxImagesPerSize the maximum number of released images kept for each size,
+     *                         and of released arrays kept for each length
+     * @throws IllegalArgumentException if the maximum is negative
+     */
+    public ImagePool(int maxImagesPerSize) {
+        this(maxImagesPerSize, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param maxImagesPerSize the maximum number of released images kept for each size,
+     *                         and of released arrays kept for each length
+     * @param maxBytes         the maximum total size of the released images and arrays kept
+     * @throws IllegalArgumentException if either maximum is negative
+     */
+    public ImagePool(int maxImagesPerSize, long maxBytes) {
+        if (maxImagesPerSize < 0) {
+            throw new IllegalArgumentException("Max images per size cannot be negative");
+        }
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Max bytes cannot be negative");
+        }
+        this.maxImagesPerSize = maxImagesPerSize;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the process-wide pool the built-in algorithms draw their scratch arrays from.
+     * It keeps at most 64 MiB of released buffers.
+     */
+    public static ImagePool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns a pooled TYPE_INT_RGB image of the given size, or a new one if none is free.
+     *
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public BufferedImage acquire(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Image size must be positive");
+        }
+
+        synchronized (this) {
+            ArrayDeque<BufferedImage> images = free.get(key(width, height));
+            if (images != null && !images.isEmpty()) {
+                return unpool(images.pop());
+            }
+        }
+        return PixelPlane.createRgb(width, height).image();
+    }
+
+    /**
+     * Returns an image to the pool. Images that are not TYPE_INT_RGB are ignored,
+     * as are images of a size whose free list is already full and images larger than the byte bound.
+     *
+     * @throws IllegalArgumentException if the image is null
+     */
+    public void release(BufferedImage image) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
+        if (image.getType() != BufferedImage.TYPE_INT_RGB) {
+            return;
+        }
+
+        long bytes = sizeOf(image);
+        synchronized (this) {
+            if (bytes > maxBytes || pooled.contains(image)) {
+                return;
+            }
+            ArrayDeque<BufferedImage> images =
+                    free.computeIfAbsent(key(image.getWidth(), image.getHeight()), size -> new ArrayDeque<>());
+            if (images.size() < maxImagesPerSize) {
+                images.push(image);
+                pool(image, bytes);
+            }
+        }
+    }
+
+    /**
+     * Returns a pooled int array of the given length, or a new one if none is free.
+     *
+     * @throws IllegalArgumentException if the length is negative
+     */
+    public int[] acquireArray(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Array length cannot be negative");
+        }
+
+        synchronized (this) {
+            ArrayDeque<int[]> arrays = freeArrays.get(length);
+            if (arrays != null && !arrays.isEmpty()) {
+                return unpool(arrays.pop());
+            }
+        }
+        return new int[length];
+    }
+
+    /**
+     * Returns an array to the pool. Arrays of a length whose free list is already full are ignored,
+     * as are arrays larger than the byte bound.
+     *
+     * @throws IllegalArgumentException if the array is null
+     */
+    public void releaseArray(int[] array) {
+        if (array == null) {
+            throw new IllegalArgumentException("Array cannot be null");
+        }
+
+        long bytes = sizeOf(array);
+        synchronized (this) {
+            if (bytes > maxBytes || pooled.contains(array)) {
+                return;
+            }
+            ArrayDeque<int[]> arrays = freeArrays.computeIfAbsent(array.length, length -> new ArrayDeque<>());
+            if (arrays.size() < maxImagesPerSize) {
+                arrays.push(array);
+                pool(array, bytes);
+            }
+        }
+    }
+
+    /**
+     * Returns a pooled byte array of the given length, such as the levels of a {@link GrayPlane},
+     * or a new one if none is free.
+     *
+     * @throws IllegalArgumentException if the length is negative
+     */
+    public byte[] acquireByteArray(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Array length cannot be negative");
+        }
+
+        synchronized (this) {
+            ArrayDeque<byte[]> arrays = freeByteArrays.get(length);
+            if (arrays != null && !arrays.isEmpty()) {
+                return unpool(arrays.pop());
+            }
+        }
+        return new byte[length];
+    }
+
+    /**
+     * Returns a byte array to the pool. Arrays of a length whose free list is already full are ignored,
+     * as are arrays larger than the byte bound.
+     *
+     * @throws IllegalArgumentException if the array is null
+     */
+    public void releaseByteArray(byte[] array) {
+        if (array == null) {
+            throw new IllegalArgumentException("Array cannot be null");
+        }
+
+        synchronized (this) {
+            if (array.length > maxBytes || pooled.contains(array)) {
+                return;
+            }
+            ArrayDeque<byte[]> arrays = freeByteArrays.computeIfAbsent(array.length, length -> new ArrayDeque<>());
+            if (arrays.size() < maxImagesPerSize) {
+                arrays.push(array);
+                pool(array, array.length);
+            }
+        }
+    }
+
+    /**
+     * Drops all pooled images and arrays.
+     */
+    public synchronized void clear() {
+        free.clear();
+        freeArrays.clear();
+        freeByteArrays.clear();
+        pooled.clear();
+        pooledBytes = 0;
+    }
+
+    /**
+     * Returns the maximum total size of the released images and arrays the pool keeps.
+     */
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the total size of the released images and arrays the pool currently keeps.
+     */
+    public synchronized long pooledBytes() {
+        return pooledBytes;
+    }
+
+    private void pool(Object buffer, long bytes) {
+        pooled.add(buffer);
+        pooledBytes += bytes;
+        // A free list pushes and pops at its head, so the least recently released buffer overall
+        // is always the tail of its own list
+        Iterator<Object> oldest = pooled.iterator();
+        while (pooledBytes > maxBytes) {
+            Object evicted = oldest.next();
+            oldest.remove();
+            pooledBytes -= sizeOf(evicted);
+            if (evicted instanceof BufferedImage image) {
+                free.get(key(image.getWidth(), image.getHeight())).removeLastOccurrence(image);
+            } else if (evicted instanceof int[] array) {
+                freeArrays.get(array.length).removeLastOccurrence(array);
+            } else {
+                freeByteArrays.get(((byte[]) evicted).length).removeLastOccurrence(evicted);
+            }
+        }
+    }
+
+    private <T> T unpool(T buffer) {
+        pooled.remove(buffer);
+        pooledBytes -= sizeOf(buffer);
+        return buffer;
+    }
+
+    private static long sizeOf(Object buffer) {
+        if (buffer instanceof BufferedImage image) {
+            return 4L * image.getWidth() * image.getHeight();
+        }
+        return buffer instanceof int[] array ? 4L * array.length : ((byte[]) buffer).length;
+    }
+
+    private static long key(int width, int height) {
+        return ((long) width << Integer.SIZE) | height;
+    }
+}
@@ -0,0 +1,285 @@
+package kg.projects.image.editor.imagekit.raster;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * A row-major plane of packed RGB pixels backed by a single {@code int[]}.
+ * The pixel at (x, y) is stored at index {@code y * width + x} and holds the
+ * red, green and blue components in bits 16-23, 8-15 and 0-7. The alpha byte is unspecified.
+ */
+public final class PixelPlane {
+    private static final int redBit = 16;
+    private static final int greenBit = 8;
+    private static final int alphaBit = 24;
+    private static final int bitMask = 0xff;
+    private static final int rgbMask = 0xffffff;
+    private static final int[] GRAY_TO_RGB = grayToRgbTable();
+
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+    private final BufferedImage image;
+
+    private PixelPlane(int width, int height, int[] pixels, BufferedImage image) {
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+        this.image = image;
+    }
+
+    /**
+     * Returns a plane for reading the pixels of the given image.
+     * TYPE_INT_RGB and TYPE_INT_ARGB images with a compact raster share their backing array with the plane,
+     * TYPE_3BYTE_BGR, TYPE_4BYTE_ABGR and TYPE_BYTE_GRAY are converted directly from their bytes
+     * and every other image type falls back to a single bulk {@code getRGB} call.
+     * The resulting pixels are the same as the ones returned by {@code getRGB}.
+     *
+     * @param image the image to read
+     * @return a plane with the pixels of the image, which must not be modified
+     * @throws IllegalArgumentException if the image is null
+     */
+    public static PixelPlane of(BufferedImage image) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int type = image.getType();
+        int[] pixels = type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB
+                ? sharedIntData(image)
+                : null;
+        if (pixels == null) {
+            pixels = new int[width * height];
+            readPixels(image, pixels);
+        }
+        return new PixelPlane(width, height, pixels, image);
+    }
+
+    /**
+     * Converts an image to TYPE_INT_RGB with the same result as copying every pixel
+     * with {@code getRGB}/{@code setRGB}. Images that already are TYPE_INT_RGB are returned unchanged.
+     *
+     * @param image the image to convert
+     * @return a TYPE_INT_RGB image with the pixels of the given one
+     * @throws IllegalArgumentException if the image is null
+     */
+    public static BufferedImage toRgbImage(BufferedImage image) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+
+        return convertToRgb(image, createRgb(image.getWidth(), image.getHeight()));
+    }
+
+    /**
+     * Converts an image to TYPE_INT_RGB like {@link #toRgbImage(BufferedImage)}, drawing the result from a pool.
+     * Images that already are TYPE_INT_RGB are returned unchanged.
+     *
+     * @param image the image to convert
+     * @param pool  the pool the converted image is acquired from
+     * @return a TYPE_INT_RGB image with the pixels of the given one
+     * @throws IllegalArgumentException if the image or the pool is null
+     */
+    public static BufferedImage toRgbImage(BufferedImage image, ImagePool pool) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool cannot be null");
+        }
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        return convertToRgb(image, wrapRgb(pool.acquire(width, height), width, height));
+    }
+
+    private static BufferedImage convertToRgb(BufferedImage image, PixelPlane result) {
+        int[] target = result.pixels;
+        int[] shared = image.getType() == BufferedImage.TYPE_INT_ARGB ? sharedIntData(image) : null;
+        if (shared != null) {
+            System.arraycopy(shared, 0, target, 0, target.length);
+        } else {
+            readPixels(image, target);
+        }
+        for (int i = 0; i < target.length; i++) {
+            target[i] &= rgbMask;
+        }
+        return result.image;
+    }
+
+    /**
+     * Creates a new TYPE_INT_RGB image and returns a plane writing directly into its raster.
+     *
+     * @param width  the width of the image
+     * @param height the height of the image
+     * @return a writable plane whose {@link #image()} is the created image
+     */
+    public static PixelPlane createRgb(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        return new PixelPlane(width, height, pixels, image);
+    }
+
+    /**
+     * Returns a plane writing directly into the raster of an existing TYPE_INT_RGB image.
+     *
+     * @param image  the image to write into
+     * @param width  the expected width of the image
+     * @param height the expected height of the image
+     * @return a writable plane whose {@link #image()} is the given image
+     * @throws IllegalArgumentException if the image is null, is not a TYPE_INT_RGB image with a compact raster
+     *                                  or does not have the expected size
+     */
+    public static PixelPlane wrapRgb(BufferedImage image, int width, int height) {
+        if (image == null) {
+            throw new IllegalArgumentException("Destination cannot be null");
+        }
+        if (image.getWidth() != width || image.getHeight() != height) {
+            throw new IllegalArgumentException("Destination must be " + width + "x" + height);
+        }
+        int[] pixels = image.getType() == BufferedImage.TYPE_INT_RGB ? sharedIntData(image) : null;
+        if (pixels == null) {
+            throw new IllegalArgumentException("Destination must be a TYPE_INT_RGB image with its own raster");
+        }
+        return new PixelPlane(width, height, pixels, image);
+    }
+
+    /**
+     * Packs a gray value into an RGB pixel with equal red, green and blue components.
+     */
+    public static int grayPixel(int grayVal) {
+        return (grayVal << redBit) | (grayVal << greenBit) | grayVal;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public int[] pixels() {
+        return pixels;
+    }
+
+    public BufferedImage image() {
+        return image;
+    }
+
+    private static boolean isCompact(Raster raster) {
+        return raster.getParent() == null
+                && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0
+                && raster.getDataBuffer().getNumBanks() == 1
+                && raster.getDataBuffer().getOffset() == 0;
+    }
+
+    private static int[] sharedIntData(BufferedImage image) {
+        Raster raster = image.getRaster();
+        if (!isCompact(raster)
+                || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel)
+                || sampleModel.getScanlineStride() != image.getWidth()
+                || raster.getDataBuffer().getDataType() != DataBuffer.TYPE_INT) {
+            return null;
+        }
+        return ((DataBufferInt) raster.getDataBuffer()).getData();
+    }
+
+    private static void readPixels(BufferedImage image, int[] pixels) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean converted = switch (image.getType()) {
+            case BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR -> convertByteData(image, pixels);
+            case BufferedImage.TYPE_BYTE_GRAY -> convertGrayData(image, pixels);
+            default -> false;
+        };
+        if (!converted) {
+            image.getRGB(0, 0, width, height, pixels, 0, width);
+        }
+    }
+
+    private static boolean convertByteData(BufferedImage image, int[] pixels) {
+        Raster raster = image.getRaster();
+        if (!isCompact(raster)
+                || !(raster.getSampleModel() instanceof ComponentSampleModel sampleModel)
+                || raster.getDataBuffer().getDataType() != DataBuffer.TYPE_BYTE) {
+            return false;
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int pixelStride = sampleModel.getPixelStride();
+        int scanlineStride = sampleModel.getScanlineStride();
+        int[] offsets = sampleModel.getBandOffsets();
+        byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+        boolean hasAlpha = offsets.length == 4;
+
+        int r = offsets[0];
+        int g = offsets[1];
+        int b = offsets[2];
+        int a = hasAlpha ? offsets[3] : 0;
+        for (int y = 0; y < height; y++) {
+            int src = y * scanlineStride;
+            int dst = y * width;
+            for (int x = 0; x < width; x++, src += pixelStride) {
+                int alpha = hasAlpha ? data[src + a] & bitMask : bitMask;
+                pixels[dst + x] = (alpha << alphaBit)
+                        | ((data[src + r] & bitMask) << redBit)
+                        | ((data[src + g] & bitMask) << greenBit)
+                        | (data[src + b] & bitMask);
+            }
+        }
+        return true;
+    }
+
+    private static boolean convertGrayData(BufferedImage image, int[] pixels) {
+        Raster raster = image.getRaster();
+        if (!isCompact(raster)
+                || !(raster.getSampleModel() instanceof ComponentSampleModel sampleModel)
+                || sampleModel.getPixelStride() != 1
+                || raster.getDataBuffer().getDataType() != DataBuffer.TYPE_BYTE) {
+            return false;
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int scanlineStride = sampleModel.getScanlineStride();
+        int offset = sampleModel.getBandOffsets()[0];
+        byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+        for (int y = 0; y < height; y++) {
+            int src = y * scanlineStride + offset;
+            int dst = y * width;
+            for (int x = 0; x < width; x++) {
+                pixels[dst + x] = GRAY_TO_RGB[data[src + x] & bitMask];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gray images are stored in a linear color space, so {@code getRGB} does not return the raw byte.
+     * The conversion of each of the 256 levels is recorded once from the color model itself.
+     */
+    private static int[] grayToRgbTable() {
+        BufferedImage levels = new BufferedImage(bitMask + 1, 1, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] data = ((DataBufferByte) levels.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        return levels.getRGB(0, 0, data.length, 1, null, 0, data.length);
+    }
+}
@@ -0,0 +1,235 @@
+package kg.projects.image.editor.imagekit.streaming;
+
+import kg.projects.image.editor.imagekit.algorithm.ImageAlgorithm;
+import kg.projects.image.editor.imagekit.raster.ImagePool;
+import kg.projects.image.editor.imagekit.raster.PixelPlane;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Applies an image algorithm to consecutive frames of the same size, recomputing only the tiles that changed.
+ * The processor keeps the previous frame and result. Each new frame is compared with the previous one tile by
+ * tile, where a tile is dirty if any pixel it depends on differs, that is any pixel of the tile extended by the
+ * algorithm's {@link ImageAlgorithm#haloRows() row} and {@link ImageAlgorithm#haloColumns() column} halo.
+ * Dirty tiles are processed again together with their halo, and the rest of the result is kept, so the result
+ * always equals processing the whole frame while the cost follows the amount of change.
+ * <p>
+ * Algorithms without a column halo are tiled in full-width bands of rows. The processor is not thread-safe.
+ */
+public final class FrameSequenceProcessor {
+    public static final int DEFAULT_TILE_SIZE = 64;
+
+    private final ImageAlgorithm algorithm;
+    private final int tileSize;
+    private final int haloRows;
+    private final int haloColumns;
+    private final ImagePool pool = new ImagePool();
+
+    private int width;
+    private int height;
+    private int[] previous;
+    private BufferedImage result;
+    private int[] dirtyTiles = new int[0];
+    private int lastDirtyTileCount;
+
+    private FrameSequenceProcessor(Builder builder) {
+        this.algorithm = builder.algorithm;
+        this.tileSize = builder.tileSize;
+        this.haloRows = algorithm.haloRows();
+        this.haloColumns = algorithm.haloColumns();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the algorithm is null or its row halo is unbounded
+     */
+    public static Builder builder(ImageAlgorithm algorithm) {
+        if (algorithm == null) {
+            throw new IllegalArgumentException("Algorithm cannot be null");
+        }
+        if (algorithm.haloRows() < 0) {
+            throw new IllegalArgumentException("Algorithm must have a bounded halo to be processed in tiles");
+        }
+        return new Builder(algorithm);
+    }
+
+    /**
+     * Processes the next frame of the sequence. The first frame, and any frame whose size differs from
+     * the previous one, is processed as a whole.
+     *
+     * @param frame the frame to process
+     * @return the TYPE_INT_RGB result, which belongs to the processor and is updated in place
+     *         by the next call; copy it to keep it
+     * @throws IllegalArgumentException if the frame is null
+     */
+    public BufferedImage processFrame(BufferedImage frame) {
+        if (frame == null) {
+            throw new IllegalArgumentException("Frame cannot be null");
+        }
+        int[] pixels = PixelPlane.of(frame).pixels();
+
+        if (result == null || frame.getWidth() != width || frame.getHeight() != height) {
+            width = frame.getWidth();
+            height = frame.getHeight();
+            result = PixelPlane.createRgb(width, height).image();
+            algorithm.process(frame, result);
+            previous = Arrays.copyOf(pixels, pixels.length);
+            dirtyTiles = new int[tileColumns() * tileRows()];
+            lastDirtyTileCount = dirtyTiles.length;
+            pool.clear();
+            return result;
+        }
+
+        int dirtyCount = 0;
+        for (int tile = 0; tile < dirtyTiles.length; tile++) {
+            if (changed(pixels, tile)) {
+                dirtyTiles[dirtyCount++] = tile;
+            }
+        }
+        int[] target = PixelPlane.of(result).pixels();
+        for (int i = 0; i < dirtyCount; i++) {
+            process(pixels, target, dirtyTiles[i]);
+        }
+        // Every changed pixel lies inside a dirty tile, so copying their cores brings the previous frame up to date
+        for (int i = 0; i < dirtyCount; i++) {
+            int tile = dirtyTiles[i];
+            copyRegion(pixels, width, previous, width, tileX(tile), tileY(tile),
+                    tileX(tile), tileY(tile), tileWidth(tile), tileHeight(tile));
+        }
+        lastDirtyTileCount = dirtyCount;
+        return result;
+    }
+
+    /**
+     * Returns the number of tiles the current frame size is split into, or 0 before the first frame.
+     */
+    public int tileCount() {
+        return dirtyTiles.length;
+    }
+
+    /**
+     * Returns how many tiles were processed for the last frame.
+     */
+    public int lastDirtyTileCount() {
+        return lastDirtyTileCount;
+    }
+
+    /**
+     * Forgets the previous frame, so the next one is processed as a whole.
+     */
+    public void reset() {
+        result = null;
+        previous = null;
+        dirtyTiles = new int[0];
+        lastDirtyTileCount = 0;
+        pool.clear();
+    }
+
+    private boolean changed(int[] pixels, int tile) {
+        int fromX = Math.max(0, tileX(tile) - haloColumns());
+        int toX = Math.min(width, tileX(tile) + tileWidth(tile) + haloColumns());
+        int fromY = Math.max(0, tileY(tile) - haloRows);
+        int toY = Math.min(height, tileY(tile) + tileHeight(tile) + haloRows);
+        for (int y = fromY; y < toY; y++) {
+            int offset = y * width;
+            if (Arrays.mismatch(pixels, offset + fromX, offset + toX, previous, offset + fromX, offset + toX) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Processes a tile extended by the halo, clipped to the frame, and keeps the result of the tile itself.
+     * Pixels within the halo of a clipped edge are computed as at the border of the frame, which they are.
+     */
+    private void process(int[] pixels, int[] target, int tile) {
+        int fromX = Math.max(0, tileX(tile) - haloColumns());
+        int toX = Math.min(width, tileX(tile) + tileWidth(tile) + haloColumns());
+        int fromY = Math.max(0, tileY(tile) - haloRows);
+        int toY = Math.min(height, tileY(tile) + tileHeight(tile) + haloRows);
+        int regionWidth = toX - fromX;
+        int regionHeight = toY - fromY;
+
+        BufferedImage source = pool.acquire(regionWidth, regionHeight);
+        BufferedImage processed = pool.acquire(regionWidth, regionHeight);
+        try {
+            copyRegion(pixels, width, PixelPlane.of(source).pixels(), regionWidth, fromX, fromY, 0, 0,
+                    regionWidth, regionHeight);
+            algorithm.process(source, processed);
+            copyRegion(PixelPlane.of(processed).pixels(), regionWidth, target, width,
+                    tileX(tile) - fromX, tileY(tile) - fromY, tileX(tile), tileY(tile),
+                    tileWidth(tile), tileHeight(tile));
+        } finally {
+            pool.release(processed);
+            pool.release(source);
+        }
+    }
+
+    private static void copyRegion(int[] source, int sourceWidth, int[] target, int targetWidth,
+                                   int sourceX, int sourceY, int targetX, int targetY, int regionWidth,
+                                   int regionHeight) {
+        for (int y = 0; y < regionHeight; y++) {
+            System.arraycopy(source, (sourceY + y) * sourceWidth + sourceX,
+                    target, (targetY + y) * targetWidth + targetX, regionWidth);
+        }
+    }
+
+    private int haloColumns() {
+        return haloColumns < 0 ? 0 : haloColumns;
+    }
+
+    private int tileWidthLimit() {
+        return haloColumns < 0 ? width : tileSize;
+    }
+
+    private int tileColumns() {
+        return (width + tileWidthLimit() - 1) / tileWidthLimit();
+    }
+
+    private int tileRows() {
+        return (height + tileSize - 1) / tileSize;
+    }
+
+    private int tileX(int tile) {
+        return tile % tileColumns() * tileWidthLimit();
+    }
+
+    private int tileY(int tile) {
+        return tile / tileColumns() * tileSize;
+    }
+
+    private int tileWidth(int tile) {
+        return Math.min(tileWidthLimit(), width - tileX(tile));
+    }
+
+    private int tileHeight(int tile) {
+        return Math.min(tileSize, height - tileY(tile));
+    }
+
+    public static final class Builder {
+        private final ImageAlgorithm algorithm;
+        private int tileSize = DEFAULT_TILE_SIZE;
+
+        private Builder(ImageAlgorithm algorithm) {
+            this.algorithm = algorithm;
+        }
+
+        /**
+         * Sets the width and height of the tiles changes are tracked in. Defaults to {@value FrameSequenceProcessor#DEFAULT_TILE_SIZE}.
+         *
+         * @throws IllegalArgumentException if the size is not positive
+         */
+        public Builder tileSize(int tileSize) {
+            if (tileSize <= 0) {
+                throw new IllegalArgumentException("Tile size must be positive");
+            }
+            this.tileSize = tileSize;
+            return this;
+        }
+
+        public FrameSequenceProcessor build() {
+            return new FrameSequenceProcessor(this);
+        }
+    }
+}
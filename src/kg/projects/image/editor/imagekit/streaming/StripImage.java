@@ -0,0 +1,227 @@
+package kg.projects.image.editor.imagekit.streaming;
+
+import kg.projects.image.editor.imagekit.algorithm.ImageAlgorithm;
+import kg.projects.image.editor.imagekit.raster.PixelPlane;
+
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Vector;
+
+/**
+ * A TYPE_INT_RGB image whose pixels are computed on demand, one horizontal band at a time.
+ * Each band is one tile: it is decoded from the reader together with its halo rows, processed,
+ * and kept until a row of another band is requested. Image writers that pull their input row by row
+ * or strip by strip therefore never hold more than one band of source and one of result.
+ * Read errors are thrown as {@link UncheckedIOException}, since the raster methods cannot throw checked ones.
+ */
+final class StripImage implements RenderedImage {
+    private final ImageReader reader;
+    private final ImageAlgorithm algorithm;
+    private final int width;
+    private final int height;
+    private final int bandHeight;
+    private final int halo;
+    private final ColorModel colorModel;
+    private final SampleModel sampleModel;
+
+    private int cachedBand = -1;
+    private WritableRaster cachedRaster;
+    private int bandsProcessed;
+    private int maxRowsDecoded;
+
+    StripImage(ImageReader reader, ImageAlgorithm algorithm, int bandHeight) throws IOException {
+        this.reader = reader;
+        this.algorithm = algorithm;
+        this.width = reader.getWidth(0);
+        this.height = reader.getHeight(0);
+        this.bandHeight = Math.min(bandHeight, height);
+        this.halo = algorithm.haloRows();
+        BufferedImage prototype = PixelPlane.createRgb(1, 1).image();
+        this.colorModel = prototype.getColorModel();
+        this.sampleModel = prototype.getSampleModel().createCompatibleSampleModel(width, this.bandHeight);
+    }
+
+    /**
+     * Returns how many bands were decoded and processed so far; a band requested again after another one
+     * counts twice.
+     */
+    int bandsProcessed() {
+        return bandsProcessed;
+    }
+
+    /**
+     * Returns the largest number of source rows decoded at once.
+     */
+    int maxRowsDecoded() {
+        return maxRowsDecoded;
+    }
+
+    @Override
+    public Raster getTile(int tileX, int tileY) {
+        if (tileX != 0 || tileY < 0 || tileY >= getNumYTiles()) {
+            throw new IllegalArgumentException("Tile is outside the image");
+        }
+        return band(tileY);
+    }
+
+    @Override
+    public Raster getData() {
+        return getData(new Rectangle(0, 0, width, height));
+    }
+
+    @Override
+    public Raster getData(Rectangle rect) {
+        return copyData(Raster.createWritableRaster(
+                sampleModel.createCompatibleSampleModel(rect.width, rect.height), rect.getLocation()));
+    }
+
+    @Override
+    public WritableRaster copyData(WritableRaster raster) {
+        if (raster == null) {
+            raster = Raster.createWritableRaster(sampleModel.createCompatibleSampleModel(width, height), null);
+        }
+        Rectangle area = raster.getBounds().intersection(new Rectangle(0, 0, width, height));
+        if (area.isEmpty()) {
+            return raster;
+        }
+        int firstBand = area.y / bandHeight;
+        int lastBand = (area.y + area.height - 1) / bandHeight;
+        for (int index = firstBand; index <= lastBand; index++) {
+            Raster band = band(index);
+            Rectangle overlap = area.intersection(band.getBounds());
+            Object pixels = band.getDataElements(overlap.x, overlap.y, overlap.width, overlap.height, null);
+            raster.setDataElements(overlap.x, overlap.y, overlap.width, overlap.height, pixels);
+        }
+        return raster;
+    }
+
+    private WritableRaster band(int index) {
+        if (index == cachedBand) {
+            return cachedRaster;
+        }
+        int top = index * bandHeight;
+        int rows = Math.min(bandHeight, height - top);
+        int decodeTop = Math.max(0, top - halo);
+        int decodeBottom = Math.min(height, top + rows + halo);
+
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(0, decodeTop, width, decodeBottom - decodeTop));
+        BufferedImage source;
+        try {
+            source = reader.read(0, param);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        maxRowsDecoded = Math.max(maxRowsDecoded, decodeBottom - decodeTop);
+
+        int[] processed = PixelPlane.of(algorithm.process(source)).pixels();
+        WritableRaster raster = Raster.createWritableRaster(sampleModel, new Point(0, top));
+        int[] target = ((DataBufferInt) raster.getDataBuffer()).getData();
+        int offset = (top - decodeTop) * width;
+        for (int i = 0; i < rows * width; i++) {
+            target[i] = processed[offset + i] & 0xffffff;
+        }
+
+        cachedBand = index;
+        cachedRaster = raster;
+        bandsProcessed++;
+        return raster;
+    }
+
+    @Override
+    public Vector<RenderedImage> getSources() {
+        return null;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return Image.UndefinedProperty;
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+        return null;
+    }
+
+    @Override
+    public ColorModel getColorModel() {
+        return colorModel;
+    }
+
+    @Override
+    public SampleModel getSampleModel() {
+        return sampleModel;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getMinX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinY() {
+        return 0;
+    }
+
+    @Override
+    public int getNumXTiles() {
+        return 1;
+    }
+
+    @Override
+    public int getNumYTiles() {
+        return (height + bandHeight - 1) / bandHeight;
+    }
+
+    @Override
+    public int getMinTileX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinTileY() {
+        return 0;
+    }
+
+    @Override
+    public int getTileWidth() {
+        return width;
+    }
+
+    @Override
+    public int getTileHeight() {
+        return bandHeight;
+    }
+
+    @Override
+    public int getTileGridXOffset() {
+        return 0;
+    }
+
+    @Override
+    public int getTileGridYOffset() {
+        return 0;
+    }
+}
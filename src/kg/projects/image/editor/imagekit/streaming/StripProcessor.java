@@ -0,0 +1,150 @@
+package kg.projects.image.editor.imagekit.streaming;
+
+import kg.projects.image.editor.imagekit.algorithm.ImageAlgorithm;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Iterator;
+
+/**
+ * Applies an image algorithm to an image file without loading the whole image, for images larger than the heap.
+ * The source is decoded in horizontal bands through {@link ImageReader} source regions, each band extended by
+ * the algorithm's {@link ImageAlgorithm#haloRows() halo} above and below, and the results are handed to the
+ * {@link ImageWriter} band by band as it pulls them. Peak memory is therefore proportional to
+ * {@code (bandHeight + 2 * halo) * width} rather than to the size of the image.
+ * <p>
+ * The PNG, BMP and TIFF writers pull their input row by row and stay within that bound. The JPEG and GIF
+ * writers request the whole image at once, so they hold the full result, though still not the full source.
+ * Readers of formats without random access, such as PNG, decode the rows above a band again for every band,
+ * so larger bands are faster.
+ */
+public final class StripProcessor {
+    public static final int DEFAULT_BAND_HEIGHT = 256;
+
+    private final ImageAlgorithm algorithm;
+    private final int bandHeight;
+
+    private StripProcessor(Builder builder) {
+        this.algorithm = builder.algorithm;
+        this.bandHeight = builder.bandHeight;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the algorithm is null or its halo is unbounded
+     */
+    public static Builder builder(ImageAlgorithm algorithm) {
+        if (algorithm == null) {
+            throw new IllegalArgumentException("Algorithm cannot be null");
+        }
+        if (algorithm.haloRows() < 0) {
+            throw new IllegalArgumentException("Algorithm must have a bounded halo to be processed in strips");
+        }
+        return new Builder(algorithm);
+    }
+
+    /**
+     * Processes the input image into the output file, whose format is chosen by its extension.
+     *
+     * @param input  the image file to process
+     * @param output the file to write the result to; must not exist
+     * @throws IllegalArgumentException if a file is null
+     * @throws IOException              if the input cannot be read, the output exists, its directory does not exist,
+     *                                  its format is not supported or writing fails
+     */
+    public void process(File input, File output) throws IOException {
+        if (input == null || output == null) {
+            throw new IllegalArgumentException("Files cannot be null");
+        }
+        if (output.exists()) {
+            throw new IOException("File already exists");
+        }
+        File parent = output.getParentFile();
+        if (parent != null && !parent.exists()) {
+            throw new IOException("Parent directory does not exist");
+        }
+        ImageWriter writer = findWriter(output);
+
+        try (ImageInputStream in = ImageIO.createImageInputStream(input)) {
+            if (in == null) {
+                throw new IOException("Failed to load image");
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("Failed to load image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, false, true);
+                write(new StripImage(reader, algorithm, bandHeight), writer, output);
+            } finally {
+                reader.dispose();
+            }
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static void write(StripImage image, ImageWriter writer, File output) throws IOException {
+        boolean written = false;
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(output)) {
+            if (out == null) {
+                throw new IOException("Failed to save image");
+            }
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), null);
+            written = true;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (!written) {
+                Files.deleteIfExists(output.toPath());
+            }
+        }
+    }
+
+    private static ImageWriter findWriter(File output) throws IOException {
+        String name = output.getName();
+        int dot = name.lastIndexOf('.');
+        Iterator<ImageWriter> writers = dot < 0
+                ? null
+                : ImageIO.getImageWritersBySuffix(name.substring(dot + 1).toLowerCase());
+        if (writers == null || !writers.hasNext()) {
+            throw new IOException("Unsupported image format for saving");
+        }
+        return writers.next();
+    }
+
+    public static final class Builder {
+        private final ImageAlgorithm algorithm;
+        private int bandHeight = DEFAULT_BAND_HEIGHT;
+
+        private Builder(ImageAlgorithm algorithm) {
+            this.algorithm = algorithm;
+        }
+
+        /**
+         * Sets the number of result rows computed per band.
+         *
+         * @throws IllegalArgumentException if the height is not positive
+         */
+        public Builder bandHeight(int bandHeight) {
+            if (bandHeight <= 0) {
+                throw new IllegalArgumentException("Band height must be positive");
+            }
+            this.bandHeight = bandHeight;
+            return this;
+        }
+
+        public StripProcessor build() {
+            return new StripProcessor(this);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package kg.projects.image.editor.imagekit;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test images and image assertions shared by the tests of the algorithms and processors.
+ */
+public final class TestImages {
+    private TestImages() {
+    }
+
+    /**
+     * Creates a TYPE_INT_RGB image whose pixels hash their coordinates, so neighboring pixels differ in every channel
+     * and no two rows or columns are alike.
+     */
+    public static BufferedImage createTestImage(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, (x * 31 + y * 17) * 0x9E3779B1);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Asserts that two images have the same size and the same RGB value at every pixel.
+     */
+    public static void assertSameImage(BufferedImage expected, BufferedImage actual, String context) {
+        assertEquals(expected.getWidth(), actual.getWidth(), context);
+        assertEquals(expected.getHeight(), actual.getHeight(), context);
+        for (int x = 0; x < expected.getWidth(); x++) {
+            for (int y = 0; y < expected.getHeight(); y++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), context + " mismatch at " + x + "," + y);
+            }
+        }
+    }
+}
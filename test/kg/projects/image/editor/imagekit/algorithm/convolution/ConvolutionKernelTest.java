@@ -0,0 +1,84 @@
+package kg.projects.image.editor.imagekit.algorithm.convolution;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConvolutionKernelTest {
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> ConvolutionKernel.of(2, 3, new int[6]));
+        assertThrows(IllegalArgumentException.class, () -> ConvolutionKernel.of(3, 3, new int[8]));
+        assertThrows(IllegalArgumentException.class, () -> ConvolutionKernel.of(3, 3, (int[]) null));
+        assertThrows(IllegalArgumentException.class, () -> ConvolutionKernel.separable(null, new int[]{1}));
+        assertThrows(IllegalArgumentException.class, () -> ConvolutionKernel.binomial(4));
+    }
+
+    @Test
+    void testDetectsSeparableKernels() {
+        ConvolutionKernel sobel = ConvolutionKernel.of(3, 3,
+                -1, 0, 1,
+                -2, 0, 2,
+                -1, 0, 1);
+        assertTrue(sobel.isSeparable());
+        assertArrayEquals(new int[]{1, 2, 1}, sobel.getColumn());
+        assertArrayEquals(new int[]{-1, 0, 1}, sobel.getRow());
+        assertEquals(sobel, GradientOperator.SOBEL.getHorizontal());
+
+        ConvolutionKernel scaled = ConvolutionKernel.of(3, 1, 4, 8, 4);
+        assertTrue(scaled.isSeparable());
+        assertArrayEquals(new int[]{4}, scaled.getColumn());
+        assertArrayEquals(new int[]{1, 2, 1}, scaled.getRow());
+
+        ConvolutionKernel laplacian = ConvolutionKernel.of(3, 3,
+                0, 1, 0,
+                1, -4, 1,
+                0, 1, 0);
+        assertFalse(laplacian.isSeparable());
+        assertFalse(ConvolutionKernel.of(1, 1, 0).isSeparable());
+    }
+
+    @Test
+    void testTranspose() {
+        ConvolutionKernel vertical = GradientOperator.SOBEL.getVertical();
+        assertEquals(ConvolutionKernel.of(3, 3,
+                -1, -2, -1,
+                0, 0, 0,
+                1, 2, 1), vertical);
+        assertArrayEquals(new int[]{-1, 0, 1}, vertical.getColumn());
+        assertArrayEquals(new int[]{1, 2, 1}, vertical.getRow());
+
+        ConvolutionKernel wide = ConvolutionKernel.of(3, 1, 1, 2, 3);
+        assertEquals(1, wide.transpose().getWidth());
+        assertEquals(3, wide.transpose().weight(0, 2));
+    }
+
+    @Test
+    void testBinomial() {
+        ConvolutionKernel kernel = ConvolutionKernel.binomial(5);
+        assertArrayEquals(new int[]{1, 4, 6, 4, 1}, kernel.getRow());
+        assertEquals(256, kernel.sum());
+        assertEquals(36, kernel.weight(2, 2));
+    }
+
+    @Test
+    void testRejectsKernelsThatOverflowTheSums() {
+        assertEquals(1 << 20, ConvolutionKernel.binomial(11).sum());
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> ConvolutionKernel.binomial(13));
+        assertTrue(error.getMessage().contains("overflow"), error.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> ConvolutionKernel.binomial(19));
+
+        int[] heavy = {ConvolutionKernel.MAX_ABSOLUTE_WEIGHT_SUM / 2, 1, ConvolutionKernel.MAX_ABSOLUTE_WEIGHT_SUM / 2};
+        assertThrows(IllegalArgumentException.class, () -> ConvolutionKernel.of(3, 1, heavy));
+        assertThrows(IllegalArgumentException.class, () -> ConvolutionKernel.separable(new int[] {1, 1, 1}, heavy));
+        // Negative weights count with their magnitude
+        assertThrows(IllegalArgumentException.class,
+                () -> ConvolutionKernel.of(3, 1, -ConvolutionKernel.MAX_ABSOLUTE_WEIGHT_SUM, 1, 1));
+    }
+}
@@ -0,0 +1,226 @@
+package kg.projects.image.editor.imagekit.algorithm.convolution;
+
+import kg.projects.image.editor.imagekit.algorithm.parallel.RowBandExecutor;
+import kg.projects.image.editor.imagekit.raster.ImagePool;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ConvolutionTest {
+
+    @Test
+    void testBorderModes() {
+        assertEquals(-1, BorderMode.ZERO.map(-1, 5));
+        assertEquals(0, BorderMode.CLAMP.map(-2, 5));
+        assertEquals(4, BorderMode.CLAMP.map(7, 5));
+        assertEquals(1, BorderMode.REFLECT.map(-1, 5));
+        assertEquals(3, BorderMode.REFLECT.map(5, 5));
+        assertEquals(2, BorderMode.REFLECT.map(6, 5));
+        assertEquals(0, BorderMode.REFLECT.map(-3, 1));
+        assertEquals(3, BorderMode.REFLECT.map(3, 5));
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new Convolution(null, BorderMode.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> new Convolution(ConvolutionKernel.binomial(3), null));
+        Convolution convolution = new Convolution(ConvolutionKernel.binomial(3), BorderMode.ZERO);
+        assertThrows(IllegalArgumentException.class,
+                () -> convolution.convolveRows(new int[4], 2, 2, 0, 3, new int[6], 0));
+    }
+
+    @Test
+    void testMatchesDirectComputation() {
+        Random random = new Random(5);
+        ConvolutionKernel[] kernels = {
+                GradientOperator.SOBEL.getHorizontal(),
+                GradientOperator.SCHARR.getVertical(),
+                ConvolutionKernel.binomial(5),
+                ConvolutionKernel.of(5, 3, random.ints(15, -9, 10).toArray()),
+                ConvolutionKernel.of(3, 3, 0, 1, 0, 1, -4, 1, 0, 1, 0)
+        };
+        for (int[] size : new int[][]{{1, 1}, {2, 7}, {17, 9}, {64, 33}}) {
+            int width = size[0];
+            int height = size[1];
+            int[] plane = random.ints(width * height, 0, 256).toArray();
+
+            for (ConvolutionKernel kernel : kernels) {
+                for (BorderMode borderMode : BorderMode.values()) {
+                    int[] expected = convolveDirectly(plane, width, height, kernel, borderMode);
+                    Convolution convolution = new Convolution(kernel, borderMode);
+
+                    int[] whole = new int[width * height];
+                    convolution.convolveRows(plane, width, height, 0, height, whole, 0);
+                    assertArrayEquals(expected, whole, kernel + " " + borderMode + " " + width + "x" + height);
+
+                    // A band in the middle lands at the given offset
+                    int fromRow = height / 3;
+                    int toRow = height - height / 4;
+                    int[] band = new int[(toRow - fromRow) * width + 3];
+                    convolution.convolveRows(plane, width, height, fromRow, toRow, band, 3);
+                    for (int i = 0; i < (toRow - fromRow) * width; i++) {
+                        assertEquals(expected[fromRow * width + i], band[3 + i], kernel + " " + borderMode);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testFilterMatchesDirectComputationAcrossChunks() {
+        Random random = new Random(7);
+        int width = 13;
+        int height = 3 * Convolution.CHUNK_ROWS + 5;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[][] channels = new int[3][width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int rgb = random.nextInt(1 << 24);
+                image.setRGB(x, y, rgb);
+                for (int c = 0; c < 3; c++) {
+                    channels[c][y * width + x] = (rgb >> (16 - 8 * c)) & 0xff;
+                }
+            }
+        }
+
+        ConvolutionKernel[] kernels = {
+                ConvolutionKernel.binomial(5),
+                ConvolutionKernel.binomial(11),
+                ConvolutionKernel.of(3, 5, random.ints(15, 0, 10).toArray())
+        };
+        try (RowBandExecutor executor = RowBandExecutor.parallel(2)) {
+            for (ConvolutionKernel kernel : kernels) {
+                for (BorderMode borderMode : BorderMode.values()) {
+                    int[][] expected = new int[3][];
+                    for (int c = 0; c < 3; c++) {
+                        expected[c] = convolveDirectly(channels[c], width, height, kernel, borderMode);
+                    }
+                    for (RowBandExecutor bands : new RowBandExecutor[]{RowBandExecutor.serial(), executor}) {
+                        BufferedImage result = new ConvolutionFilter(kernel, borderMode, bands).process(image);
+                        for (int y = 0; y < height; y++) {
+                            for (int x = 0; x < width; x++) {
+                                int rgb = 0xFF000000;
+                                for (int c = 0; c < 3; c++) {
+                                    int sum = expected[c][y * width + x];
+                                    int value = Math.floorDiv(2 * sum + kernel.sum(), 2 * kernel.sum());
+                                    rgb |= Math.max(0, Math.min(value, 255)) << (16 - 8 * c);
+                                }
+                                assertEquals(rgb, result.getRGB(x, y),
+                                        kernel + " " + borderMode + " mismatch at " + x + "," + y);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testFilterKeepsUniformImages() {
+        BufferedImage image = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.setRGB(x, y, 0x4080C0);
+            }
+        }
+
+        BufferedImage result;
+        try (RowBandExecutor executor = RowBandExecutor.parallel(2)) {
+            result = new ConvolutionFilter(ConvolutionKernel.binomial(5), BorderMode.REFLECT, executor).process(image);
+        }
+
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                assertEquals(0xFF4080C0, result.getRGB(x, y), "Mismatch at " + x + "," + y);
+            }
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> new ConvolutionFilter(GradientOperator.SOBEL.getHorizontal()));
+    }
+
+    @Test
+    void testLargestBinomialKeepsWhiteImagesWhite() {
+        BufferedImage image = new BufferedImage(30, 30, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.setRGB(x, y, 0xFFFFFF);
+            }
+        }
+
+        BufferedImage result = new ConvolutionFilter(ConvolutionKernel.binomial(11)).process(image);
+
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                assertEquals(0xFFFFFFFF, result.getRGB(x, y), "Mismatch at " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void testFilterBlursChannelsIndependently() {
+        BufferedImage image = new BufferedImage(3, 1, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(1, 0, 0xFF0040);
+
+        BufferedImage result = new ConvolutionFilter(ConvolutionKernel.of(3, 1, 1, 2, 1), BorderMode.ZERO,
+                RowBandExecutor.serial()).process(image);
+
+        // Red 255 spreads as 64, 128, 64 (rounded), blue 64 as 16, 32, 16
+        assertEquals(0xFF400010, result.getRGB(0, 0));
+        assertEquals(0xFF800020, result.getRGB(1, 0));
+        assertEquals(0xFF400010, result.getRGB(2, 0));
+    }
+
+    @Test
+    void testFilterAllocatesLittleForFramesLargerThanTheSharedPool() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        // A full-frame int plane of this size would not fit in the shared pool, so it could never be reused
+        int width = 2048;
+        int height = (int) (ImagePool.shared().maxBytes() / (width * Integer.BYTES)) + 1;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        BufferedImage destination = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ConvolutionFilter filter = new ConvolutionFilter(ConvolutionKernel.binomial(5), BorderMode.CLAMP,
+                RowBandExecutor.serial());
+        filter.process(image, destination);
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        filter.process(image, destination);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        // Only the bookkeeping of each chunk is left, far below one percent of a frame
+        assertTrue(allocated < (long) width * height * Integer.BYTES / 100, "Allocated " + allocated + " bytes");
+    }
+
+    private static int[] convolveDirectly(int[] plane, int width, int height, ConvolutionKernel kernel,
+                                          BorderMode borderMode) {
+        int[] result = new int[width * height];
+        int anchorX = kernel.getWidth() / 2;
+        int anchorY = kernel.getHeight() / 2;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int sum = 0;
+                for (int ky = 0; ky < kernel.getHeight(); ky++) {
+                    for (int kx = 0; kx < kernel.getWidth(); kx++) {
+                        int sourceX = borderMode.map(x + kx - anchorX, width);
+                        int sourceY = borderMode.map(y + ky - anchorY, height);
+                        if (sourceX >= 0 && sourceY >= 0) {
+                            sum += kernel.weight(kx, ky) * plane[sourceY * width + sourceX];
+                        }
+                    }
+                }
+                result[y * width + x] = sum;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,200 @@
+package kg.projects.image.editor.imagekit.algorithm.detection;
+
+import kg.projects.image.editor.imagekit.algorithm.convolution.BorderMode;
+import kg.projects.image.editor.imagekit.algorithm.convolution.Convolution;
+import kg.projects.image.editor.imagekit.algorithm.convolution.GradientOperator;
+import kg.projects.image.editor.imagekit.algorithm.grayscale.GrayscaleAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.grayscale.LuminosityGrayscale;
+import kg.projects.image.editor.imagekit.algorithm.kernel.GradientMagnitude;
+import kg.projects.image.editor.imagekit.algorithm.kernel.RowKernels;
+import kg.projects.image.editor.imagekit.algorithm.parallel.RowBandExecutor;
+import kg.projects.image.editor.imagekit.raster.GrayPlane;
+import kg.projects.image.editor.imagekit.raster.ImagePool;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static kg.projects.image.editor.imagekit.TestImages.assertSameImage;
+import static kg.projects.image.editor.imagekit.TestImages.createTestImage;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class GradientEdgeDetectionTest {
+    private final LuminosityGrayscale grayscaleAlgorithm = new LuminosityGrayscale();
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new GradientEdgeDetection(grayscaleAlgorithm, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new GradientEdgeDetection(grayscaleAlgorithm, GradientOperator.SCHARR, null,
+                        GradientMagnitude.L1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new GradientEdgeDetection(image -> image, GradientOperator.SCHARR));
+        assertThrows(IllegalArgumentException.class,
+                () -> new GradientEdgeDetection(grayscaleAlgorithm, GradientOperator.PREWITT).process(null));
+    }
+
+    @Test
+    void testMatchesDirectComputation() {
+        // Two full chunks of rows and a last one of a single row
+        BufferedImage testImage = createTestImage(67, 2 * Convolution.CHUNK_ROWS + 1);
+        GrayscaleAlgorithm delegating = image -> grayscaleAlgorithm.process(image);
+
+        try (RowBandExecutor executor = RowBandExecutor.parallel(3)) {
+            for (GradientOperator operator : GradientOperator.values()) {
+                for (BorderMode borderMode : BorderMode.values()) {
+                    for (GradientMagnitude magnitude : GradientMagnitude.values()) {
+                        BufferedImage expected = detectDirectly(testImage, operator, borderMode, magnitude);
+                        BufferedImage fused = new GradientEdgeDetection(grayscaleAlgorithm, operator, borderMode,
+                                magnitude, executor, RowKernels.preferred()).process(testImage);
+                        BufferedImage generic = new GradientEdgeDetection(delegating, operator, borderMode, magnitude)
+                                .process(testImage);
+
+                        String context = operator + " " + borderMode + " " + magnitude;
+                        assertSameImage(expected, fused, context);
+                        assertSameImage(expected, generic, context);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testGrayPlaneMatchesProcess() {
+        BufferedImage testImage = createTestImage(43, 29);
+        GrayscaleAlgorithm delegating = image -> grayscaleAlgorithm.process(image);
+
+        try (RowBandExecutor executor = RowBandExecutor.parallel(3)) {
+            for (GradientOperator operator : GradientOperator.values()) {
+                for (BorderMode borderMode : BorderMode.values()) {
+                    for (GradientMagnitude magnitude : GradientMagnitude.values()) {
+                        for (GrayscaleAlgorithm grayscale : List.of(grayscaleAlgorithm, delegating)) {
+                            GradientEdgeDetection detection = new GradientEdgeDetection(grayscale, operator,
+                                    borderMode, magnitude, executor, RowKernels.preferred());
+                            BufferedImage expected = detection.process(testImage);
+                            GrayPlane edges = detection.processToGray(testImage);
+                            GrayPlane edgesOfEdges = GrayPlane.create(43, 29);
+                            detection.processGray(edges, edgesOfEdges);
+
+                            String context = operator + " " + borderMode + " " + magnitude;
+                            assertSameImage(expected, edges.toRgbImage(), context);
+                            assertSameImage(detection.process(expected), edgesOfEdges.toRgbImage(), context);
+                        }
+                    }
+                }
+            }
+        }
+
+        GradientEdgeDetection sobel = new GradientEdgeDetection(grayscaleAlgorithm, GradientOperator.SOBEL);
+        assertThrows(IllegalArgumentException.class, () -> sobel.processToGray(null));
+        assertThrows(IllegalArgumentException.class, () -> sobel.processToGray(testImage, GrayPlane.create(1, 1)));
+        assertThrows(IllegalArgumentException.class, () -> sobel.processGray(null, GrayPlane.create(1, 1)));
+    }
+
+    @Test
+    void testSobelMatchesGradientDetection() {
+        BufferedImage testImage = createTestImage(50, 30);
+
+        assertSameImage(new GradientEdgeDetection(grayscaleAlgorithm, GradientOperator.SOBEL).process(testImage),
+                new SobelEdgeDetection(grayscaleAlgorithm).process(testImage), "zero");
+        assertSameImage(new GradientEdgeDetection(grayscaleAlgorithm, GradientOperator.SOBEL, BorderMode.REFLECT,
+                        GradientMagnitude.EXACT).process(testImage),
+                new SobelEdgeDetection(grayscaleAlgorithm, BorderMode.REFLECT).process(testImage), "reflect");
+    }
+
+    @Test
+    void testDescriptorIncludesOptions() {
+        String sobel = new GradientEdgeDetection(grayscaleAlgorithm, GradientOperator.SOBEL).descriptor();
+        assertNotEquals(sobel, new GradientEdgeDetection(grayscaleAlgorithm, GradientOperator.SCHARR).descriptor());
+        assertNotEquals(new SobelEdgeDetection(grayscaleAlgorithm).descriptor(),
+                new SobelEdgeDetection(grayscaleAlgorithm, BorderMode.CLAMP).descriptor());
+    }
+
+    @Test
+    void testSteadyStateProcessingIntoDestinationAllocatesLittle() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        // Interpreted vector code boxes every vector, so the measurement sticks to the scalar kernels
+        LuminosityGrayscale scalarGrayscale = new LuminosityGrayscale(RowBandExecutor.serial(), RowKernels.scalar());
+        BufferedImage testImage = createTestImage(320, 240);
+        BufferedImage destination = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        int planeBytes = 320 * 240 * Integer.BYTES;
+        for (GradientEdgeDetection detection : new GradientEdgeDetection[]{
+            new GradientEdgeDetection(scalarGrayscale, GradientOperator.SOBEL, BorderMode.ZERO,
+                    GradientMagnitude.EXACT, RowBandExecutor.serial(), RowKernels.scalar()),
+            new GradientEdgeDetection(scalarGrayscale, GradientOperator.SCHARR, BorderMode.REFLECT,
+                    GradientMagnitude.EXACT, RowBandExecutor.serial(), RowKernels.scalar())
+        }) {
+            // The first frames fill the pool
+            detection.process(testImage, destination);
+            detection.process(testImage, destination);
+
+            long thread = Thread.currentThread().getId();
+            long before = threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < 5; i++) {
+                detection.process(testImage, destination);
+            }
+            long perFrame = (threads.getThreadAllocatedBytes(thread) - before) / 5;
+            assertTrue(perFrame < planeBytes / 10, detection.getOperator() + " allocated " + perFrame + " bytes");
+        }
+    }
+
+    @Test
+    void testSteadyStateAllocatesLittleForFramesLargerThanTheSharedPool() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        // A full-frame int plane of this size would not fit in the shared pool, so it could never be reused
+        int width = 2048;
+        int height = (int) (ImagePool.shared().maxBytes() / (width * Integer.BYTES)) + 1;
+        BufferedImage testImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        BufferedImage destination = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        LuminosityGrayscale scalarGrayscale = new LuminosityGrayscale(RowBandExecutor.serial(), RowKernels.scalar());
+        GradientEdgeDetection detection = new GradientEdgeDetection(scalarGrayscale, GradientOperator.SCHARR,
+                BorderMode.ZERO, GradientMagnitude.EXACT, RowBandExecutor.serial(), RowKernels.scalar());
+        detection.process(testImage, destination);
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        detection.process(testImage, destination);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        // Only the bookkeeping of each chunk is left, far below one percent of a frame
+        assertTrue(allocated < (long) width * height * Integer.BYTES / 100, "Allocated " + allocated + " bytes");
+    }
+
+    private BufferedImage detectDirectly(BufferedImage image, GradientOperator operator, BorderMode borderMode,
+                                         GradientMagnitude magnitude) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int gx = 0;
+                int gy = 0;
+                for (int ky = 0; ky < 3; ky++) {
+                    for (int kx = 0; kx < 3; kx++) {
+                        int sourceX = borderMode.map(x + kx - 1, width);
+                        int sourceY = borderMode.map(y + ky - 1, height);
+                        if (sourceX >= 0 && sourceY >= 0) {
+                            int gray = grayscaleAlgorithm.toGray(image.getRGB(sourceX, sourceY));
+                            gx += operator.getHorizontal().weight(kx, ky) * gray;
+                            gy += operator.getVertical().weight(kx, ky) * gray;
+                        }
+                    }
+                }
+                int value = magnitude.magnitude(gx, gy);
+                result.setRGB(x, y, (value << 16) | (value << 8) | value);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,106 @@
+package kg.projects.image.editor.imagekit.algorithm.detection;
+
+import kg.projects.image.editor.imagekit.algorithm.PixelAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.grayscale.GrayscaleAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.grayscale.LuminosityGrayscale;
+import kg.projects.image.editor.imagekit.algorithm.pyramid.ImagePyramid;
+import kg.projects.image.editor.imagekit.algorithm.pyramid.PyramidFilter;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static kg.projects.image.editor.imagekit.TestImages.assertSameImage;
+import static kg.projects.image.editor.imagekit.TestImages.createTestImage;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PyramidEdgeDetectionTest {
+    private final LuminosityGrayscale grayscale = new LuminosityGrayscale();
+    private final SobelEdgeDetection sobel = new SobelEdgeDetection(grayscale);
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new PyramidEdgeDetection(null, 1));
+        assertThrows(IllegalArgumentException.class, () -> new PyramidEdgeDetection(grayscale, -1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PyramidEdgeDetection(grayscale, 1, -2, 32, PyramidFilter.BOX));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PyramidEdgeDetection(grayscale, 1, 10, 0, PyramidFilter.BOX));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PyramidEdgeDetection(grayscale, 1, 10, 32, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PyramidEdgeDetection(grayscale, 1).process((ImagePyramid) null));
+    }
+
+    @Test
+    void testFullRefinementMatchesSobel() {
+        BufferedImage image = createTestImage(90, 61);
+        BufferedImage expected = sobel.process(image);
+
+        for (PyramidFilter filter : PyramidFilter.values()) {
+            assertSameImage(expected, new PyramidEdgeDetection(grayscale, 2, 0, 16, filter).process(image),
+                    filter.name());
+        }
+        assertSameImage(expected, new PyramidEdgeDetection(grayscale, 0).process(image), "level 0");
+    }
+
+    @Test
+    void testCoarseLevelIsScaledUp() {
+        BufferedImage image = createTestImage(37, 21);
+        ImagePyramid pyramid = ImagePyramid.of(image, PyramidFilter.GAUSSIAN);
+        BufferedImage coarse = sobel.process(pyramid.level(2));
+
+        BufferedImage result = new PyramidEdgeDetection(grayscale, 2).process(pyramid);
+        assertEquals(37, result.getWidth());
+        assertEquals(21, result.getHeight());
+        for (int x = 0; x < 37; x++) {
+            for (int y = 0; y < 21; y++) {
+                assertEquals(coarse.getRGB(x / 4, y / 4), result.getRGB(x, y));
+            }
+        }
+
+        // Levels beyond the top of the pyramid use the last one
+        BufferedImage top = new PyramidEdgeDetection(grayscale, pyramid.levelCount() - 1).process(pyramid);
+        assertSameImage(top, new PyramidEdgeDetection(grayscale, 50).process(pyramid), "level 50");
+    }
+
+    @Test
+    void testFlatRegionsAreNotRefined() {
+        int size = 256;
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        for (int x = 100; x < 120; x++) {
+            for (int y = 40; y < 60; y++) {
+                image.setRGB(x, y, 0xffffff);
+            }
+        }
+        AtomicLong grayPixels = new AtomicLong();
+        CountingGrayscale counting = new CountingGrayscale(grayPixels);
+
+        BufferedImage result = new PyramidEdgeDetection(counting, 3, 20, 32, PyramidFilter.GAUSSIAN).process(image);
+        assertTrue(grayPixels.get() < size * size / 4, "Converted " + grayPixels.get() + " pixels");
+
+        BufferedImage expected = sobel.process(image);
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                assertEquals(expected.getRGB(x, y), result.getRGB(x, y), "Mismatch at " + x + "," + y);
+            }
+        }
+    }
+
+    private static final class CountingGrayscale implements GrayscaleAlgorithm, PixelAlgorithm {
+        private final LuminosityGrayscale grayscale = new LuminosityGrayscale();
+        private final AtomicLong pixels;
+
+        private CountingGrayscale(AtomicLong pixels) {
+            this.pixels = pixels;
+        }
+
+        @Override
+        public int processPixel(int pixel) {
+            pixels.incrementAndGet();
+            return grayscale.processPixel(pixel);
+        }
+    }
+}
@@ -2,10 +2,14 @@ package kg.projects.image.editor.imagekit.algorithm.detection;
 
 import kg.projects.image.editor.imagekit.algorithm.grayscale.GrayscaleAlgorithm;
 import kg.projects.image.editor.imagekit.algorithm.grayscale.LuminosityGrayscale;
+import kg.projects.image.editor.imagekit.algorithm.kernel.GradientMagnitude;
+import kg.projects.image.editor.imagekit.algorithm.kernel.RowKernels;
+import kg.projects.image.editor.imagekit.algorithm.parallel.RowBandExecutor;
 import org.junit.jupiter.api.Test;
 
 import java.awt.image.BufferedImage;
 
+import static kg.projects.image.editor.imagekit.TestImages.createTestImage;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -85,4 +89,83 @@ public class SobelEdgeDetectionTest {
             }
         }
     }
+
+    @Test
+    void testFusedLuminosityMatchesGenericGrayscale() {
+        BufferedImage testImage = new BufferedImage(13, 9, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < testImage.getWidth(); x++) {
+            for (int y = 0; y < testImage.getHeight(); y++) {
+                testImage.setRGB(x, y, (x * 19 << 16) | (y * 27 << 8) | ((x * y * 7) & 0xFF));
+            }
+        }
+
+        GrayscaleAlgorithm delegating = image -> grayscaleAlgorithm.process(image);
+        BufferedImage expected = new SobelEdgeDetection(delegating).process(testImage);
+        BufferedImage result = filter.process(testImage);
+
+        for (int x = 0; x < testImage.getWidth(); x++) {
+            for (int y = 0; y < testImage.getHeight(); y++) {
+                assertEquals(expected.getRGB(x, y), result.getRGB(x, y), "Mismatch at " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void testParallelMatchesSerial() {
+        BufferedImage testImage = createTestImage(320, 900);
+
+        GrayscaleAlgorithm delegating = image -> grayscaleAlgorithm.process(image);
+        BufferedImage expected = filter.process(testImage);
+        BufferedImage fused;
+        BufferedImage generic;
+        try (RowBandExecutor executor = RowBandExecutor.parallel(4)) {
+            fused = new SobelEdgeDetection(grayscaleAlgorithm, executor).process(testImage);
+            generic = new SobelEdgeDetection(delegating, executor).process(testImage);
+        }
+
+        for (int x = 0; x < testImage.getWidth(); x++) {
+            for (int y = 0; y < testImage.getHeight(); y++) {
+                assertEquals(expected.getRGB(x, y), fused.getRGB(x, y), "Mismatch at " + x + "," + y);
+                assertEquals(expected.getRGB(x, y), generic.getRGB(x, y), "Mismatch at " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void testScalarKernelsMatchPreferred() {
+        BufferedImage testImage = new BufferedImage(301, 47, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < testImage.getWidth(); x++) {
+            for (int y = 0; y < testImage.getHeight(); y++) {
+                testImage.setRGB(x, y, (x * 131 + y * 71) * 0x9E3779B1);
+            }
+        }
+
+        RowBandExecutor executor = RowBandExecutor.serial();
+        RowKernels scalar = RowKernels.scalar();
+        BufferedImage expected = new SobelEdgeDetection(new LuminosityGrayscale(executor, scalar), executor, scalar)
+                .process(testImage);
+        BufferedImage actual = filter.process(testImage);
+
+        for (int x = 0; x < testImage.getWidth(); x++) {
+            for (int y = 0; y < testImage.getHeight(); y++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "Mismatch at " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void testApproximateMagnitudes() {
+        BufferedImage testImage = new BufferedImage(3, 3, BufferedImage.TYPE_INT_RGB);
+        testImage.setRGB(0, 0, 0x0A0A0A);
+        testImage.setRGB(2, 0, 0x282828);
+
+        // At the centre gx = 40 - 10 = 30 and gy = -(10 + 40) = -50
+        assertEquals(58, new SobelEdgeDetection(grayscaleAlgorithm).process(testImage).getRGB(1, 1) & 0xff);
+        assertEquals(80, new SobelEdgeDetection(grayscaleAlgorithm, GradientMagnitude.L1)
+                .process(testImage).getRGB(1, 1) & 0xff);
+        assertEquals(50, new SobelEdgeDetection(grayscaleAlgorithm, GradientMagnitude.MAX)
+                .process(testImage).getRGB(1, 1) & 0xff);
+        assertThrows(IllegalArgumentException.class,
+                () -> new SobelEdgeDetection(grayscaleAlgorithm, (GradientMagnitude) null));
+    }
 }
@@ -0,0 +1,97 @@
+package kg.projects.image.editor.imagekit.algorithm.grayscale;
+
+import kg.projects.image.editor.imagekit.algorithm.parallel.RowBandExecutor;
+import kg.projects.image.editor.imagekit.raster.GrayPlane;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static kg.projects.image.editor.imagekit.TestImages.createTestImage;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FixedPointGrayscaleTest {
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new FixedPointGrayscale(null));
+        assertThrows(IllegalArgumentException.class, () -> new FixedPointGrayscale(LumaCoefficients.BT601, null));
+        assertThrows(IllegalArgumentException.class, () -> new FixedPointGrayscale().process(null));
+    }
+
+    @Test
+    void testWithinOneOfFloatingPoint() {
+        for (LumaCoefficients coefficients : LumaCoefficients.values()) {
+            FixedPointGrayscale filter = new FixedPointGrayscale(coefficients);
+            for (int pixel = 0; pixel <= 0xFFFFFF; pixel++) {
+                double weighted = coefficients.getRed() * ((pixel >> 16) & 0xff)
+                        + coefficients.getGreen() * ((pixel >> 8) & 0xff)
+                        + coefficients.getBlue() * (pixel & 0xff);
+                long expected = Math.min(255, Math.round(weighted));
+                long difference = Math.abs(filter.toGray(pixel) - expected);
+                assertTrue(difference <= 1, coefficients + " differs by " + difference + " at " + pixel);
+            }
+        }
+    }
+
+    @Test
+    void testGrayPixelsKeepTheirValue() {
+        for (LumaCoefficients coefficients : LumaCoefficients.values()) {
+            FixedPointGrayscale filter = new FixedPointGrayscale(coefficients);
+            for (int value = 0; value <= 255; value++) {
+                assertEquals(value, filter.toGray(value * 0x010101), coefficients + " at " + value);
+            }
+        }
+    }
+
+    @Test
+    void testParallelMatchesPerPixel() {
+        BufferedImage testImage = createTestImage(300, 700);
+
+        RowBandExecutor executor = RowBandExecutor.parallel(4);
+        FixedPointGrayscale filter = new FixedPointGrayscale(LumaCoefficients.BT709, executor);
+        BufferedImage result = filter.process(testImage);
+        executor.close();
+
+        for (int x = 0; x < testImage.getWidth(); x++) {
+            for (int y = 0; y < testImage.getHeight(); y++) {
+                int gray = filter.toGray(testImage.getRGB(x, y));
+                assertEquals(0xFF000000 | gray << 16 | gray << 8 | gray, result.getRGB(x, y),
+                        "Mismatch at " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void testDescriptorDependsOnCoefficients() {
+        assertNotEquals(new FixedPointGrayscale(LumaCoefficients.BT601).descriptor(),
+                new FixedPointGrayscale(LumaCoefficients.BT709).descriptor());
+    }
+
+    @Test
+    void testGrayPlaneMatchesProcess() {
+        BufferedImage testImage = createTestImage(37, 23);
+
+        RowBandExecutor executor = RowBandExecutor.parallel(3);
+        for (LumaCoefficients coefficients : LumaCoefficients.values()) {
+            FixedPointGrayscale algorithm = new FixedPointGrayscale(coefficients, executor);
+            BufferedImage expected = algorithm.process(testImage);
+            GrayPlane levels = GrayPlane.create(37, 23);
+            algorithm.processToGray(testImage, levels);
+            GrayPlane twice = GrayPlane.create(37, 23);
+            algorithm.processGray(levels, twice);
+
+            for (int x = 0; x < testImage.getWidth(); x++) {
+                for (int y = 0; y < testImage.getHeight(); y++) {
+                    int i = y * testImage.getWidth() + x;
+                    assertEquals(expected.getRGB(x, y) & 0xff, levels.levels()[i] & 0xff, coefficients + " at " + x);
+                    // Gray pixels keep their value
+                    assertEquals(levels.levels()[i], twice.levels()[i], coefficients + " at " + x);
+                }
+            }
+        }
+        executor.close();
+    }
+}
@@ -1,9 +1,13 @@
 package kg.projects.image.editor.imagekit.algorithm.grayscale;
 
+import kg.projects.image.editor.imagekit.algorithm.parallel.RowBandExecutor;
+import kg.projects.image.editor.imagekit.raster.GrayPlane;
 import org.junit.jupiter.api.Test;
 
 import java.awt.image.BufferedImage;
+import java.util.List;
 
+import static kg.projects.image.editor.imagekit.TestImages.createTestImage;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -39,4 +43,49 @@ class LuminosityGrayscaleTest {
             }
         }
     }
+
+    @Test
+    void testParallelMatchesSerial() {
+        BufferedImage testImage = createTestImage(300, 700);
+
+        BufferedImage expected = filter.process(testImage);
+        BufferedImage result;
+        try (RowBandExecutor executor = RowBandExecutor.parallel(3)) {
+            result = new LuminosityGrayscale(executor).process(testImage);
+        }
+
+        for (int x = 0; x < testImage.getWidth(); x++) {
+            for (int y = 0; y < testImage.getHeight(); y++) {
+                assertEquals(expected.getRGB(x, y), result.getRGB(x, y), "Mismatch at " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void testGrayPlaneMatchesProcess() {
+        BufferedImage testImage = createTestImage(37, 23);
+
+        RowBandExecutor executor = RowBandExecutor.parallel(3);
+        for (LuminosityGrayscale algorithm : List.of(filter, new LuminosityGrayscale(executor))) {
+            BufferedImage expected = algorithm.process(testImage);
+            GrayPlane levels = algorithm.processToGray(testImage);
+            GrayPlane twice = GrayPlane.create(37, 23);
+            algorithm.processGray(levels, twice);
+            BufferedImage expectedTwice = algorithm.process(expected);
+
+            for (int x = 0; x < testImage.getWidth(); x++) {
+                for (int y = 0; y < testImage.getHeight(); y++) {
+                    int i = y * testImage.getWidth() + x;
+                    assertEquals(expected.getRGB(x, y) & 0xff, levels.levels()[i] & 0xff, "Mismatch at " + x + "," + y);
+                    assertEquals(expectedTwice.getRGB(x, y) & 0xff, twice.levels()[i] & 0xff,
+                            "Mismatch at " + x + "," + y);
+                }
+            }
+            assertThrows(IllegalArgumentException.class,
+                    () -> algorithm.processToGray(testImage, GrayPlane.create(36, 23)));
+            assertThrows(IllegalArgumentException.class, () -> algorithm.processGray(levels, null));
+            assertThrows(IllegalArgumentException.class, () -> algorithm.processGray(null, twice));
+        }
+        executor.close();
+    }
 }
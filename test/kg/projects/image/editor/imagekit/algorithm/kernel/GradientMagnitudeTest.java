@@ -0,0 +1,31 @@
+package kg.projects.image.editor.imagekit.algorithm.kernel;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GradientMagnitudeTest {
+
+    @Test
+    void testExactMatchesRoundedSquareRoot() {
+        // Sobel gradients of 8-bit values lie within [-1020, 1020]
+        for (int gx = 0; gx <= 1020; gx++) {
+            for (int gy = 0; gy <= 1020; gy++) {
+                int expected = Math.min(255, (int) Math.round(Math.sqrt((double) gx * gx + (double) gy * gy)));
+                assertEquals(expected, GradientMagnitude.EXACT.magnitude(gx, gy), "Mismatch at " + gx + "," + gy);
+            }
+        }
+        assertEquals(GradientMagnitude.EXACT.magnitude(3, 4), GradientMagnitude.EXACT.magnitude(-3, -4));
+    }
+
+    @Test
+    void testNorms() {
+        assertEquals(5, GradientMagnitude.EXACT.magnitude(3, -4));
+        assertEquals(7, GradientMagnitude.L1.magnitude(3, -4));
+        assertEquals(4, GradientMagnitude.MAX.magnitude(3, -4));
+
+        assertEquals(255, GradientMagnitude.EXACT.magnitude(-1020, 1020));
+        assertEquals(255, GradientMagnitude.L1.magnitude(200, 100));
+        assertEquals(255, GradientMagnitude.MAX.magnitude(0, -300));
+    }
+}
@@ -0,0 +1,106 @@
+package kg.projects.image.editor.imagekit.algorithm.kernel;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class RowKernelsTest {
+
+    /**
+     * The largest allowed difference of a channel between the vector and the scalar kernels.
+     */
+    private static final int TOLERANCE = 0;
+
+    @BeforeEach
+    void requireVectorApi() {
+        // The build runs the tests with --add-modules jdk.incubator.vector
+        assumeTrue(RowKernels.vector() != null, "The Vector API is not available");
+    }
+
+    @Test
+    void testPreferredKernels() {
+        assertSame(RowKernels.vector(), RowKernels.preferred());
+
+        System.setProperty(RowKernels.SIMD_PROPERTY, "false");
+        try {
+            assertSame(RowKernels.scalar(), RowKernels.preferred());
+        } finally {
+            System.clearProperty(RowKernels.SIMD_PROPERTY);
+        }
+    }
+
+    @Test
+    void testLuminosityMatchesScalar() {
+        int[] source = new int[1 << 24];
+        for (int i = 0; i < source.length; i++) {
+            source[i] = i;
+        }
+        // An odd length and offset exercise the scalar tail
+        int length = source.length - 5;
+        int[] expected = new int[source.length];
+        int[] actual = new int[source.length];
+        RowKernels.scalar().luminosityRow(source, 3, expected, 1, length);
+        RowKernels.vector().luminosityRow(source, 3, actual, 1, length);
+
+        assertWithinTolerance(expected, actual);
+    }
+
+    @Test
+    void testSobelMatchesScalar() {
+        Random random = new Random(12);
+        for (GradientMagnitude magnitude : GradientMagnitude.values()) {
+            for (int width : new int[]{1, 2, 7, 8, 33, 640}) {
+                int[] above = grayRow(random, width);
+                int[] current = grayRow(random, width);
+                int[] below = grayRow(random, width);
+                int[] expected = new int[width + 3];
+                int[] actual = new int[width + 3];
+
+                RowKernels.scalar().sobelRow(above, current, below, expected, 3, width, magnitude);
+                RowKernels.vector().sobelRow(above, current, below, actual, 3, width, magnitude);
+
+                assertWithinTolerance(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    void testSobelExtremes() {
+        int width = 64;
+        int[] zero = new int[width + 2];
+        int[] full = new int[width + 2];
+        Arrays.fill(full, 1, width + 1, 255);
+        for (GradientMagnitude magnitude : GradientMagnitude.values()) {
+            int[] expected = new int[width];
+            int[] actual = new int[width];
+
+            RowKernels.scalar().sobelRow(zero, full, full, expected, 0, width, magnitude);
+            RowKernels.vector().sobelRow(zero, full, full, actual, 0, width, magnitude);
+
+            assertWithinTolerance(expected, actual);
+        }
+    }
+
+    private static int[] grayRow(Random random, int width) {
+        int[] row = new int[width + 2];
+        for (int x = 1; x <= width; x++) {
+            row[x] = random.nextInt(256);
+        }
+        return row;
+    }
+
+    private static void assertWithinTolerance(int[] expected, int[] actual) {
+        for (int i = 0; i < expected.length; i++) {
+            for (int shift = 0; shift <= 16; shift += 8) {
+                int difference = Math.abs(((expected[i] >> shift) & 0xff) - ((actual[i] >> shift) & 0xff));
+                assertTrue(difference <= TOLERANCE, "Pixel " + i + " differs by " + difference);
+            }
+        }
+    }
+}
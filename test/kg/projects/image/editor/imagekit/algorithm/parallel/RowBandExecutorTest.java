@@ -0,0 +1,114 @@
+package kg.projects.image.editor.imagekit.algorithm.parallel;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RowBandExecutorTest {
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> RowBandExecutor.parallel(0));
+        assertThrows(IllegalArgumentException.class, () -> RowBandExecutor.of(null));
+        assertThrows(IllegalArgumentException.class, () -> RowBandExecutor.serial().execute(1, 1, null));
+    }
+
+    @Test
+    void testSerialProcessesAllRowsAtOnce() {
+        int[] calls = new int[1];
+        RowBandExecutor.serial().execute(4000, 4000, (fromRow, toRow) -> {
+            assertEquals(0, fromRow);
+            assertEquals(4000, toRow);
+            calls[0]++;
+        });
+        assertEquals(1, calls[0]);
+    }
+
+    @Test
+    void testParallelCoversEveryRowOnce() {
+        int height = 3001;
+        AtomicIntegerArray visits = new AtomicIntegerArray(height);
+
+        try (RowBandExecutor executor = RowBandExecutor.parallel(4)) {
+            executor.execute(1000, height, (fromRow, toRow) -> {
+                for (int y = fromRow; y < toRow; y++) {
+                    visits.incrementAndGet(y);
+                }
+            });
+        }
+
+        for (int y = 0; y < height; y++) {
+            assertEquals(1, visits.get(y), "Row " + y);
+        }
+    }
+
+    @Test
+    void testCancellationStopsBeforeNextBand() {
+        RowBandExecutor parallel = RowBandExecutor.parallel(2);
+        for (RowBandExecutor executor : List.of(RowBandExecutor.serial(), parallel)) {
+            CancellationSignal signal = new CancellationSignal();
+            AtomicInteger bands = new AtomicInteger();
+
+            assertThrows(CancellationException.class, () -> CancellationSignal.runWith(signal, () -> {
+                executor.execute(1000, 4000, (fromRow, toRow) -> {
+                    bands.incrementAndGet();
+                    signal.cancel();
+                });
+                return null;
+            }));
+            // Bands that started before the signal was seen still finish
+            assertTrue(bands.get() >= 1 && bands.get() <= executor.parallelism(), "Bands " + bands.get());
+            assertNull(CancellationSignal.current());
+        }
+        parallel.close();
+    }
+
+    @Test
+    void testCloseShutsDownOwnedPoolOnly() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        RowBandExecutor.of(pool).close();
+        RowBandExecutor.common().close();
+        assertFalse(pool.isShutdown());
+        assertFalse(ForkJoinPool.commonPool().isShutdown());
+        pool.shutdown();
+
+        RowBandExecutor parallel = RowBandExecutor.parallel(2);
+        parallel.close();
+        assertThrows(RejectedExecutionException.class,
+                () -> parallel.execute(1000, 4000, (fromRow, toRow) -> { }));
+    }
+
+    @Test
+    void testSignalSplitsSerialRowsIntoBands() {
+        int height = 3001;
+        AtomicIntegerArray visits = new AtomicIntegerArray(height);
+        AtomicInteger bands = new AtomicInteger();
+
+        CancellationSignal.runWith(new CancellationSignal(), () -> {
+            RowBandExecutor.serial().execute(1000, height, (fromRow, toRow) -> {
+                bands.incrementAndGet();
+                for (int y = fromRow; y < toRow; y++) {
+                    visits.incrementAndGet(y);
+                }
+            });
+            return null;
+        });
+
+        assertTrue(bands.get() > 1);
+        for (int y = 0; y < height; y++) {
+            assertEquals(1, visits.get(y), "Row " + y);
+        }
+        assertThrows(IllegalArgumentException.class, () -> CancellationSignal.runWith(null, () -> null));
+    }
+}
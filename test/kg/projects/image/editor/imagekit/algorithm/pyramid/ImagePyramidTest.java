@@ -0,0 +1,80 @@
+package kg.projects.image.editor.imagekit.algorithm.pyramid;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ImagePyramidTest {
+
+    @Test
+    void testInvalidArguments() {
+        BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+        assertThrows(IllegalArgumentException.class, () -> ImagePyramid.of(null, PyramidFilter.BOX));
+        assertThrows(IllegalArgumentException.class, () -> ImagePyramid.of(image, null));
+        ImagePyramid pyramid = ImagePyramid.of(image, PyramidFilter.BOX);
+        assertThrows(IllegalArgumentException.class, () -> pyramid.level(-1));
+        assertThrows(IllegalArgumentException.class, () -> pyramid.level(pyramid.levelCount()));
+    }
+
+    @Test
+    void testLevelSizesRoundUp() {
+        BufferedImage image = new BufferedImage(13, 6, BufferedImage.TYPE_INT_RGB);
+        ImagePyramid pyramid = ImagePyramid.of(image, PyramidFilter.GAUSSIAN);
+        assertEquals(4, pyramid.levelCount());
+        assertSame(image, pyramid.level(0));
+
+        int[][] sizes = {{13, 6}, {7, 3}, {4, 2}, {2, 1}};
+        for (int level = 0; level < sizes.length; level++) {
+            assertEquals(sizes[level][0], pyramid.level(level).getWidth());
+            assertEquals(sizes[level][1], pyramid.level(level).getHeight());
+            assertEquals(BufferedImage.TYPE_INT_RGB, pyramid.level(level).getType());
+        }
+        assertSame(pyramid.level(2), pyramid.level(2));
+        assertEquals(1, ImagePyramid.of(new BufferedImage(1, 9, BufferedImage.TYPE_INT_RGB),
+                PyramidFilter.BOX).levelCount());
+    }
+
+    @Test
+    void testFiltersMatchWeightedAverages() {
+        BufferedImage image = new BufferedImage(5, 5, BufferedImage.TYPE_3BYTE_BGR);
+        for (int x = 0; x < 5; x++) {
+            for (int y = 0; y < 5; y++) {
+                image.setRGB(x, y, (x * 50) << 16 | (y * 60) << 8 | (x * y * 9));
+            }
+        }
+
+        for (PyramidFilter filter : PyramidFilter.values()) {
+            BufferedImage half = ImagePyramid.of(image, filter).level(1);
+            for (int x = 0; x < 3; x++) {
+                for (int y = 0; y < 3; y++) {
+                    assertEquals(expected(image, filter, 2 * x, 2 * y), half.getRGB(x, y) & 0xffffff,
+                            filter + " at " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    private static int expected(BufferedImage image, PyramidFilter filter, int x, int y) {
+        int pixel = 0;
+        for (int shift = 0; shift <= 16; shift += 8) {
+            int sum = 0;
+            int total = 0;
+            int from = filter == PyramidFilter.BOX ? 0 : -1;
+            for (int dy = from; dy <= 1; dy++) {
+                for (int dx = from; dx <= 1; dx++) {
+                    int weight = filter == PyramidFilter.BOX ? 1 : (2 - Math.abs(dx)) * (2 - Math.abs(dy));
+                    int sourceX = Math.max(0, Math.min(x + dx, image.getWidth() - 1));
+                    int sourceY = Math.max(0, Math.min(y + dy, image.getHeight() - 1));
+                    sum += weight * (image.getRGB(sourceX, sourceY) >> shift & 0xff);
+                    total += weight;
+                }
+            }
+            pixel |= ((sum + total / 2) / total) << shift;
+        }
+        return pixel;
+    }
+}
@@ -0,0 +1,138 @@
+package kg.projects.image.editor.imagekit.async;
+
+import kg.projects.image.editor.imagekit.algorithm.ImageAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.grayscale.LuminosityGrayscale;
+import kg.projects.image.editor.imagekit.algorithm.parallel.RowBandExecutor;
+import kg.projects.image.editor.imagekit.filesystem.LocalFileSystemImageManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static kg.projects.image.editor.imagekit.TestImages.createTestImage;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncImageServiceTest {
+    private final LocalFileSystemImageManager manager = new LocalFileSystemImageManager();
+    private final LuminosityGrayscale grayscale = new LuminosityGrayscale();
+    private BufferedImage testImage;
+
+    @BeforeEach
+    void setUp() {
+        testImage = createTestImage(40, 30);
+    }
+
+    @Test
+    void testInvalidArguments() {
+        AsyncImageService service = AsyncImageService.builder(manager).build();
+        assertThrows(IllegalArgumentException.class, () -> AsyncImageService.builder(null));
+        assertThrows(IllegalArgumentException.class, () -> AsyncImageService.builder(manager).ioExecutor(null));
+        assertThrows(IllegalArgumentException.class, () -> AsyncImageService.builder(manager).cpuExecutor(null));
+        assertThrows(IllegalArgumentException.class, () -> service.loadImageAsync(null));
+        assertThrows(IllegalArgumentException.class, () -> service.processAsync(null, testImage));
+        assertThrows(IllegalArgumentException.class, () -> service.processAsync(grayscale, null));
+        assertThrows(IllegalArgumentException.class, () -> service.saveImageAsync(testImage, null));
+        assertThrows(IllegalArgumentException.class, () -> service.transformAsync(null, grayscale, null));
+    }
+
+    @Test
+    void testComposesLoadProcessAndSave(@TempDir Path dir) throws Exception {
+        File input = dir.resolve("input.png").toFile();
+        ImageIO.write(testImage, "png", input);
+        File composed = dir.resolve("composed.png").toFile();
+        File transformed = dir.resolve("transformed.png").toFile();
+        AsyncImageService service = AsyncImageService.builder(manager).build();
+
+        service.loadImageAsync(input)
+                .thenCompose(image -> service.processAsync(grayscale, image))
+                .thenCompose(image -> service.saveImageAsync(image, composed))
+                .get();
+        service.transformAsync(input, grayscale, transformed).get();
+
+        BufferedImage expected = grayscale.process(manager.loadImage(input));
+        for (File file : List.of(composed, transformed)) {
+            BufferedImage result = ImageIO.read(file);
+            for (int x = 0; x < expected.getWidth(); x++) {
+                for (int y = 0; y < expected.getHeight(); y++) {
+                    assertEquals(expected.getRGB(x, y), result.getRGB(x, y), file.getName() + " at " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testFailuresCompleteExceptionally(@TempDir Path dir) throws IOException {
+        File existing = dir.resolve("existing.png").toFile();
+        ImageIO.write(testImage, "png", existing);
+        AsyncImageService service = AsyncImageService.builder(manager).build();
+
+        ExecutionException missing = assertThrows(ExecutionException.class,
+                () -> service.loadImageAsync(dir.resolve("missing.png").toFile()).get());
+        assertInstanceOf(IOException.class, missing.getCause());
+
+        ExecutionException overwrite = assertThrows(ExecutionException.class,
+                () -> service.transformAsync(existing, grayscale, existing).get());
+        assertInstanceOf(IOException.class, overwrite.getCause());
+
+        ImageAlgorithm failing = image -> {
+            throw new IllegalStateException("broken");
+        };
+        ExecutionException processing = assertThrows(ExecutionException.class,
+                () -> service.processAsync(failing, testImage).get());
+        assertInstanceOf(IllegalStateException.class, processing.getCause());
+    }
+
+    @Test
+    void testCancellationStopsAtBandBoundary() {
+        List<Runnable> tasks = new ArrayList<>();
+        AsyncImageService service = AsyncImageService.builder(manager).cpuExecutor(tasks::add).build();
+        BufferedImage large = new BufferedImage(1000, 1000, BufferedImage.TYPE_INT_RGB);
+        AtomicReference<CompletableFuture<BufferedImage>> future = new AtomicReference<>();
+        AtomicInteger bands = new AtomicInteger();
+        ImageAlgorithm cancelling = image -> {
+            RowBandExecutor.serial().execute(image.getWidth(), image.getHeight(), (fromRow, toRow) -> {
+                bands.incrementAndGet();
+                future.get().cancel(true);
+            });
+            return image;
+        };
+
+        future.set(service.processAsync(cancelling, large));
+        assertFalse(future.get().isDone());
+        tasks.forEach(Runnable::run);
+
+        assertTrue(future.get().isCancelled());
+        assertEquals(1, bands.get());
+    }
+
+    @Test
+    void testCancelledTransformDoesNotStart(@TempDir Path dir) throws IOException {
+        File input = dir.resolve("input.png").toFile();
+        ImageIO.write(testImage, "png", input);
+        File output = dir.resolve("output.png").toFile();
+        List<Runnable> tasks = new ArrayList<>();
+        AsyncImageService service = AsyncImageService.builder(manager).ioExecutor(tasks::add).build();
+
+        CompletableFuture<Void> future = service.transformAsync(input, grayscale, output);
+        assertTrue(future.cancel(true));
+        tasks.forEach(Runnable::run);
+
+        assertEquals(1, tasks.size());
+        assertFalse(output.exists());
+    }
+}
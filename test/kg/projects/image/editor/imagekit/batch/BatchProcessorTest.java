@@ -0,0 +1,247 @@
+package kg.projects.image.editor.imagekit.batch;
+
+import kg.projects.image.editor.imagekit.algorithm.ImageAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.detection.SobelEdgeDetection;
+import kg.projects.image.editor.imagekit.algorithm.grayscale.LuminosityGrayscale;
+import kg.projects.image.editor.imagekit.algorithm.detection.GradientEdgeDetection;
+import kg.projects.image.editor.imagekit.filesystem.LocalFileSystemImageManager;
+import kg.projects.image.editor.imagekit.filesystem.PngFilter;
+import kg.projects.image.editor.imagekit.filesystem.SaveOptions;
+import kg.projects.image.editor.imagekit.raster.GrayPlane;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchProcessorTest {
+    private final LocalFileSystemImageManager manager = new LocalFileSystemImageManager();
+    private final ImageAlgorithm algorithm = new SobelEdgeDetection(new LuminosityGrayscale());
+
+    @TempDir
+    private Path input;
+    @TempDir
+    private Path output;
+    @TempDir
+    private Path state;
+
+    private BufferedImage writeImage(String name, int seed) throws IOException {
+        BufferedImage image = new BufferedImage(9, 7, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 9; x++) {
+            for (int y = 0; y < 7; y++) {
+                image.setRGB(x, y, (x * seed) << 16 | (y * seed) << 8 | (x + y + seed));
+            }
+        }
+        ImageIO.write(image, "png", input.resolve(name).toFile());
+        return image;
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> BatchProcessor.builder(null, algorithm));
+        assertThrows(IllegalArgumentException.class, () -> BatchProcessor.builder(manager, null));
+        assertThrows(IllegalArgumentException.class, () -> BatchProcessor.builder(manager, algorithm).queueCapacity(0));
+        assertThrows(IllegalArgumentException.class, () -> BatchProcessor.builder(manager, algorithm).manifest(null));
+        assertThrows(IllegalArgumentException.class, () -> BatchProcessor.builder(manager, algorithm).shard(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> BatchProcessor.builder(manager, algorithm).shard(2, 2));
+        assertThrows(IllegalArgumentException.class, () -> BatchProcessor.builder(manager, algorithm).shard(-1, 2));
+        BatchProcessor processor = BatchProcessor.builder(manager, algorithm).build();
+        assertThrows(IllegalArgumentException.class, () -> processor.run(null, output.toFile()));
+        assertThrows(IOException.class, () -> processor.run(input.toFile(), output.resolve("missing").toFile()));
+    }
+
+    @Test
+    void testProcessesDirectoryAndReportsFailures() throws IOException {
+        List<BufferedImage> images = List.of(writeImage("a.png", 3), writeImage("c.png", 5), writeImage("e.png", 7));
+        Files.writeString(input.resolve("b.png"), "not an image");
+        Files.writeString(input.resolve("d.txt"), "not an image");
+
+        BatchReport report = BatchProcessor.builder(manager, algorithm)
+                .decodeThreads(2).processThreads(2).encodeThreads(2).queueCapacity(1)
+                .build()
+                .run(input.toFile(), output.toFile());
+
+        assertEquals(5, report.getResults().size());
+        assertEquals(3, report.getSucceededCount());
+        assertEquals(2, report.getFailedCount());
+        assertEquals(List.of("b.png", "d.txt"),
+                report.getFailures().stream().map(result -> result.getInput().getName()).toList());
+        assertFalse(output.resolve("b.png").toFile().exists());
+
+        List<String> succeeded = List.of("a.png", "c.png", "e.png");
+        for (int i = 0; i < succeeded.size(); i++) {
+            File file = output.resolve(succeeded.get(i)).toFile();
+            assertTrue(file.isFile());
+            BufferedImage expected = algorithm.process(images.get(i));
+            BufferedImage result = manager.loadImage(file);
+            for (int x = 0; x < 9; x++) {
+                for (int y = 0; y < 7; y++) {
+                    assertEquals(expected.getRGB(x, y), result.getRGB(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testManifestSkipsFinishedInputs() throws IOException {
+        writeImage("a.png", 3);
+        writeImage("b.png", 5);
+        File manifest = state.resolve("manifest.txt").toFile();
+        BatchProcessor processor = BatchProcessor.builder(manager, algorithm).manifest(manifest).build();
+
+        BatchReport first = processor.run(input.toFile(), output.toFile());
+        assertEquals(2, first.getSucceededCount());
+        assertTrue(first.getSkipped().isEmpty());
+
+        writeImage("c.png", 7);
+        BatchReport second = processor.run(input.toFile(), output.toFile());
+        assertEquals(List.of("c.png"), second.getResults().stream().map(r -> r.getInput().getName()).toList());
+        assertEquals(1, second.getSucceededCount());
+        assertEquals(List.of("a.png", "b.png"), second.getSkipped().stream().map(File::getName).toList());
+    }
+
+    @Test
+    void testManifestReprocessesChangedOrMissingOutputs() throws IOException {
+        writeImage("a.png", 3);
+        writeImage("b.png", 5);
+        writeImage("c.png", 7);
+        File manifest = state.resolve("manifest.txt").toFile();
+        BatchProcessor processor = BatchProcessor.builder(manager, algorithm).manifest(manifest).build();
+        processor.run(input.toFile(), output.toFile());
+
+        BufferedImage changed = writeImage("a.png", 11);
+        Files.delete(output.resolve("b.png"));
+        File touched = input.resolve("c.png").toFile();
+        assertTrue(touched.setLastModified(touched.lastModified() - 10_000));
+
+        BatchReport report = processor.run(input.toFile(), output.toFile());
+        assertEquals(List.of("a.png", "b.png"), report.getResults().stream().map(r -> r.getInput().getName()).toList());
+        assertEquals(0, report.getFailedCount());
+        assertEquals(List.of("c.png"), report.getSkipped().stream().map(File::getName).toList());
+
+        BufferedImage expected = algorithm.process(changed);
+        BufferedImage result = manager.loadImage(output.resolve("a.png").toFile());
+        assertEquals(expected.getRGB(4, 3), result.getRGB(4, 3));
+    }
+
+    @Test
+    void testManifestIgnoresTruncatedLine() throws IOException {
+        writeImage("a.png", 3);
+        writeImage("b.png", 5);
+        Path manifest = state.resolve("manifest.txt");
+        BatchProcessor processor = BatchProcessor.builder(manager, algorithm).manifest(manifest.toFile()).build();
+        processor.run(input.toFile(), output.toFile());
+
+        // Simulate a crash while the last entry was written: the output exists but its entry is cut short
+        String content = Files.readString(manifest);
+        Files.writeString(manifest, content.substring(0, content.length() - 12));
+
+        BatchReport report = processor.run(input.toFile(), output.toFile());
+        assertEquals(List.of("a.png"), report.getSkipped().stream().map(File::getName).toList());
+        assertEquals(1, report.getSucceededCount());
+
+        report = processor.run(input.toFile(), output.toFile());
+        assertEquals(2, report.getSkipped().size());
+        assertTrue(report.getResults().isEmpty());
+    }
+
+    @Test
+    void testShardsPartitionDirectory() throws IOException {
+        for (int i = 0; i < 12; i++) {
+            writeImage("image" + i + ".png", i + 1);
+        }
+
+        List<String> processed = new ArrayList<>();
+        for (int shard = 0; shard < 3; shard++) {
+            BatchReport report = BatchProcessor.builder(manager, algorithm)
+                    .shard(shard, 3)
+                    .manifest(state.resolve("manifest-" + shard + ".txt").toFile())
+                    .build()
+                    .run(input.toFile(), output.toFile());
+            assertEquals(0, report.getFailedCount());
+            report.getResults().forEach(result -> processed.add(result.getInput().getName()));
+        }
+
+        assertEquals(12, processed.size());
+        assertEquals(12, processed.stream().distinct().count());
+        for (int i = 0; i < 12; i++) {
+            assertTrue(output.resolve("image" + i + ".png").toFile().isFile());
+        }
+    }
+
+    @Test
+    void testGrayOutputWithSaveOptions() throws IOException {
+        BufferedImage image = writeImage("a.png", 3);
+        GradientEdgeDetection edges = new SobelEdgeDetection(new LuminosityGrayscale());
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchProcessor.builder(manager, source -> source).grayOutput(true));
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchProcessor.builder(manager, edges).saveOptions(null));
+
+        BatchReport report = BatchProcessor.builder(manager, edges)
+                .grayOutput(true)
+                .saveOptions(SaveOptions.defaults().withPngFilter(PngFilter.NONE).withPngCompressionLevel(1))
+                .build()
+                .run(input.toFile(), output.toFile());
+
+        assertEquals(1, report.getSucceededCount());
+        BufferedImage saved = ImageIO.read(output.resolve("a.png").toFile());
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, saved.getType());
+        GrayPlane expected = edges.processToGray(image);
+        for (int x = 0; x < 9; x++) {
+            for (int y = 0; y < 7; y++) {
+                assertEquals(expected.levels()[y * 9 + x] & 0xff, saved.getRaster().getSample(x, y, 0));
+            }
+        }
+    }
+
+    @Test
+    void testErrorsAreReportedPerFile() throws IOException {
+        for (int i = 0; i < 6; i++) {
+            writeImage("image" + i + ".png", i + 1);
+        }
+        // Every third image fails to process and the last three fail to save, with errors rather than exceptions
+        LocalFileSystemImageManager failingSaves = new LocalFileSystemImageManager() {
+            @Override
+            public void saveImage(BufferedImage image, File imageFile, SaveOptions options) throws IOException {
+                if (imageFile.getName().compareTo("image3") > 0) {
+                    throw new OutOfMemoryError("Simulated save failure");
+                }
+                super.saveImage(image, imageFile, options);
+            }
+        };
+        int[] calls = new int[1];
+        ImageAlgorithm failingProcess = image -> {
+            if (calls[0]++ % 3 == 2) {
+                throw new StackOverflowError("Simulated process failure");
+            }
+            return algorithm.process(image);
+        };
+
+        BatchReport report = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> BatchProcessor.builder(failingSaves, failingProcess)
+                        .processThreads(1).queueCapacity(1)
+                        .build()
+                        .run(input.toFile(), output.toFile()));
+
+        assertEquals(6, report.getResults().size());
+        assertTrue(report.getFailedCount() >= 3);
+        for (FileResult failure : report.getFailures()) {
+            assertTrue(failure.getError().getCause() instanceof Error, failure.toString());
+        }
+        assertTrue(report.getResults().get(0).isSuccessful());
+    }
+}
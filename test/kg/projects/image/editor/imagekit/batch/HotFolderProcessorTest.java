@@ -0,0 +1,182 @@
+package kg.projects.image.editor.imagekit.batch;
+
+import kg.projects.image.editor.imagekit.algorithm.ImageAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.detection.SobelEdgeDetection;
+import kg.projects.image.editor.imagekit.algorithm.grayscale.LuminosityGrayscale;
+import kg.projects.image.editor.imagekit.filesystem.LocalFileSystemImageManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HotFolderProcessorTest {
+    private final LocalFileSystemImageManager manager = new LocalFileSystemImageManager();
+    private final ImageAlgorithm algorithm = new SobelEdgeDetection(new LuminosityGrayscale());
+    private final BlockingQueue<FileResult> results = new LinkedBlockingQueue<>();
+
+    @TempDir
+    private Path input;
+    @TempDir
+    private Path output;
+
+    private BufferedImage writeImage(String name, int seed) throws IOException {
+        BufferedImage image = new BufferedImage(9, 7, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 9; x++) {
+            for (int y = 0; y < 7; y++) {
+                image.setRGB(x, y, (x * seed) << 16 | (y * seed) << 8 | (x + y + seed));
+            }
+        }
+        ImageIO.write(image, "png", input.resolve(name).toFile());
+        return image;
+    }
+
+    private HotFolderProcessor start() throws IOException {
+        HotFolderProcessor processor = HotFolderProcessor.builder(manager, algorithm)
+                .settleMillis(50).processThreads(2).maxInFlight(1).listener(results::add).build();
+        processor.start(input.toFile(), output.toFile());
+        return processor;
+    }
+
+    private FileResult nextResult() throws InterruptedException {
+        FileResult result = results.poll(10, TimeUnit.SECONDS);
+        assertNotNull(result, "No file was processed");
+        return result;
+    }
+
+    private void assertProcessed(BufferedImage image, String name) throws IOException {
+        BufferedImage expected = algorithm.process(image);
+        BufferedImage result = ImageIO.read(output.resolve(name).toFile());
+        for (int x = 0; x < expected.getWidth(); x++) {
+            for (int y = 0; y < expected.getHeight(); y++) {
+                assertEquals(expected.getRGB(x, y), result.getRGB(x, y), name + " at " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void testInvalidArguments() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> HotFolderProcessor.builder(null, algorithm));
+        assertThrows(IllegalArgumentException.class, () -> HotFolderProcessor.builder(manager, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> HotFolderProcessor.builder(manager, algorithm).settleMillis(-1));
+        assertThrows(IllegalArgumentException.class,
+                () -> HotFolderProcessor.builder(manager, algorithm).maxInFlight(0));
+
+        try (HotFolderProcessor processor = HotFolderProcessor.builder(manager, algorithm).build()) {
+            assertThrows(IllegalArgumentException.class, () -> processor.start(null, output.toFile()));
+            assertThrows(IllegalArgumentException.class, () -> processor.start(input.toFile(), input.toFile()));
+            assertThrows(IOException.class,
+                    () -> processor.start(input.resolve("missing").toFile(), output.toFile()));
+
+            processor.start(input.toFile(), output.toFile());
+            assertTrue(processor.isRunning());
+            assertThrows(IllegalStateException.class, () -> processor.start(input.toFile(), output.toFile()));
+            processor.close();
+            assertFalse(processor.isRunning());
+        }
+    }
+
+    @Test
+    void testCloseReleasesThreadsAfterWatchedDirectoryIsDeleted() throws IOException, InterruptedException {
+        Path watched = Files.createDirectory(input.resolve("watched"));
+        HotFolderProcessor processor = HotFolderProcessor.builder(manager, algorithm)
+                .settleMillis(50).processThreads(2).listener(results::add).build();
+        processor.start(watched.toFile(), output.toFile());
+        writeImage("watched/a.png", 3);
+        assertNull(nextResult().getError());
+
+        Files.delete(watched.resolve("a.png"));
+        Files.delete(watched);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (processor.isRunning() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(processor.isRunning());
+
+        processor.close();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("hotfolder-")) {
+                thread.join(1000);
+                assertFalse(thread.isAlive(), thread.getName() + " is still running");
+            }
+        }
+    }
+
+    @Test
+    void testErrorsAreReportedToListener() throws IOException, InterruptedException {
+        ImageAlgorithm exhausting = image -> {
+            throw new OutOfMemoryError("Java heap space");
+        };
+        try (HotFolderProcessor processor = HotFolderProcessor.builder(manager, exhausting)
+                .settleMillis(50).listener(results::add).build()) {
+            processor.start(input.toFile(), output.toFile());
+            writeImage("huge.png", 5);
+
+            FileResult result = nextResult();
+            assertEquals("huge.png", result.getInput().getName());
+            assertInstanceOf(OutOfMemoryError.class, result.getError().getCause());
+            assertTrue(processor.isRunning());
+        }
+        try (Stream<Path> files = Files.list(output)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testProcessesNewFilesOnly() throws IOException, InterruptedException {
+        writeImage("existing.png", 2);
+
+        Map<String, FileResult> byName = new HashMap<>();
+        try (HotFolderProcessor ignored = start()) {
+            BufferedImage image = writeImage("new.png", 3);
+            Files.writeString(input.resolve("notes.txt"), "not an image");
+            Files.writeString(input.resolve("broken.png"), "not an image");
+
+            for (int i = 0; i < 2; i++) {
+                FileResult result = nextResult();
+                byName.put(result.getInput().getName(), result);
+            }
+            assertNull(results.poll(300, TimeUnit.MILLISECONDS));
+
+            assertTrue(byName.get("new.png").isSuccessful());
+            assertEquals(output.resolve("new.png").toFile(), byName.get("new.png").getOutput());
+            assertProcessed(image, "new.png");
+            assertFalse(byName.get("broken.png").isSuccessful());
+        }
+
+        String[] outputs = output.toFile().list();
+        assertEquals(1, outputs.length, String.join(", ", outputs));
+        assertFalse(new File(output.toFile(), "existing.png").exists());
+    }
+
+    @Test
+    void testModifiedFileReplacesResult() throws IOException, InterruptedException {
+        try (HotFolderProcessor ignored = start()) {
+            writeImage("frame.png", 3);
+            assertTrue(nextResult().isSuccessful());
+
+            BufferedImage changed = writeImage("frame.png", 11);
+            assertTrue(nextResult().isSuccessful());
+            assertProcessed(changed, "frame.png");
+        }
+    }
+}
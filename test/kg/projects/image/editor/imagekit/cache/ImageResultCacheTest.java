@@ -0,0 +1,217 @@
+package kg.projects.image.editor.imagekit.cache;
+
+import kg.projects.image.editor.imagekit.algorithm.ImageAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.detection.SobelEdgeDetection;
+import kg.projects.image.editor.imagekit.algorithm.grayscale.LuminosityGrayscale;
+import kg.projects.image.editor.imagekit.filesystem.LocalFileSystemImageManager;
+import kg.projects.image.editor.imagekit.raster.GrayPlane;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ImageResultCacheTest {
+    private final LocalFileSystemImageManager manager = new LocalFileSystemImageManager();
+    private final CountingAlgorithm algorithm = new CountingAlgorithm(new LuminosityGrayscale());
+
+    @TempDir
+    private Path dir;
+    private File imageFile;
+
+    private static final class CountingAlgorithm implements ImageAlgorithm {
+        private final ImageAlgorithm delegate;
+        private int calls;
+
+        private CountingAlgorithm(ImageAlgorithm delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public BufferedImage process(BufferedImage image) {
+            calls++;
+            return delegate.process(image);
+        }
+
+        @Override
+        public String descriptor() {
+            return delegate.descriptor();
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        imageFile = writeImage("image.png", 0x123456);
+    }
+
+    private File writeImage(String name, int color) throws IOException {
+        BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 10; x++) {
+            for (int y = 0; y < 10; y++) {
+                image.setRGB(x, y, color + x + y);
+            }
+        }
+        File file = dir.resolve(name).toFile();
+        ImageIO.write(image, "png", file);
+        return file;
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new ImageResultCache(null, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ImageResultCache(manager, -1));
+        ImageResultCache cache = new ImageResultCache(manager, 1000);
+        assertThrows(IllegalArgumentException.class, () -> cache.process(null, algorithm));
+        assertThrows(IllegalArgumentException.class, () -> cache.process(imageFile, null));
+    }
+
+    @Test
+    void testMemoryHitSkipsProcessing() throws IOException {
+        ImageResultCache cache = new ImageResultCache(manager, 1 << 20);
+        BufferedImage first = cache.process(imageFile, algorithm);
+        File copy = Files.copy(imageFile.toPath(), dir.resolve("copy.png")).toFile();
+        BufferedImage second = cache.process(copy, algorithm);
+
+        assertSame(first, second);
+        assertEquals(1, algorithm.calls);
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getMemoryHits());
+        assertEquals(400, cache.getMemoryBytes());
+    }
+
+    @Test
+    void testDescriptorIsPartOfKey() throws IOException {
+        ImageResultCache cache = new ImageResultCache(manager, 1 << 20);
+        SobelEdgeDetection sobel = new SobelEdgeDetection(new LuminosityGrayscale());
+        cache.process(imageFile, algorithm);
+        cache.process(imageFile, sobel);
+        assertEquals(2, cache.getMisses());
+        assertNotEquals(algorithm.descriptor(), sobel.descriptor());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEviction() throws IOException {
+        ImageResultCache cache = new ImageResultCache(manager, 800);
+        File other = writeImage("other.png", 0x654321);
+        File third = writeImage("third.png", 0x111111);
+
+        cache.process(imageFile, algorithm);
+        cache.process(other, algorithm);
+        cache.process(imageFile, algorithm);
+        cache.process(third, algorithm);
+        assertEquals(800, cache.getMemoryBytes());
+
+        cache.process(imageFile, algorithm);
+        cache.process(other, algorithm);
+        assertEquals(2, cache.getMemoryHits());
+        assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    void testDiskTier(@TempDir Path cacheDir) throws IOException {
+        BufferedImage expected = new ImageResultCache(manager, 0, cacheDir.toFile()).process(imageFile, algorithm);
+
+        ImageResultCache cache = new ImageResultCache(manager, 1 << 20, cacheDir.toFile());
+        BufferedImage result = cache.process(imageFile, algorithm);
+        assertEquals(1, algorithm.calls);
+        assertEquals(1, cache.getDiskHits());
+        for (int x = 0; x < 10; x++) {
+            for (int y = 0; y < 10; y++) {
+                assertEquals(expected.getRGB(x, y), result.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    void testDiskTierKeepsGrayResults(@TempDir Path cacheDir) throws IOException {
+        ImageAlgorithm toGray = new ImageAlgorithm() {
+            @Override
+            public BufferedImage process(BufferedImage image) {
+                return GrayPlane.fromRgb(new LuminosityGrayscale().process(image)).image();
+            }
+
+            @Override
+            public String descriptor() {
+                return "gray-plane";
+            }
+        };
+        BufferedImage expected = new ImageResultCache(manager, 0, cacheDir.toFile()).process(imageFile, toGray);
+
+        ImageResultCache cache = new ImageResultCache(manager, 1 << 20, cacheDir.toFile());
+        BufferedImage result = cache.process(imageFile, toGray);
+        assertEquals(1, cache.getDiskHits());
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, result.getType());
+        for (int x = 0; x < 10; x++) {
+            for (int y = 0; y < 10; y++) {
+                assertEquals(expected.getRaster().getSample(x, y, 0), result.getRaster().getSample(x, y, 0));
+            }
+        }
+    }
+
+    @Test
+    void testCorruptDiskEntryIsReplaced(@TempDir Path cacheDir) throws IOException {
+        BufferedImage expected = new ImageResultCache(manager, 0, cacheDir.toFile()).process(imageFile, algorithm);
+        Path entry;
+        try (Stream<Path> entries = Files.list(cacheDir)) {
+            entry = entries.findFirst().orElseThrow();
+        }
+        byte[] content = Files.readAllBytes(entry);
+        Files.write(entry, Arrays.copyOf(content, content.length / 2));
+
+        ImageResultCache cache = new ImageResultCache(manager, 0, cacheDir.toFile());
+        BufferedImage result = cache.process(imageFile, algorithm);
+        assertEquals(1, cache.getMisses());
+        assertEquals(expected.getRGB(3, 4), result.getRGB(3, 4));
+
+        cache.process(imageFile, algorithm);
+        assertEquals(1, cache.getDiskHits());
+        assertEquals(2, algorithm.calls);
+    }
+
+    @Test
+    void testDiskWriteFailureKeepsResult(@TempDir Path cacheDir) throws IOException {
+        ImageResultCache cache = new ImageResultCache(manager, 1 << 20, cacheDir.toFile());
+        Files.delete(cacheDir);
+
+        BufferedImage result = cache.process(imageFile, algorithm);
+        assertSame(result, cache.process(imageFile, algorithm));
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getMemoryHits());
+    }
+
+    @Test
+    void testLambdasWithDefaultDescriptorAreNotCached() throws IOException {
+        ImageResultCache cache = new ImageResultCache(manager, 1 << 20);
+        BufferedImage dark = cache.process(imageFile, shift(-16));
+        BufferedImage bright = cache.process(imageFile, shift(16));
+
+        assertNotEquals(dark.getRGB(0, 0), bright.getRGB(0, 0));
+        assertEquals(0, cache.getMemoryHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getMemoryBytes());
+    }
+
+    private static ImageAlgorithm shift(int amount) {
+        return image -> {
+            BufferedImage result = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            for (int x = 0; x < image.getWidth(); x++) {
+                for (int y = 0; y < image.getHeight(); y++) {
+                    result.setRGB(x, y, image.getRGB(x, y) + amount);
+                }
+            }
+            return result;
+        };
+    }
+}
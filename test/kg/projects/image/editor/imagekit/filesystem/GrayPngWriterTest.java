@@ -0,0 +1,29 @@
+package kg.projects.image.editor.imagekit.filesystem;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.zip.Adler32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GrayPngWriterTest {
+
+    @Test
+    void testCombineChecksums() {
+        byte[] data = new byte[200_000];
+        new Random(7).nextBytes(data);
+
+        for (int split : new int[] {0, 1, 65_521, 100_000, data.length}) {
+            Adler32 first = new Adler32();
+            first.update(data, 0, split);
+            Adler32 second = new Adler32();
+            second.update(data, split, data.length - split);
+            Adler32 whole = new Adler32();
+            whole.update(data);
+
+            assertEquals(whole.getValue(),
+                    GrayPngWriter.combine(first.getValue(), second.getValue(), data.length - split));
+        }
+    }
+}
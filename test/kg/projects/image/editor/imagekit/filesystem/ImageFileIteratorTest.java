@@ -0,0 +1,54 @@
+package kg.projects.image.editor.imagekit.filesystem;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageFileIteratorTest {
+    private static final List<File> FILES = List.of(new File("1"), new File("2"), new File("3"), new File("4"));
+
+    private static BufferedImage decode(File file) {
+        return new BufferedImage(Integer.parseInt(file.getName()), 1, BufferedImage.TYPE_INT_RGB);
+    }
+
+    @Test
+    void testLoaderThreadsEndWhenConsumedWithoutClose() throws InterruptedException {
+        Set<Thread> loaders = ConcurrentHashMap.newKeySet();
+        ImageFileIterator iterator = new ImageFileIterator(FILES, file -> {
+            loaders.add(Thread.currentThread());
+            return decode(file);
+        }, 3);
+
+        int width = 1;
+        while (iterator.hasNext()) {
+            assertEquals(width++, iterator.next().getWidth());
+        }
+
+        assertFalse(loaders.isEmpty());
+        for (Thread loader : loaders) {
+            loader.join(5000);
+            assertFalse(loader.isAlive(), loader.getName());
+        }
+    }
+
+    @Test
+    void testClosedIteratorHasNoMoreElements() {
+        ImageFileIterator iterator = new ImageFileIterator(FILES, ImageFileIteratorTest::decode, 2);
+        assertTrue(iterator.hasNext());
+        assertEquals(1, iterator.next().getWidth());
+
+        iterator.close();
+        assertFalse(iterator.hasNext());
+        assertThrows(NoSuchElementException.class, iterator::next);
+    }
+}
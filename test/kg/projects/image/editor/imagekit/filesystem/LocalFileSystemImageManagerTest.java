@@ -1,19 +1,32 @@
 package kg.projects.image.editor.imagekit.filesystem;
 
+import kg.projects.image.editor.imagekit.algorithm.parallel.RowBandExecutor;
+import kg.projects.image.editor.imagekit.raster.GrayPlane;
+import kg.projects.image.editor.imagekit.raster.ImagePool;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import javax.imageio.ImageIO;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class LocalFileSystemImageManagerTest {
     private final LocalFileSystemImageManager manager = new LocalFileSystemImageManager();
@@ -199,4 +212,316 @@ class LocalFileSystemImageManagerTest {
 
         testFile.delete();
     }
+
+    @Test
+    void testLoadImagesFromDirectoryConcurrentKeepsOrder(@TempDir Path dir) throws IOException {
+        for (int i = 0; i < 6; i++) {
+            BufferedImage image = new BufferedImage(4 + i, 3, BufferedImage.TYPE_INT_RGB);
+            image.setRGB(0, 0, i);
+            ImageIO.write(image, "png", dir.resolve("image" + i + ".png").toFile());
+        }
+
+        List<BufferedImage> expected = manager.loadImagesFromDirectory(dir.toFile());
+        List<BufferedImage> images = new LocalFileSystemImageManager(3).loadImagesFromDirectory(dir.toFile());
+
+        assertEquals(expected.size(), images.size());
+        for (int i = 0; i < images.size(); i++) {
+            assertEquals(expected.get(i).getWidth(), images.get(i).getWidth());
+            assertEquals(expected.get(i).getRGB(0, 0), images.get(i).getRGB(0, 0));
+        }
+    }
+
+    @Test
+    void testLoadImagesFromDirectoryConcurrentFailures(@TempDir Path dir) throws IOException {
+        ImageIO.write(testImage, "png", dir.resolve("valid.png").toFile());
+        Files.writeString(dir.resolve("broken.png"), "not an image");
+
+        assertThrows(IOException.class, () -> new LocalFileSystemImageManager(4).loadImagesFromDirectory(dir.toFile()));
+        assertThrows(IllegalArgumentException.class, () -> new LocalFileSystemImageManager(0));
+    }
+
+    @Test
+    void testStreamImagesFromDirectory(@TempDir Path dir) throws IOException {
+        for (int i = 0; i < 5; i++) {
+            BufferedImage image = new BufferedImage(3, 3, BufferedImage.TYPE_INT_RGB);
+            image.setRGB(1, 1, i);
+            ImageIO.write(image, "png", dir.resolve("image" + i + ".png").toFile());
+        }
+
+        List<BufferedImage> expected = manager.loadImagesFromDirectory(dir.toFile());
+        for (LocalFileSystemImageManager streamingManager
+                : List.of(manager, new LocalFileSystemImageManager(2))) {
+            try (Stream<BufferedImage> images = streamingManager.streamImagesFromDirectory(dir.toFile())) {
+                List<Integer> pixels = images.map(image -> image.getRGB(1, 1)).collect(Collectors.toList());
+                assertEquals(expected.stream().map(image -> image.getRGB(1, 1)).collect(Collectors.toList()),
+                        pixels);
+            }
+        }
+    }
+
+    @Test
+    void testStreamImagesFromDirectoryFailures(@TempDir Path dir) throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> manager.streamImagesFromDirectory(null));
+        Files.writeString(dir.resolve("broken.png"), "not an image");
+        try (Stream<BufferedImage> images = manager.streamImagesFromDirectory(dir.toFile())) {
+            assertThrows(UncheckedIOException.class, () -> images.forEach(image -> { }));
+        }
+
+        Files.writeString(dir.resolve("notes.txt"), "not an image");
+        assertThrows(IOException.class, () -> manager.streamImagesFromDirectory(dir.toFile()));
+    }
+
+    @Test
+    void testLoadImageDirectDecoding(@TempDir Path dir) throws IOException {
+        LoadOptions direct = LoadOptions.defaults().withDirectDecoding(true);
+        for (String format : List.of("jpg", "png", "bmp")) {
+            File file = dir.resolve("image." + format).toFile();
+            ImageIO.write(testImage, format, file);
+
+            BufferedImage expected = manager.loadImage(file);
+            BufferedImage result = manager.loadImage(file, direct);
+            assertEquals(BufferedImage.TYPE_INT_RGB, result.getType());
+            for (int x = 0; x < 10; x++) {
+                for (int y = 0; y < 10; y++) {
+                    assertEquals(expected.getRGB(x, y), result.getRGB(x, y));
+                }
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> manager.loadImage(new File("test.png"), null));
+    }
+
+    @Test
+    void testLoadImageSubsampledRegion(@TempDir Path dir) throws IOException {
+        File file = dir.resolve("image.png").toFile();
+        ImageIO.write(testImage, "png", file);
+
+        BufferedImage region = manager.loadImage(file, LoadOptions.defaults()
+                .withSourceRegion(new Rectangle(2, 3, 5, 4)).withSubsampling(2));
+        assertEquals(3, region.getWidth());
+        assertEquals(2, region.getHeight());
+        for (int x = 0; x < 3; x++) {
+            for (int y = 0; y < 2; y++) {
+                assertEquals(testImage.getRGB(2 + 2 * x, 3 + 2 * y), region.getRGB(x, y));
+            }
+        }
+
+        BufferedImage preview = manager.loadImage(file, LoadOptions.defaults().withMaxDimension(4));
+        assertEquals(4, preview.getWidth());
+        assertEquals(4, preview.getHeight());
+        assertEquals(testImage.getRGB(9, 9), preview.getRGB(3, 3));
+
+        assertThrows(IOException.class, () -> manager.loadImage(file,
+                LoadOptions.defaults().withSourceRegion(new Rectangle(20, 20, 5, 5))));
+        assertThrows(IllegalArgumentException.class, () -> LoadOptions.defaults().withSubsampling(0));
+        assertThrows(IllegalArgumentException.class, () -> LoadOptions.defaults().withMaxDimension(0));
+    }
+
+    @Test
+    void testLoadImageFromPool(@TempDir Path dir) throws IOException {
+        ImagePool pool = new ImagePool();
+        LocalFileSystemImageManager pooled = new LocalFileSystemImageManager(1, pool);
+        for (String format : List.of("jpg", "png", "bmp")) {
+            File file = dir.resolve("image." + format).toFile();
+            ImageIO.write(testImage, format, file);
+
+            for (LoadOptions options : List.of(LoadOptions.defaults(),
+                    LoadOptions.defaults().withDirectDecoding(true))) {
+                BufferedImage expected = manager.loadImage(file, options);
+                BufferedImage first = pooled.loadImage(file, options);
+                pool.release(first);
+                BufferedImage second = pooled.loadImage(file, options);
+
+                assertSame(first, second, format + " should reuse the released image");
+                for (int x = 0; x < 10; x++) {
+                    for (int y = 0; y < 10; y++) {
+                        assertEquals(expected.getRGB(x, y), second.getRGB(x, y));
+                    }
+                }
+                pool.release(second);
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new LocalFileSystemImageManager(1, null));
+    }
+
+    @Test
+    void testSaveGrayPlaneAsEightBitGray(@TempDir Path dir) throws IOException {
+        byte[] levels = new byte[10 * 10];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = (byte) (i * 37);
+        }
+        GrayPlane plane = GrayPlane.of(levels, 10, 10);
+
+        for (String format : List.of("png", "bmp")) {
+            File file = dir.resolve("gray." + format).toFile();
+            manager.saveImage(plane.image(), file);
+
+            BufferedImage saved = ImageIO.read(file);
+            assertEquals(1, saved.getRaster().getNumBands(), format);
+            assertEquals(8, saved.getColorModel().getPixelSize(), format);
+            for (int x = 0; x < 10; x++) {
+                for (int y = 0; y < 10; y++) {
+                    assertEquals(levels[y * 10 + x] & 0xff, saved.getRaster().getSample(x, y, 0), format);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testProbeReadsHeaderBySignature(@TempDir Path dir) throws IOException {
+        BufferedImage image = new BufferedImage(37, 21, BufferedImage.TYPE_INT_RGB);
+        File png = dir.resolve("image.png").toFile();
+        File jpeg = dir.resolve("image.jpg").toFile();
+        File bmp = dir.resolve("image.bmp").toFile();
+        ImageIO.write(image, "png", png);
+        ImageIO.write(image, "jpeg", jpeg);
+        ImageIO.write(image, "bmp", bmp);
+        // A misleading name does not change the detected format
+        File misnamed = dir.resolve("really-a-png.jpg").toFile();
+        Files.copy(png.toPath(), misnamed.toPath());
+
+        assertEquals(ImageFormat.PNG, manager.probe(png).getFormat());
+        assertEquals(ImageFormat.JPEG, manager.probe(jpeg).getFormat());
+        assertEquals(ImageFormat.BMP, manager.probe(bmp).getFormat());
+        assertEquals(ImageFormat.PNG, manager.probe(misnamed).getFormat());
+        for (File file : List.of(png, jpeg, bmp)) {
+            ImageInfo info = manager.probe(file);
+            assertEquals(37, info.getWidth());
+            assertEquals(21, info.getHeight());
+            assertEquals(3, info.getBands());
+            assertEquals(24, info.getBitsPerPixel());
+            assertFalse(info.hasAlpha());
+        }
+
+        File text = dir.resolve("text.png").toFile();
+        Files.writeString(text.toPath(), "not an image");
+        assertThrows(IOException.class, () -> manager.probe(text));
+        assertThrows(IOException.class, () -> manager.probe(dir.resolve("missing.png").toFile()));
+        assertThrows(IllegalArgumentException.class, () -> manager.probe(null));
+        assertNull(ImageFormat.detect(new byte[] {'B'}, 1));
+    }
+
+    @Test
+    void testEstimateLoadBytes(@TempDir Path dir) throws IOException {
+        File file = dir.resolve("image.png").toFile();
+        ImageIO.write(new BufferedImage(40, 20, BufferedImage.TYPE_INT_RGB), "png", file);
+        ImageInfo info = manager.probe(file);
+
+        assertEquals(40 * 20 * (3 + 4), info.estimateLoadBytes(LoadOptions.defaults()));
+        assertEquals(40 * 20 * 4, info.estimateLoadBytes(LoadOptions.defaults().withDirectDecoding(true)));
+        assertEquals(20 * 10 * (3 + 4), info.estimateLoadBytes(LoadOptions.defaults().withMaxDimension(20)));
+        assertEquals(5 * 5 * (3 + 4), info.estimateLoadBytes(
+                LoadOptions.defaults().withSourceRegion(new Rectangle(30, 10, 20, 20)).withSubsampling(2)));
+        assertThrows(IOException.class, () -> info.estimateLoadBytes(
+                LoadOptions.defaults().withSourceRegion(new Rectangle(50, 0, 5, 5))));
+    }
+
+    @Test
+    void testLoadImageWithinMemoryBudget(@TempDir Path dir) throws IOException {
+        File small = dir.resolve("a.png").toFile();
+        File large = dir.resolve("b.png").toFile();
+        ImageIO.write(testImage, "png", small);
+        ImageIO.write(new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB), "png", large);
+        MemoryBudget budget = new MemoryBudget(10 * 10 * 7);
+        LocalFileSystemImageManager budgeted = new LocalFileSystemImageManager(2).withMemoryBudget(budget);
+
+        BufferedImage loaded = budgeted.loadImage(small);
+        assertEquals(testImage.getRGB(3, 4), loaded.getRGB(3, 4));
+        assertEquals(0, budget.getUsedBytes());
+        IOException error = assertThrows(IOException.class, () -> budgeted.loadImage(large));
+        assertTrue(error.getMessage().contains("memory budget"));
+        assertThrows(IOException.class, () -> budgeted.loadImagesFromDirectory(dir.toFile()));
+        assertEquals(0, budget.getUsedBytes());
+        assertThrows(IllegalArgumentException.class, () -> manager.withMemoryBudget(null));
+    }
+
+    @Test
+    void testSaveGrayPngInParallelBands(@TempDir Path dir) throws IOException {
+        int width = 700;
+        int height = 400;
+        byte[] levels = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                levels[y * width + x] = (byte) ((x * x + y * 3) / 7 + (x % 13 == 0 ? 90 : 0));
+            }
+        }
+        GrayPlane plane = GrayPlane.of(levels, width, height);
+
+        RowBandExecutor executor = RowBandExecutor.parallel(4);
+        for (PngFilter filter : PngFilter.values()) {
+            for (int level : new int[] {0, 1, 9}) {
+                File file = dir.resolve(filter + "-" + level + ".png").toFile();
+                manager.saveImage(plane.image(), file, SaveOptions.defaults()
+                        .withPngFilter(filter)
+                        .withPngCompressionLevel(level)
+                        .withPngExecutor(executor));
+
+                BufferedImage saved = ImageIO.read(file);
+                assertEquals(BufferedImage.TYPE_BYTE_GRAY, saved.getType());
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        assertEquals(levels[y * width + x] & 0xff, saved.getRaster().getSample(x, y, 0),
+                                filter + " " + level);
+                    }
+                }
+            }
+        }
+        executor.close();
+        assertTrue(dir.resolve("NONE-0.png").toFile().length() > dir.resolve("PAETH-9.png").toFile().length());
+    }
+
+    @Test
+    void testSaveWithEncoderOptions(@TempDir Path dir) throws IOException {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 64; x++) {
+            for (int y = 0; y < 48; y++) {
+                image.setRGB(x, y, (x * 4) << 16 | (y * 5) << 8 | ((x ^ y) * 3 & 0xff));
+            }
+        }
+
+        File low = dir.resolve("low.jpg").toFile();
+        File high = dir.resolve("high.jpg").toFile();
+        File progressive = dir.resolve("progressive.jpg").toFile();
+        manager.saveImage(image, low, SaveOptions.defaults().withJpegQuality(0.1f));
+        manager.saveImage(image, high, SaveOptions.defaults().withJpegQuality(1f));
+        manager.saveImage(image, progressive, SaveOptions.defaults().withProgressive(true));
+        assertTrue(low.length() < high.length());
+        assertEquals(64, ImageIO.read(progressive).getWidth());
+
+        File stored = dir.resolve("stored.png").toFile();
+        File interlaced = dir.resolve("interlaced.png").toFile();
+        manager.saveImage(image, stored, SaveOptions.defaults().withPngCompressionLevel(0));
+        manager.saveImage(image, interlaced, SaveOptions.defaults().withProgressive(true));
+        assertTrue(stored.length() > 64 * 48 * 3);
+        for (File file : List.of(stored, interlaced)) {
+            BufferedImage saved = ImageIO.read(file);
+            for (int x = 0; x < 64; x++) {
+                for (int y = 0; y < 48; y++) {
+                    assertEquals(image.getRGB(x, y), saved.getRGB(x, y), file.getName());
+                }
+            }
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> manager.saveImage(image, stored, null));
+        assertThrows(IllegalArgumentException.class, () -> SaveOptions.defaults().withJpegQuality(1.5f));
+        assertThrows(IllegalArgumentException.class, () -> SaveOptions.defaults().withPngCompressionLevel(10));
+        assertThrows(IllegalArgumentException.class, () -> SaveOptions.defaults().withPngFilter(null));
+    }
+
+    @Test
+    void testFailedEncodingLeavesNoFile(@TempDir Path dir) throws IOException {
+        BufferedImage failing = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB) {
+            @Override
+            public Raster getData(Rectangle rectangle) {
+                throw new IllegalStateException("Pixels are unavailable");
+            }
+        };
+        File file = dir.resolve("failed.png").toFile();
+
+        assertThrows(IllegalStateException.class,
+                () -> manager.saveImage(failing, file, SaveOptions.defaults().withPngCompressionLevel(1)));
+        assertFalse(file.exists());
+        manager.saveImage(new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB), file,
+                SaveOptions.defaults().withPngCompressionLevel(1));
+        assertEquals(16, ImageIO.read(file).getWidth());
+    }
 }
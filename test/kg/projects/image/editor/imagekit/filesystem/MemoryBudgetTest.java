@@ -0,0 +1,99 @@
+package kg.projects.image.editor.imagekit.filesystem;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemoryBudgetTest {
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new MemoryBudget(0));
+        MemoryBudget budget = new MemoryBudget(100);
+        assertThrows(IllegalArgumentException.class, () -> budget.acquire(-1));
+        assertThrows(IllegalArgumentException.class, () -> budget.release(1));
+        assertThrows(IOException.class, () -> budget.acquire(101));
+        assertEquals(0, budget.getUsedBytes());
+    }
+
+    @Test
+    void testAdmitsWhileWithinBudget() throws IOException {
+        MemoryBudget budget = new MemoryBudget(100);
+        budget.acquire(40);
+        budget.acquire(60);
+        assertEquals(100, budget.getUsedBytes());
+        budget.release(60);
+        budget.release(40);
+        assertEquals(0, budget.getUsedBytes());
+    }
+
+    @Test
+    void testAdmitsInArrivalOrder() throws Exception {
+        MemoryBudget budget = new MemoryBudget(100);
+        budget.acquire(90);
+        List<Long> admitted = new CopyOnWriteArrayList<>();
+
+        Thread large = acquireInBackground(budget, 80, admitted);
+        awaitWaiting(large);
+        // The small request would fit, but must not overtake the large one queued before it
+        Thread small = acquireInBackground(budget, 10, admitted);
+        awaitWaiting(small);
+        assertTrue(admitted.isEmpty());
+
+        budget.release(90);
+        large.join(TimeUnit.SECONDS.toMillis(5));
+        small.join(TimeUnit.SECONDS.toMillis(5));
+        assertEquals(List.of(80L, 10L), admitted);
+        assertEquals(90, budget.getUsedBytes());
+    }
+
+    @Test
+    void testInterruptedWaiterLeavesQueue() throws Exception {
+        MemoryBudget budget = new MemoryBudget(100);
+        budget.acquire(100);
+        List<Long> admitted = new CopyOnWriteArrayList<>();
+
+        Thread interrupted = new Thread(() -> assertThrows(InterruptedIOException.class, () -> budget.acquire(50)));
+        interrupted.start();
+        awaitWaiting(interrupted);
+        Thread next = acquireInBackground(budget, 30, admitted);
+        awaitWaiting(next);
+
+        interrupted.interrupt();
+        interrupted.join(TimeUnit.SECONDS.toMillis(5));
+        budget.release(100);
+        next.join(TimeUnit.SECONDS.toMillis(5));
+        assertEquals(List.of(30L), admitted);
+        assertEquals(30, budget.getUsedBytes());
+    }
+
+    private static Thread acquireInBackground(MemoryBudget budget, long bytes, List<Long> admitted) {
+        Thread thread = new Thread(() -> {
+            try {
+                budget.acquire(bytes);
+                admitted.add(bytes);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(Thread.State.WAITING, thread.getState());
+    }
+}
@@ -0,0 +1,74 @@
+package kg.projects.image.editor.imagekit.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryMetricsRegistryTest {
+    @Test
+    void testStageStatistics() {
+        InMemoryMetricsRegistry registry = new InMemoryMetricsRegistry();
+        for (int i = 1; i <= 100; i++) {
+            registry.recordStage("process", i * 1_000_000L, 2_000_000, i == 100 ? -1 : 1000);
+        }
+
+        StageStatistics statistics = registry.getStageStatistics("process");
+        assertEquals(100, statistics.getCount());
+        assertEquals(5050 * 1_000_000L, statistics.getTotalNanos());
+        assertEquals(50_500_000L, statistics.getMeanNanos());
+        assertEquals(100_000_000L, statistics.getMaxNanos());
+        assertEquals(200_000_000L, statistics.getPixels());
+        assertEquals(200_000_000 * 1000.0 / (5050 * 1_000_000L), statistics.getMegapixelsPerSecond(), 1e-9);
+        assertEquals(1000, statistics.getAllocatedBytesPerImage());
+
+        assertWithinBucket(50_000_000L, statistics.getPercentileNanos(0.5));
+        assertWithinBucket(99_000_000L, statistics.getPercentileNanos(0.99));
+        assertEquals(100_000_000L, statistics.getPercentileNanos(1));
+        assertWithinBucket(1_000_000L, statistics.getPercentileNanos(0));
+        assertThrows(IllegalArgumentException.class, () -> statistics.getPercentileNanos(1.5));
+
+        assertNull(registry.getStageStatistics("decode"));
+        assertEquals(1, registry.getStageStatistics().size());
+        registry.reset();
+        assertTrue(registry.getStageStatistics().isEmpty());
+    }
+
+    @Test
+    void testQueueStatistics() {
+        InMemoryMetricsRegistry registry = new InMemoryMetricsRegistry();
+        registry.recordQueueDepth("decoded", 1);
+        registry.recordQueueDepth("decoded", 4);
+        registry.recordQueueDepth("decoded", 2);
+
+        QueueStatistics statistics = registry.getQueueStatistics("decoded");
+        assertEquals(3, statistics.getSamples());
+        assertEquals(2, statistics.getLastDepth());
+        assertEquals(4, statistics.getMaxDepth());
+        assertEquals(7 / 3.0, statistics.getMeanDepth(), 1e-9);
+        assertNull(registry.getQueueStatistics("processed"));
+        assertThrows(IllegalArgumentException.class, () -> registry.recordQueueDepth(null, 1));
+    }
+
+    @Test
+    void testHistogramBuckets() {
+        long previousBound = -1;
+        for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucket(value);
+            long upperBound = LatencyHistogram.upperBound(bucket);
+            assertTrue(upperBound >= value && upperBound - value <= value / 8, value + " -> " + upperBound);
+            assertTrue(upperBound > previousBound || upperBound == value);
+            previousBound = upperBound;
+        }
+        for (int bucket = 1; bucket < LatencyHistogram.bucket(Long.MAX_VALUE); bucket++) {
+            assertEquals(bucket, LatencyHistogram.bucket(LatencyHistogram.upperBound(bucket)));
+            assertEquals(bucket, LatencyHistogram.bucket(LatencyHistogram.upperBound(bucket - 1) + 1));
+        }
+    }
+
+    private static void assertWithinBucket(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected + expected / 8, expected + " reported as " + actual);
+    }
+}
@@ -0,0 +1,96 @@
+package kg.projects.image.editor.imagekit.metrics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import kg.projects.image.editor.imagekit.algorithm.detection.SobelEdgeDetection;
+import kg.projects.image.editor.imagekit.algorithm.grayscale.LuminosityGrayscale;
+import kg.projects.image.editor.imagekit.filesystem.LocalFileSystemImageManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InstrumentationTest {
+    private final LocalFileSystemImageManager manager = new LocalFileSystemImageManager();
+
+    @AfterEach
+    void tearDown() {
+        Instrumentation.setRegistry(null);
+    }
+
+    @Test
+    void testStagesAreRecordedIntoRegistry(@TempDir Path dir) throws IOException {
+        ImageIO.write(new BufferedImage(40, 30, BufferedImage.TYPE_3BYTE_BGR), "png", dir.resolve("in.png").toFile());
+        InMemoryMetricsRegistry registry = new InMemoryMetricsRegistry();
+        Instrumentation.setRegistry(registry);
+        assertSame(registry, Instrumentation.getRegistry());
+
+        BufferedImage image = manager.loadImage(dir.resolve("in.png").toFile());
+        BufferedImage edges = new SobelEdgeDetection(new LuminosityGrayscale()).process(image);
+        manager.saveImage(edges, dir.resolve("out.png").toFile());
+
+        for (String stage : List.of(Instrumentation.DECODE, Instrumentation.NORMALIZE, "SobelEdgeDetection",
+                Instrumentation.ENCODE)) {
+            StageStatistics statistics = registry.getStageStatistics(stage);
+            assertEquals(1, statistics.getCount(), stage);
+            assertEquals(40 * 30, statistics.getPixels(), stage);
+            assertTrue(statistics.getTotalNanos() > 0, stage);
+        }
+        // Sobel computes the gray rows on the fly, so the grayscale algorithm is not a stage of its own
+        assertNull(registry.getStageStatistics("LuminosityGrayscale"));
+    }
+
+    @Test
+    void testDisabledInstrumentationRecordsNothing() {
+        InMemoryMetricsRegistry registry = new InMemoryMetricsRegistry();
+        Instrumentation.setRegistry(registry);
+        Instrumentation.setRegistry(null);
+        assertNull(Instrumentation.getRegistry());
+
+        assertSame(StageTimer.DISABLED, Instrumentation.start("decode"));
+        new LuminosityGrayscale().process(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB));
+        Instrumentation.queueDepth("queue", 3);
+        assertTrue(registry.getStageStatistics().isEmpty());
+        assertTrue(registry.getQueueStatistics().isEmpty());
+    }
+
+    @Test
+    void testFlightRecorderEvents(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("events.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(StageEvent.class);
+            recording.enable(QueueDepthEvent.class);
+            recording.start();
+            new LuminosityGrayscale().process(new BufferedImage(8, 5, BufferedImage.TYPE_INT_RGB));
+            Instrumentation.queueDepth("batch.decoded", 2);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Set<String> stages = events.stream()
+                .filter(event -> event.getEventType().getName().equals("kg.projects.imagekit.Stage"))
+                .map(event -> event.getString("stage") + ":" + event.getLong("pixels"))
+                .collect(Collectors.toSet());
+        assertEquals(Set.of("LuminosityGrayscale:40"), stages);
+
+        List<RecordedEvent> depths = events.stream()
+                .filter(event -> event.getEventType().getName().equals("kg.projects.imagekit.QueueDepth"))
+                .toList();
+        assertEquals(1, depths.size());
+        assertEquals(2, depths.get(0).getInt("depth"));
+    }
+}
@@ -0,0 +1,137 @@
+package kg.projects.image.editor.imagekit.pipeline;
+
+import kg.projects.image.editor.imagekit.algorithm.ImageAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.PixelAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.convolution.BorderMode;
+import kg.projects.image.editor.imagekit.algorithm.convolution.GradientOperator;
+import kg.projects.image.editor.imagekit.algorithm.detection.GradientEdgeDetection;
+import kg.projects.image.editor.imagekit.algorithm.detection.SobelEdgeDetection;
+import kg.projects.image.editor.imagekit.algorithm.grayscale.LuminosityGrayscale;
+import kg.projects.image.editor.imagekit.algorithm.kernel.GradientMagnitude;
+import kg.projects.image.editor.imagekit.raster.ImagePool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PipelineTest {
+    private final LuminosityGrayscale grayscale = new LuminosityGrayscale();
+    private final SobelEdgeDetection sobel = new SobelEdgeDetection(grayscale);
+    private final PixelAlgorithm invert = pixel -> ~pixel & 0xFFFFFF;
+    private final ImageAlgorithm flip = image -> {
+        BufferedImage result = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                result.setRGB(image.getWidth() - 1 - x, y, image.getRGB(x, y));
+            }
+        }
+        return result;
+    };
+
+    private BufferedImage testImage;
+
+    @BeforeEach
+    void setUp() {
+        testImage = new BufferedImage(12, 8, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < testImage.getWidth(); x++) {
+            for (int y = 0; y < testImage.getHeight(); y++) {
+                testImage.setRGB(x, y, (x * 21 << 16) | (y * 31 << 8) | (x * y));
+            }
+        }
+    }
+
+    private void assertSameImage(BufferedImage expected, BufferedImage result) {
+        for (int x = 0; x < expected.getWidth(); x++) {
+            for (int y = 0; y < expected.getHeight(); y++) {
+                assertEquals(expected.getRGB(x, y), result.getRGB(x, y), "Mismatch at " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void testBuilderValidation() {
+        assertThrows(IllegalStateException.class, () -> Pipeline.builder().build());
+        assertThrows(IllegalArgumentException.class, () -> Pipeline.builder().then(null));
+        assertThrows(IllegalArgumentException.class, () -> Pipeline.builder().then(sobel).build().process(null));
+    }
+
+    @Test
+    void testMatchesSequentialApplication() {
+        Pipeline pipeline = Pipeline.builder().then(invert).then(grayscale).then(flip).then(sobel).then(invert).build();
+
+        BufferedImage expected = invert.process(sobel.process(flip.process(grayscale.process(invert.process(testImage)))));
+        assertSameImage(expected, pipeline.process(testImage));
+    }
+
+    @Test
+    void testFusesAdjacentPixelAlgorithms() {
+        Pipeline pixelOnly = Pipeline.builder().then(invert).then(grayscale).then(invert).build();
+        assertEquals(1, pixelOnly.stageCount());
+        assertEquals(0, pixelOnly.intermediateBufferCount());
+        assertEquals(12 * 8 * 4, pixelOnly.footprintBytes(12, 8));
+
+        Pipeline mixed = Pipeline.builder().then(invert).then(grayscale).then(sobel).then(flip).build();
+        assertEquals(3, mixed.stageCount());
+        assertEquals(2, mixed.intermediateBufferCount());
+        assertEquals(3L * 12 * 8 * 4, mixed.footprintBytes(12, 8));
+    }
+
+    @Test
+    void testCompactGrayMatchesRgbIntermediates() {
+        GradientEdgeDetection scharr = new GradientEdgeDetection(grayscale, GradientOperator.SCHARR,
+                BorderMode.REFLECT, GradientMagnitude.L1);
+        List<List<ImageAlgorithm>> chains = List.of(
+                List.of(grayscale, sobel),
+                List.of(grayscale, sobel, scharr, flip),
+                List.of(invert, sobel, scharr, invert, sobel),
+                List.of(sobel, flip, grayscale, scharr, sobel));
+
+        for (List<ImageAlgorithm> chain : chains) {
+            Pipeline.Builder compact = Pipeline.builder();
+            Pipeline.Builder rgb = Pipeline.builder().compactGray(false);
+            for (ImageAlgorithm algorithm : chain) {
+                compact.then(algorithm);
+                rgb.then(algorithm);
+            }
+            Pipeline compactPipeline = compact.build();
+            Pipeline rgbPipeline = rgb.build();
+            assertEquals(0, rgbPipeline.grayBufferCount());
+            assertSameImage(rgbPipeline.process(testImage), compactPipeline.process(testImage));
+            assertSameImage(rgbPipeline.process(testImage), compactPipeline.process(testImage));
+        }
+    }
+
+    @Test
+    void testCompactGrayFootprint() {
+        Pipeline edges = Pipeline.builder().then(grayscale).then(sobel).then(sobel).then(flip).build();
+        assertEquals(4, edges.stageCount());
+        assertEquals(2, edges.grayBufferCount());
+        assertEquals(3, edges.intermediateBufferCount());
+        assertEquals(12 * 8 * (2 * 4 + 2), edges.footprintBytes(12, 8));
+
+        Pipeline rgb = Pipeline.builder().compactGray(false).then(grayscale).then(sobel).then(sobel).then(flip).build();
+        assertEquals(2, rgb.intermediateBufferCount());
+        assertEquals(3L * 12 * 8 * 4, rgb.footprintBytes(12, 8));
+    }
+
+    @Test
+    void testReusesPooledBuffers() {
+        ImagePool pool = new ImagePool();
+        BufferedImage buffer = pool.acquire(12, 8);
+        pool.release(buffer);
+
+        Pipeline pipeline = Pipeline.builder().pool(pool).then(sobel).then(flip).build();
+        BufferedImage destination = new BufferedImage(12, 8, BufferedImage.TYPE_INT_RGB);
+        assertSame(destination, pipeline.process(testImage, destination));
+        assertSameImage(flip.process(sobel.process(testImage)), destination);
+        assertSame(buffer, pool.acquire(12, 8));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> pipeline.process(testImage, new BufferedImage(3, 3, BufferedImage.TYPE_INT_RGB)));
+    }
+}
@@ -0,0 +1,87 @@
+package kg.projects.image.editor.imagekit.raster;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GrayPlaneTest {
+    @Test
+    void testCreateIsBackedByGrayImage() {
+        GrayPlane plane = GrayPlane.create(5, 3);
+        assertEquals(5, plane.width());
+        assertEquals(3, plane.height());
+        assertEquals(15, plane.levels().length);
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, plane.image().getType());
+
+        plane.levels()[7] = (byte) 200;
+        assertEquals(200, plane.image().getRaster().getSample(2, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> GrayPlane.create(0, 3));
+    }
+
+    @Test
+    void testOfSharesLevels() {
+        byte[] levels = new byte[12];
+        levels[5] = (byte) 250;
+        GrayPlane plane = GrayPlane.of(levels, 4, 3);
+        assertSame(levels, plane.levels());
+
+        BufferedImage image = plane.image();
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, image.getType());
+        assertEquals(250, image.getRaster().getSample(1, 1, 0));
+        assertTrue(GrayPlane.isGray(image));
+        assertSame(levels, GrayPlane.wrap(image).levels());
+
+        assertThrows(IllegalArgumentException.class, () -> GrayPlane.of(null, 4, 3));
+        assertThrows(IllegalArgumentException.class, () -> GrayPlane.of(levels, 4, 4));
+    }
+
+    @Test
+    void testWrapRequiresCompactGrayImage() {
+        BufferedImage gray = new BufferedImage(6, 4, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] data = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+        assertSame(data, GrayPlane.wrap(gray).levels());
+
+        BufferedImage rgb = new BufferedImage(6, 4, BufferedImage.TYPE_INT_RGB);
+        assertFalse(GrayPlane.isGray(rgb));
+        assertFalse(GrayPlane.isGray(gray.getSubimage(1, 1, 3, 2)));
+        assertFalse(GrayPlane.isGray(null));
+        assertThrows(IllegalArgumentException.class, () -> GrayPlane.wrap(rgb));
+        assertThrows(IllegalArgumentException.class, () -> GrayPlane.wrap(null));
+    }
+
+    @Test
+    void testRgbRoundTrip() {
+        BufferedImage rgb = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 16; x++) {
+            for (int y = 0; y < 16; y++) {
+                rgb.setRGB(x, y, PixelPlane.grayPixel(y * 16 + x));
+            }
+        }
+
+        GrayPlane plane = GrayPlane.fromRgb(rgb);
+        assertEquals(255, plane.levels()[255] & 0xff);
+        BufferedImage expanded = plane.toRgbImage();
+        assertEquals(BufferedImage.TYPE_INT_RGB, expanded.getType());
+        assertArrayEquals(PixelPlane.of(rgb).pixels(), PixelPlane.of(expanded).pixels());
+
+        assertThrows(IllegalArgumentException.class, () -> plane.copyTo(PixelPlane.createRgb(15, 16)));
+        assertThrows(IllegalArgumentException.class, () -> plane.copyTo(null));
+        assertThrows(IllegalArgumentException.class, () -> GrayPlane.fromRgb(null));
+    }
+
+    @Test
+    void testCheckDestination() {
+        GrayPlane plane = GrayPlane.create(3, 2);
+        assertSame(plane, GrayPlane.checkDestination(plane, 3, 2));
+        assertThrows(IllegalArgumentException.class, () -> GrayPlane.checkDestination(plane, 2, 3));
+        assertThrows(IllegalArgumentException.class, () -> GrayPlane.checkDestination(null, 3, 2));
+    }
+}
@@ -0,0 +1,136 @@
+package kg.projects.image.editor.imagekit.raster;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ImagePoolTest {
+    @Test
+    void testImagesAreReusedBySize() {
+        ImagePool pool = new ImagePool();
+        BufferedImage image = pool.acquire(4, 3);
+        assertEquals(BufferedImage.TYPE_INT_RGB, image.getType());
+
+        pool.release(image);
+        assertNotSame(image, pool.acquire(3, 4));
+        assertSame(image, pool.acquire(4, 3));
+        assertNotSame(image, pool.acquire(4, 3));
+    }
+
+    @Test
+    void testArraysAreReusedByLength() {
+        ImagePool pool = new ImagePool(1);
+        int[] first = pool.acquireArray(10);
+        int[] second = pool.acquireArray(10);
+        assertEquals(10, first.length);
+        assertNotSame(first, second);
+
+        pool.releaseArray(first);
+        pool.releaseArray(second);
+        pool.releaseArray(first);
+        assertSame(first, pool.acquireArray(10));
+        assertNotSame(second, pool.acquireArray(10));
+        assertEquals(11, pool.acquireArray(11).length);
+        assertEquals(0, pool.acquireArray(0).length);
+
+        pool.releaseArray(first);
+        pool.clear();
+        assertNotSame(first, pool.acquireArray(10));
+    }
+
+    @Test
+    void testByteArraysAreReusedByLength() {
+        ImagePool pool = new ImagePool(1);
+        byte[] levels = pool.acquireByteArray(10);
+        assertEquals(10, levels.length);
+
+        pool.releaseByteArray(levels);
+        assertNotSame(levels, pool.acquireByteArray(11));
+        assertSame(levels, pool.acquireByteArray(10));
+
+        pool.releaseByteArray(levels);
+        pool.clear();
+        assertNotSame(levels, pool.acquireByteArray(10));
+        assertThrows(IllegalArgumentException.class, () -> pool.acquireByteArray(-1));
+        assertThrows(IllegalArgumentException.class, () -> pool.releaseByteArray(null));
+    }
+
+    @Test
+    void testLeastRecentlyReleasedBuffersAreEvictedPastTheByteBound() {
+        ImagePool pool = new ImagePool(4, 100);
+        BufferedImage image = pool.acquire(4, 4);
+        int[] array = pool.acquireArray(10);
+        byte[] levels = pool.acquireByteArray(30);
+
+        pool.release(image);
+        pool.releaseByteArray(levels);
+        assertEquals(94, pool.pooledBytes());
+        pool.releaseArray(array);
+        assertEquals(70, pool.pooledBytes());
+
+        assertNotSame(image, pool.acquire(4, 4));
+        assertSame(array, pool.acquireArray(10));
+        assertSame(levels, pool.acquireByteArray(30));
+        assertEquals(0, pool.pooledBytes());
+
+        pool.releaseArray(new int[26]);
+        assertEquals(0, pool.pooledBytes());
+    }
+
+    @Test
+    void testReleasingTwiceKeepsOneCopy() {
+        ImagePool pool = new ImagePool();
+        BufferedImage image = pool.acquire(2, 2);
+        pool.release(image);
+        pool.release(image);
+        assertEquals(16, pool.pooledBytes());
+
+        assertSame(image, pool.acquire(2, 2));
+        assertNotSame(image, pool.acquire(2, 2));
+        pool.release(image);
+        pool.clear();
+        assertEquals(0, pool.pooledBytes());
+    }
+
+    @Test
+    void testInvalidArguments() {
+        ImagePool pool = new ImagePool();
+        assertThrows(IllegalArgumentException.class, () -> new ImagePool(-1));
+        assertThrows(IllegalArgumentException.class, () -> new ImagePool(1, -1));
+        assertThrows(IllegalArgumentException.class, () -> pool.acquire(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> pool.release(null));
+        assertThrows(IllegalArgumentException.class, () -> pool.acquireArray(-1));
+        assertThrows(IllegalArgumentException.class, () -> pool.releaseArray(null));
+        assertThrows(IllegalArgumentException.class, () -> PixelPlane.toRgbImage(new BufferedImage(1, 1,
+                BufferedImage.TYPE_3BYTE_BGR), null));
+    }
+
+    @Test
+    void testToRgbImageFromPool() {
+        ImagePool pool = new ImagePool();
+        BufferedImage source = new BufferedImage(5, 4, BufferedImage.TYPE_3BYTE_BGR);
+        for (int x = 0; x < 5; x++) {
+            for (int y = 0; y < 4; y++) {
+                source.setRGB(x, y, (x * 50 << 16) | (y * 60 << 8) | (x + y));
+            }
+        }
+
+        BufferedImage pooled = pool.acquire(5, 4);
+        pooled.setRGB(0, 0, 0xFFFFFF);
+        pool.release(pooled);
+        BufferedImage result = PixelPlane.toRgbImage(source, pool);
+
+        assertSame(pooled, result);
+        for (int x = 0; x < 5; x++) {
+            for (int y = 0; y < 4; y++) {
+                assertEquals(source.getRGB(x, y), result.getRGB(x, y));
+            }
+        }
+        assertSame(result, PixelPlane.toRgbImage(result, pool));
+    }
+}
@@ -0,0 +1,98 @@
+package kg.projects.image.editor.imagekit.raster;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PixelPlaneTest {
+    private static final int[] TYPES = {
+        BufferedImage.TYPE_INT_RGB,
+        BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_3BYTE_BGR,
+        BufferedImage.TYPE_4BYTE_ABGR,
+        BufferedImage.TYPE_BYTE_GRAY,
+        BufferedImage.TYPE_USHORT_565_RGB
+    };
+
+    private BufferedImage createImage(int type) {
+        BufferedImage image = new BufferedImage(7, 5, type);
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.setRGB(x, y, (0xFF << 24) | (x * 30 << 16) | (y * 40 << 8) | (x + y));
+            }
+        }
+        return image;
+    }
+
+    @Test
+    void testOfNull() {
+        assertThrows(IllegalArgumentException.class, () -> PixelPlane.of(null));
+    }
+
+    @Test
+    void testOfMatchesGetRGB() {
+        for (int type : TYPES) {
+            BufferedImage image = createImage(type);
+            PixelPlane plane = PixelPlane.of(image);
+            assertEquals(image.getWidth() * image.getHeight(), plane.pixels().length);
+            for (int x = 0; x < image.getWidth(); x++) {
+                for (int y = 0; y < image.getHeight(); y++) {
+                    assertEquals(image.getRGB(x, y) & 0xFFFFFF, plane.pixels()[y * plane.width() + x] & 0xFFFFFF,
+                            "Mismatch for type " + type + " at " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testOfSharesIntRaster() {
+        BufferedImage image = createImage(BufferedImage.TYPE_INT_RGB);
+        assertSame(((DataBufferInt) image.getRaster().getDataBuffer()).getData(), PixelPlane.of(image).pixels());
+    }
+
+    @Test
+    void testOfSubimage() {
+        BufferedImage image = createImage(BufferedImage.TYPE_INT_RGB).getSubimage(2, 1, 3, 3);
+        PixelPlane plane = PixelPlane.of(image);
+        for (int x = 0; x < 3; x++) {
+            for (int y = 0; y < 3; y++) {
+                assertEquals(image.getRGB(x, y) & 0xFFFFFF, plane.pixels()[y * 3 + x] & 0xFFFFFF);
+            }
+        }
+    }
+
+    @Test
+    void testCreateRgbWritesThrough() {
+        PixelPlane plane = PixelPlane.createRgb(4, 3);
+        plane.pixels()[2 * 4 + 1] = PixelPlane.grayPixel(100);
+        assertEquals(BufferedImage.TYPE_INT_RGB, plane.image().getType());
+        assertEquals((0xFF << 24) | (100 << 16) | (100 << 8) | 100, plane.image().getRGB(1, 2));
+    }
+
+    @Test
+    void testToRgbImageMatchesPixelCopy() {
+        for (int type : TYPES) {
+            BufferedImage image = createImage(type);
+            BufferedImage result = PixelPlane.toRgbImage(image);
+            assertEquals(BufferedImage.TYPE_INT_RGB, result.getType());
+            for (int x = 0; x < image.getWidth(); x++) {
+                for (int y = 0; y < image.getHeight(); y++) {
+                    assertEquals(image.getRGB(x, y) | (0xFF << 24), result.getRGB(x, y),
+                            "Mismatch for type " + type + " at " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testToRgbImageKeepsRgbImage() {
+        BufferedImage image = createImage(BufferedImage.TYPE_INT_RGB);
+        assertSame(image, PixelPlane.toRgbImage(image));
+        assertThrows(IllegalArgumentException.class, () -> PixelPlane.toRgbImage(null));
+    }
+}
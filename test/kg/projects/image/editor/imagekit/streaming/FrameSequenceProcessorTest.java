@@ -0,0 +1,99 @@
+package kg.projects.image.editor.imagekit.streaming;
+
+import kg.projects.image.editor.imagekit.algorithm.ImageAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.convolution.BorderMode;
+import kg.projects.image.editor.imagekit.algorithm.convolution.GradientOperator;
+import kg.projects.image.editor.imagekit.algorithm.detection.GradientEdgeDetection;
+import kg.projects.image.editor.imagekit.algorithm.detection.SobelEdgeDetection;
+import kg.projects.image.editor.imagekit.algorithm.grayscale.LuminosityGrayscale;
+import kg.projects.image.editor.imagekit.algorithm.kernel.GradientMagnitude;
+import kg.projects.image.editor.imagekit.pipeline.Pipeline;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import static kg.projects.image.editor.imagekit.TestImages.assertSameImage;
+import static kg.projects.image.editor.imagekit.TestImages.createTestImage;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameSequenceProcessorTest {
+    private final LuminosityGrayscale grayscale = new LuminosityGrayscale();
+    private final SobelEdgeDetection sobel = new SobelEdgeDetection(grayscale);
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> FrameSequenceProcessor.builder(null));
+        assertThrows(IllegalArgumentException.class, () -> FrameSequenceProcessor.builder(image -> image));
+        assertThrows(IllegalArgumentException.class, () -> FrameSequenceProcessor.builder(sobel).tileSize(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> FrameSequenceProcessor.builder(sobel).build().processFrame(null));
+    }
+
+    @Test
+    void testMatchesWholeFrameProcessing() {
+        ImageAlgorithm scharr = new GradientEdgeDetection(grayscale, GradientOperator.SCHARR,
+                BorderMode.REFLECT, GradientMagnitude.L1);
+        ImageAlgorithm edgesOfEdges = Pipeline.builder().then(sobel).then(sobel).build();
+
+        for (ImageAlgorithm algorithm : List.of(sobel, scharr, edgesOfEdges, grayscale)) {
+            FrameSequenceProcessor processor = FrameSequenceProcessor.builder(algorithm).tileSize(16).build();
+            BufferedImage frame = createTestImage(100, 70);
+            assertSameImage(algorithm.process(frame), processor.processFrame(frame), algorithm.descriptor());
+            assertEquals(processor.tileCount(), processor.lastDirtyTileCount());
+
+            // Changes at a tile corner, on the frame border and inside a tile
+            int[][] changes = {{15, 15}, {16, 16}, {99, 69}, {0, 40}, {50, 5}};
+            for (int[] change : changes) {
+                frame.setRGB(change[0], change[1], 0x00ff00 ^ frame.getRGB(change[0], change[1]));
+                BufferedImage result = processor.processFrame(frame);
+                assertSameImage(algorithm.process(frame), result, algorithm.descriptor() + " " + change[0]);
+                assertTrue(processor.lastDirtyTileCount() <= 4, "Dirty " + processor.lastDirtyTileCount());
+            }
+
+            processor.processFrame(frame);
+            assertEquals(0, processor.lastDirtyTileCount());
+        }
+    }
+
+    @Test
+    void testTilesFullRowsWithoutColumnHalo() {
+        ImageAlgorithm rowsOnly = new ImageAlgorithm() {
+            @Override
+            public BufferedImage process(BufferedImage image) {
+                return sobel.process(image);
+            }
+
+            @Override
+            public int haloRows() {
+                return 1;
+            }
+        };
+        FrameSequenceProcessor processor = FrameSequenceProcessor.builder(rowsOnly).tileSize(10).build();
+        BufferedImage frame = createTestImage(60, 45);
+        processor.processFrame(frame);
+        assertEquals(5, processor.tileCount());
+
+        frame.setRGB(30, 25, 0xffffff);
+        assertSameImage(sobel.process(frame), processor.processFrame(frame), "rows");
+        assertEquals(1, processor.lastDirtyTileCount());
+    }
+
+    @Test
+    void testSizeChangeAndResetProcessWholeFrame() {
+        FrameSequenceProcessor processor = FrameSequenceProcessor.builder(sobel).tileSize(32).build();
+        processor.processFrame(createTestImage(64, 64));
+        assertEquals(4, processor.tileCount());
+
+        BufferedImage larger = createTestImage(65, 64);
+        assertSameImage(sobel.process(larger), processor.processFrame(larger), "resized");
+        assertEquals(6, processor.lastDirtyTileCount());
+
+        processor.reset();
+        assertEquals(0, processor.tileCount());
+        assertSameImage(sobel.process(larger), processor.processFrame(larger), "reset");
+        assertEquals(6, processor.lastDirtyTileCount());
+    }
+}
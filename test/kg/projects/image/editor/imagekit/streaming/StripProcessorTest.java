@@ -0,0 +1,122 @@
+package kg.projects.image.editor.imagekit.streaming;
+
+import kg.projects.image.editor.imagekit.algorithm.ImageAlgorithm;
+import kg.projects.image.editor.imagekit.algorithm.convolution.BorderMode;
+import kg.projects.image.editor.imagekit.algorithm.convolution.ConvolutionFilter;
+import kg.projects.image.editor.imagekit.algorithm.convolution.ConvolutionKernel;
+import kg.projects.image.editor.imagekit.algorithm.detection.SobelEdgeDetection;
+import kg.projects.image.editor.imagekit.algorithm.grayscale.LuminosityGrayscale;
+import kg.projects.image.editor.imagekit.algorithm.parallel.RowBandExecutor;
+import kg.projects.image.editor.imagekit.pipeline.Pipeline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static kg.projects.image.editor.imagekit.TestImages.assertSameImage;
+import static kg.projects.image.editor.imagekit.TestImages.createTestImage;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StripProcessorTest {
+    private final ImageAlgorithm sobel = new SobelEdgeDetection(new LuminosityGrayscale());
+
+    @TempDir
+    Path tempDir;
+
+    private File source;
+    private BufferedImage sourceImage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        sourceImage = createTestImage(123, 77);
+        source = tempDir.resolve("source.png").toFile();
+        ImageIO.write(sourceImage, "png", source);
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> StripProcessor.builder(null));
+        assertThrows(IllegalArgumentException.class, () -> StripProcessor.builder(image -> image));
+        assertThrows(IllegalArgumentException.class, () -> StripProcessor.builder(sobel).bandHeight(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> StripProcessor.builder(sobel).build().process(source, null));
+    }
+
+    @Test
+    void testMatchesInMemoryProcessing() throws IOException {
+        BufferedImage expected = sobel.process(sourceImage);
+
+        for (String format : new String[]{"png", "bmp", "tiff"}) {
+            for (int bandHeight : new int[]{1, 7, 64, 500}) {
+                File output = tempDir.resolve(bandHeight + "." + format).toFile();
+                StripProcessor.builder(sobel).bandHeight(bandHeight).build().process(source, output);
+
+                assertSameImage(expected, ImageIO.read(output), format + " " + bandHeight);
+            }
+        }
+    }
+
+    @Test
+    void testPipelineHaloAddsUp() throws IOException {
+        RowBandExecutor executor = RowBandExecutor.serial();
+        Pipeline pipeline = Pipeline.builder()
+                .then(new ConvolutionFilter(ConvolutionKernel.binomial(5), BorderMode.REFLECT, executor))
+                .then(sobel)
+                .build();
+        assertEquals(3, pipeline.haloRows());
+
+        File output = tempDir.resolve("pipeline.png").toFile();
+        StripProcessor.builder(pipeline).bandHeight(4).build().process(source, output);
+
+        assertSameImage(pipeline.process(sourceImage), ImageIO.read(output), "pipeline");
+    }
+
+    @Test
+    void testDecodesOneBandWithHaloAtATime() throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source)) {
+            ImageReader reader = ImageIO.getImageReaders(in).next();
+            reader.setInput(in, false, true);
+            StripImage image = new StripImage(reader, sobel, 10);
+
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.getData(new Rectangle(0, y, image.getWidth(), 1));
+            }
+
+            assertEquals(8, image.bandsProcessed());
+            assertEquals(12, image.maxRowsDecoded());
+            reader.dispose();
+        }
+    }
+
+    @Test
+    void testOutputErrors() throws IOException {
+        StripProcessor processor = StripProcessor.builder(sobel).build();
+
+        File existing = tempDir.resolve("existing.png").toFile();
+        Files.createFile(existing.toPath());
+        assertThrows(IOException.class, () -> processor.process(source, existing));
+
+        File unsupported = tempDir.resolve("result.xyz").toFile();
+        assertThrows(IOException.class, () -> processor.process(source, unsupported));
+        assertFalse(unsupported.exists());
+
+        File notAnImage = tempDir.resolve("text.png").toFile();
+        Files.writeString(notAnImage.toPath(), "not an image");
+        File output = tempDir.resolve("output.png").toFile();
+        assertThrows(IOException.class, () -> processor.process(notAnImage, output));
+        assertFalse(output.exists());
+        assertTrue(source.exists());
+    }
+}